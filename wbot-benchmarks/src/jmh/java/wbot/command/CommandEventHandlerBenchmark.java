@@ -0,0 +1,85 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.command;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import wbot.model.InMessage;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routing of incoming messages to commands: plain text, unknown command and command with arguments.
+ *
+ * @author whilein
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CommandEventHandlerBenchmark {
+
+    @Param({"привет, как дела?", "/unknown привет", "/Echo  привет, как   дела?"})
+    String text;
+
+    CommandEventHandler commandEventHandler;
+
+    InMessage message;
+
+    String lastArgument;
+
+    @Setup
+    public void setup() {
+        JsonMapper jsonMapper = new JsonMapper();
+
+        CommandManager commandManager = new ConcurrentCommandManager(
+                new SimpleCommandKeyboardButtonPayloadCodec(jsonMapper));
+
+        for (int i = 0; i < 100; i++) {
+            commandManager.register(new Command("command" + i, Collections.singletonList("c" + i)) {
+                @Override
+                public void execute(CommandContext context) {
+                }
+            });
+        }
+
+        commandManager.register(new Command("echo", Arrays.asList("say", "repeat")) {
+            @Override
+            public void execute(CommandContext context) {
+                lastArgument = context.argument(context.argumentCount() - 1);
+            }
+        });
+
+        commandEventHandler = new CommandEventHandler(commandManager, jsonMapper);
+        message = new InMessage(1, text, null, null, null, Collections.emptyList(), 0, false, null);
+    }
+
+    @Benchmark
+    public String onMessage() {
+        commandEventHandler.onMessage(null, message);
+        return lastArgument;
+    }
+
+}
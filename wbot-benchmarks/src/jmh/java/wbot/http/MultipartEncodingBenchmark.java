@@ -0,0 +1,141 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.http;
+
+import lombok.val;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import wbot.http.java11.MultipartFormDataBodyPublisher;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of multipart upload (text field and file) by {@link DefaultHttpClient} and
+ * {@link MultipartFormDataBodyPublisher}, without network.
+ *
+ * @author whilein
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MultipartEncodingBenchmark {
+
+    private static final String BOUNDARY = "WBOTbenchmark0123456789";
+
+    @Param({"1024", "1048576"})
+    int fileSize;
+
+    Path file;
+
+    List<MultipartContent.Part> parts;
+
+    @Setup
+    public void setup() throws IOException {
+        val bytes = new byte[fileSize];
+        ThreadLocalRandom.current().nextBytes(bytes);
+
+        file = Files.createTempFile("wbot-benchmark", ".bin");
+        Files.write(file, bytes);
+
+        parts = Arrays.asList(
+                new MultipartContent.Part("type", null,
+                        new BytesContent(null, "doc", StandardCharsets.UTF_8)),
+                new MultipartContent.Part("file", "document.bin",
+                        new FileContent("application/octet-stream", fileSize, file))
+        );
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long contentLength() {
+        return MultipartEncoding.contentLength(BOUNDARY, parts);
+    }
+
+    @Benchmark
+    public void defaultHttpClient(Blackhole bh) throws IOException {
+        val visitor = new DefaultHttpClient.RequestSenderContentVisitor(new BlackholeOutputStream(bh));
+        visitor.writeMultipart(BOUNDARY, parts, MultipartEncoding.partHeaders(BOUNDARY, parts));
+    }
+
+    @Benchmark
+    public void java11HttpClient(Blackhole bh) {
+        // publisher emits synchronously from request(), so body is drained on return
+        new MultipartFormDataBodyPublisher(BOUNDARY, parts).subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                bh.consume(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                throw new IllegalStateException(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+    }
+
+    private static final class BlackholeOutputStream extends OutputStream {
+
+        private final Blackhole bh;
+
+        private BlackholeOutputStream(Blackhole bh) {
+            this.bh = bh;
+        }
+
+        @Override
+        public void write(int b) {
+            bh.consume(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bh.consume(b);
+        }
+
+    }
+
+}
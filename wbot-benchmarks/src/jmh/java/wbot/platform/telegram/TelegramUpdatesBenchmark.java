@@ -0,0 +1,100 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform.telegram;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.val;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import wbot.model.InMessage;
+import wbot.platform.telegram.mapper.TelegramMessageMapper;
+import wbot.platform.telegram.model.Message;
+import wbot.platform.telegram.model.ResponseOrError;
+import wbot.platform.telegram.model.Update;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deserialization of {@code getUpdates} responses and mapping of received messages.
+ *
+ * @author whilein
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TelegramUpdatesBenchmark {
+
+    private static final String UPDATE = "{\"update_id\":%d,\"message\":{\"message_id\":%d,"
+                                         + "\"from\":{\"id\":%d,\"is_bot\":false,\"first_name\":\"Иван\","
+                                         + "\"username\":\"ivan\",\"language_code\":\"ru\"},"
+                                         + "\"chat\":{\"id\":%d,\"first_name\":\"Иван\",\"username\":\"ivan\","
+                                         + "\"type\":\"private\"},\"date\":1700000000,"
+                                         + "\"text\":\"/echo привет, мир\","
+                                         + "\"entities\":[{\"offset\":0,\"length\":5,\"type\":\"bot_command\"}]}}";
+
+    @Param({"1", "100"})
+    int updates;
+
+    JsonMapper jsonMapper;
+
+    JavaType responseType;
+
+    byte[] response;
+
+    Message message;
+
+    @Setup
+    public void setup() throws IOException {
+        jsonMapper = new JsonMapper();
+        responseType = jsonMapper.getTypeFactory().constructParametricType(ResponseOrError.class, Update[].class);
+
+        val json = new StringBuilder("{\"ok\":true,\"result\":[");
+
+        for (int i = 0; i < updates; i++) {
+            if (i != 0) {
+                json.append(',');
+            }
+
+            json.append(String.format(UPDATE, 500000 + i, i, 100000 + i, 100000 + i));
+        }
+
+        response = json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+
+        ResponseOrError<Update[]> result = jsonMapper.readValue(response, responseType);
+        message = result.getResult()[0].getMessage();
+    }
+
+    @Benchmark
+    public Object deserialize() throws IOException {
+        return jsonMapper.readValue(response, responseType);
+    }
+
+    @Benchmark
+    public InMessage mapToMessage() {
+        return TelegramMessageMapper.INSTANCE.mapToMessage(message);
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform.telegram.method;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.val;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import wbot.http.Content;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON encoding of typical {@code sendMessage} params.
+ *
+ * @author whilein
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TelegramJsonMethodParamsBenchmark {
+
+    private static final String MESSAGE = "Привет! Это сообщение содержит кириллицу, пробелы & спецсимволы: 100% = ok?";
+
+    JsonMapper jsonMapper;
+
+    Map<String, Object> replyMarkup;
+
+    @Setup
+    public void setup() {
+        jsonMapper = new JsonMapper();
+
+        List<List<Map<String, String>>> keyboard = Collections.singletonList(Collections.singletonList(
+                Map.of("text", "Да", "callback_data", "{\"n\":\"yes\"}")));
+
+        replyMarkup = Collections.singletonMap("inline_keyboard", keyboard);
+    }
+
+    @Benchmark
+    public Content sendMessage() {
+        val params = new TelegramJsonMethodParams(jsonMapper);
+        params.set("chat_id", 100000L);
+        params.set("text", MESSAGE);
+        params.set("parse_mode", "HTML");
+        params.set("reply_markup", replyMarkup);
+
+        return params.asContent();
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform.vk;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.val;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import wbot.model.InMessage;
+import wbot.platform.vk.mapper.VkMessageMapper;
+import wbot.platform.vk.model.Message;
+import wbot.platform.vk.model.update.MessageNew;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deserialization of long poll responses and mapping of received messages.
+ *
+ * @author whilein
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VkUpdatesBenchmark {
+
+    private static final String MESSAGE_NEW = "{\"type\":\"message_new\",\"object\":{\"message\":{"
+                                              + "\"date\":1700000000,\"from_id\":%d,\"id\":0,\"out\":0,"
+                                              + "\"attachments\":[],\"conversation_message_id\":%d,"
+                                              + "\"fwd_messages\":[],\"important\":false,\"is_hidden\":false,"
+                                              + "\"peer_id\":2000000001,\"random_id\":0,"
+                                              + "\"text\":\"/echo привет, мир\"},"
+                                              + "\"client_info\":{\"button_actions\":[\"text\",\"vkpay\","
+                                              + "\"open_app\",\"location\",\"open_link\",\"callback\"],"
+                                              + "\"keyboard\":true,\"inline_keyboard\":true,\"carousel\":true,"
+                                              + "\"lang_id\":0}},\"group_id\":1,\"event_id\":\"%s\","
+                                              + "\"v\":\"5.199\"}";
+
+    @Param({"1", "100"})
+    int updates;
+
+    JsonMapper jsonMapper;
+
+    byte[] response;
+
+    Message message;
+
+    @Setup
+    public void setup() throws IOException {
+        jsonMapper = new JsonMapper();
+
+        val json = new StringBuilder("{\"ts\":\"1000\",\"updates\":[");
+
+        for (int i = 0; i < updates; i++) {
+            if (i != 0) {
+                json.append(',');
+            }
+
+            json.append(String.format(MESSAGE_NEW, 100000 + i, i, Integer.toHexString(i)));
+        }
+
+        response = json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+
+        val update = jsonMapper.readValue(response, VkLongPoll.Response.class).getUpdates().get(0);
+        message = ((MessageNew) update.getObject()).getMessage();
+    }
+
+    @Benchmark
+    public Object deserialize() throws IOException {
+        return jsonMapper.readValue(response, VkLongPoll.Response.class);
+    }
+
+    @Benchmark
+    public InMessage mapToMessage() {
+        return VkMessageMapper.INSTANCE.mapToMessage(message);
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform.vk.method;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.val;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import wbot.http.Content;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Form encoding of typical {@code messages.send} params.
+ *
+ * @author whilein
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VkMethodParamsBenchmark {
+
+    private static final byte[] PREFIX = "access_token=vk1.a.0123456789abcdef0123456789abcdef&v=5.199&lang=ru"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final String MESSAGE = "Привет! Это сообщение содержит кириллицу, пробелы & спецсимволы: 100% = ok?";
+
+    private static final String KEYBOARD = "{\"inline\":true,\"buttons\":[[{\"action\":{\"type\":\"callback\","
+                                           + "\"label\":\"Да\",\"payload\":\"{\\\"n\\\":\\\"yes\\\"}\"}}]]}";
+
+    JsonMapper jsonMapper;
+
+    @Setup
+    public void setup() {
+        jsonMapper = new JsonMapper();
+    }
+
+    @Benchmark
+    public Content messagesSend() {
+        val params = new VkMethodParams(jsonMapper, PREFIX);
+        params.set("peer_id", 2000000001L);
+        params.set("random_id", 0);
+        params.set("message", MESSAGE);
+        params.set("keyboard", KEYBOARD);
+        params.set("attachment", new String[]{"photo-1_457239017", "doc-1_457239018"});
+
+        return params.asContent();
+    }
+
+}
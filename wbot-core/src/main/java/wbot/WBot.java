@@ -32,19 +32,33 @@ import org.slf4j.LoggerFactory;
 import wbot.command.CommandEventHandler;
 import wbot.command.CommandKeyboardButtonPayloadCodec;
 import wbot.command.CommandManager;
+import wbot.command.ConcurrentCommandManager;
 import wbot.command.SimpleCommandKeyboardButtonPayloadCodec;
-import wbot.command.SimpleCommandManager;
+import wbot.event.EventDispatcher;
+import wbot.event.EventDispatcherFactory;
 import wbot.event.EventHandler;
 import wbot.event.SimpleEventDispatcher;
 import wbot.http.DefaultHttpClient;
 import wbot.http.HttpClient;
+import wbot.metrics.MetricsRecorder;
+import wbot.platform.IdentityCache;
+import wbot.platform.LongPollSettings;
 import wbot.platform.Platform;
 import wbot.platform.PlatformType;
+import wbot.platform.ResiliencePolicy;
+import wbot.platform.SimpleIdentityCache;
 import wbot.platform.telegram.TelegramClient;
 import wbot.platform.telegram.TelegramPlatform;
+import wbot.platform.telegram.TelegramWebhook;
+import wbot.platform.vk.VkCallbackApi;
 import wbot.platform.vk.VkClient;
 import wbot.platform.vk.VkPlatform;
+import wbot.util.AsyncCache;
+import wbot.util.KeyedRateLimiter;
+import wbot.util.RateLimiter;
+import wbot.util.SegmentedLruCache;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -71,6 +85,8 @@ public final class WBot {
     List<Platform> platforms;
     Map<PlatformType, Platform> type2PlatformMap;
 
+    EventDispatcher eventDispatcher;
+
     @NonFinal
     List<Thread> threads;
 
@@ -84,6 +100,8 @@ public final class WBot {
             httpClient.start();
         }
 
+        eventDispatcher.start();
+
         val threads = new ArrayList<Thread>(platforms.size());
         for (val platform : platforms) {
             val thread = new Thread(platform, platform.getType().getDisplayName() + " Platform");
@@ -116,6 +134,8 @@ public final class WBot {
             thread.interrupt();
         }
         threads = null;
+
+        eventDispatcher.stop();
     }
 
     public void stop() {
@@ -154,11 +174,53 @@ public final class WBot {
         @NonFinal
         JsonMapper jsonMapper;
 
+        /**
+         * Cache of identity names and avatars, e.g. {@link SimpleIdentityCache}. Caching is disabled
+         * by default, so names and avatars are always fresh.
+         */
+        @Setter
+        @NonFinal
+        IdentityCache identityCache;
+
+        /**
+         * Cache of uploaded attachments, which have {@link wbot.model.Attachment#cacheKey() cache key}.
+         */
+        @Setter
+        @NonFinal
+        AsyncCache<String, String> uploadCache;
+
+        /**
+         * Retries and circuit breaking of API calls, circuit breakers are kept per API host,
+         * so one policy can be shared by all platforms.
+         */
+        @Setter
+        @NonFinal
+        ResiliencePolicy resiliencePolicy;
+
+        /**
+         * Receives long poll, event handler and API call measurements, e.g.
+         * {@link wbot.metrics.HistogramMetricsRecorder}. Nothing is recorded if not set.
+         */
+        @Setter
+        @NonFinal
+        MetricsRecorder metricsRecorder;
+
         @Setter
         @NonFinal
         Logger telegramLogger;
         @NonFinal
         String telegramToken;
+        @NonFinal
+        TelegramWebhook.Settings telegramWebhookSettings;
+        @Setter
+        @NonFinal
+        LongPollSettings telegramLongPollSettings;
+        @Setter
+        @NonFinal
+        RateLimiter telegramRateLimiter;
+        @Setter
+        @NonFinal
+        KeyedRateLimiter<Object> telegramChatRateLimiter;
 
         @Setter
         @NonFinal
@@ -167,6 +229,20 @@ public final class WBot {
         long vkontakteDocumentOwnerId;
         @NonFinal
         String vkontakteToken;
+        @NonFinal
+        VkCallbackApi.Settings vkontakteCallbackApiSettings;
+        @Setter
+        @NonFinal
+        LongPollSettings vkontakteLongPollSettings;
+        @Setter
+        @NonFinal
+        RateLimiter vkontakteRateLimiter;
+        /**
+         * Window of batching Vkontakte API calls into {@code execute}, batching is disabled if not set.
+         */
+        @Setter
+        @NonFinal
+        Duration vkontakteBatchWindow;
 
         @NonFinal
         CommandManager commandManager;
@@ -174,6 +250,9 @@ public final class WBot {
         @NonFinal
         CommandKeyboardButtonPayloadCodec keyboardButtonPayloadCodec;
 
+        @NonFinal
+        EventDispatcherFactory eventDispatcherFactory;
+
         @Setter
         @NonFinal
         boolean registerCommandEventHandler = true;
@@ -192,6 +271,11 @@ public final class WBot {
             return this;
         }
 
+        public Builder customEventDispatcher(EventDispatcherFactory eventDispatcherFactory) {
+            this.eventDispatcherFactory = eventDispatcherFactory;
+            return this;
+        }
+
         public Builder customKeyboardButtonPayloadCodec(CommandKeyboardButtonPayloadCodec keyboardButtonPayloadCodec) {
             this.keyboardButtonPayloadCodec = keyboardButtonPayloadCodec;
             return this;
@@ -202,12 +286,34 @@ public final class WBot {
             return this;
         }
 
+        /**
+         * Receive Telegram updates through webhook instead of long poll.
+         *
+         * @param settings webhook settings
+         * @return this builder
+         */
+        public Builder telegramWebhook(TelegramWebhook.Settings settings) {
+            this.telegramWebhookSettings = settings;
+            return this;
+        }
+
         public Builder enableVkontakte(long documentOwnerId, String token) {
             this.vkontakteDocumentOwnerId = documentOwnerId;
             this.vkontakteToken = token;
             return this;
         }
 
+        /**
+         * Receive Vkontakte updates through Callback API instead of long poll.
+         *
+         * @param settings Callback API settings
+         * @return this builder
+         */
+        public Builder vkontakteCallbackApi(VkCallbackApi.Settings settings) {
+            this.vkontakteCallbackApiSettings = settings;
+            return this;
+        }
+
         public Builder httpClient(HttpClient httpClient) {
             for (val platformType : PlatformType.values()) {
                 this.type2HttpClient.put(platformType, httpClient);
@@ -237,7 +343,7 @@ public final class WBot {
 
             CommandManager commandManager;
             if ((commandManager = this.commandManager) == null) {
-                commandManager = new SimpleCommandManager(keyboardButtonPayloadCodec);
+                commandManager = new ConcurrentCommandManager(keyboardButtonPayloadCodec);
             }
 
             val eventHandlers = new HashSet<>(this.customEventHandlers);
@@ -246,7 +352,29 @@ public final class WBot {
                 eventHandlers.add(new CommandEventHandler(commandManager, jsonMapper));
             }
 
-            val eventDispatcher = new SimpleEventDispatcher(logger, eventHandlers);
+            MetricsRecorder metricsRecorder;
+            if ((metricsRecorder = this.metricsRecorder) == null) {
+                metricsRecorder = MetricsRecorder.noop();
+            }
+
+            EventDispatcher eventDispatcher;
+
+            EventDispatcherFactory eventDispatcherFactory;
+            if ((eventDispatcherFactory = this.eventDispatcherFactory) == null) {
+                eventDispatcher = new SimpleEventDispatcher(logger, eventHandlers, metricsRecorder);
+            } else {
+                eventDispatcher = eventDispatcherFactory.create(logger, eventHandlers, metricsRecorder);
+            }
+
+            IdentityCache identityCache;
+            if ((identityCache = this.identityCache) == null) {
+                identityCache = IdentityCache.disabled();
+            }
+
+            AsyncCache<String, String> uploadCache;
+            if ((uploadCache = this.uploadCache) == null) {
+                uploadCache = new SegmentedLruCache<>(16, 1024, Duration.ofDays(1), Duration.ZERO);
+            }
 
             val platforms = new ArrayList<Platform>();
 
@@ -257,6 +385,11 @@ public final class WBot {
                             new DefaultHttpClient(-1));
                 }
 
+                LongPollSettings telegramLongPollSettings;
+                if ((telegramLongPollSettings = this.telegramLongPollSettings) == null) {
+                    telegramLongPollSettings = LongPollSettings.defaults();
+                }
+
                 Logger telegramLogger;
                 if ((telegramLogger = this.telegramLogger) == null) {
                     telegramLogger = LoggerFactory.getLogger("wbot.telegram");
@@ -264,8 +397,20 @@ public final class WBot {
 
                 platforms.add(new TelegramPlatform(
                         telegramLogger,
-                        new TelegramClient(telegramToken, telegramHttpClient, jsonMapper),
-                        eventDispatcher
+                        new TelegramClient.Builder()
+                                .token(telegramToken)
+                                .httpClient(telegramHttpClient)
+                                .jsonMapper(jsonMapper)
+                                .rateLimiter(telegramRateLimiter)
+                                .chatRateLimiter(telegramChatRateLimiter)
+                                .resiliencePolicy(resiliencePolicy)
+                                .metricsRecorder(metricsRecorder)
+                                .build(),
+                        eventDispatcher,
+                        telegramWebhookSettings,
+                        telegramLongPollSettings,
+                        identityCache,
+                        uploadCache
                 ));
             }
 
@@ -276,6 +421,11 @@ public final class WBot {
                             new DefaultHttpClient(-1));
                 }
 
+                LongPollSettings vkontakteLongPollSettings;
+                if ((vkontakteLongPollSettings = this.vkontakteLongPollSettings) == null) {
+                    vkontakteLongPollSettings = LongPollSettings.defaults();
+                }
+
                 Logger vkontakteLogger;
                 if ((vkontakteLogger = this.vkontakteLogger) == null) {
                     vkontakteLogger = LoggerFactory.getLogger("wbot.vkontakte");
@@ -284,8 +434,20 @@ public final class WBot {
                 platforms.add(new VkPlatform(
                         vkontakteDocumentOwnerId,
                         vkontakteLogger,
-                        new VkClient(vkontakteToken, vkontakteHttpClient, jsonMapper),
-                        eventDispatcher
+                        new VkClient.Builder()
+                                .token(vkontakteToken)
+                                .httpClient(vkontakteHttpClient)
+                                .jsonMapper(jsonMapper)
+                                .rateLimiter(vkontakteRateLimiter)
+                                .batchWindow(vkontakteBatchWindow)
+                                .resiliencePolicy(resiliencePolicy)
+                                .metricsRecorder(metricsRecorder)
+                                .build(),
+                        eventDispatcher,
+                        vkontakteCallbackApiSettings,
+                        vkontakteLongPollSettings,
+                        identityCache,
+                        uploadCache
                 ));
             }
 
@@ -295,7 +457,7 @@ public final class WBot {
                             Function.identity()
                     ));
 
-            return new WBot(type2HttpClient, platforms, type2PlatformMap, commandManager);
+            return new WBot(type2HttpClient, platforms, type2PlatformMap, eventDispatcher, commandManager);
         }
 
     }
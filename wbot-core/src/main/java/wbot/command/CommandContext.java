@@ -21,12 +21,15 @@ import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.Accessors;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.val;
 import wbot.model.IdentityHolder;
 import wbot.model.InMessage;
 import wbot.model.OutMessage;
 import wbot.model.SentMessage;
 import wbot.platform.Platform;
 
+import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -37,20 +40,36 @@ import java.util.concurrent.CompletableFuture;
 @RequiredArgsConstructor
 public final class CommandContext implements ArgumentProvider {
 
+    private static final int[] NO_ARGUMENTS = new int[0];
+
     @Getter
     Platform platform;
 
     @Getter
     String name;
 
-    int argumentOffset;
+    /**
+     * Text of the message, arguments are separated by one or more spaces.
+     */
+    String text;
 
-    @Getter
-    String[] arguments;
+    /**
+     * Index in text, where arguments start.
+     */
+    int argumentsStart;
 
     @Getter
     InMessage message;
 
+    /**
+     * Start and end indexes of arguments in text, found on first access.
+     */
+    @NonFinal
+    int[] argumentBounds;
+
+    @NonFinal
+    String[] arguments;
+
     public IdentityHolder chat() {
         return message.getChat();
     }
@@ -59,14 +78,71 @@ public final class CommandContext implements ArgumentProvider {
         return message.getFrom();
     }
 
+    private static int[] tokenize(String text, int from) {
+        int[] bounds = NO_ARGUMENTS;
+        int size = 0;
+
+        for (int i = from, j = text.length(); i < j; ) {
+            if (text.charAt(i) == ' ') {
+                i++;
+                continue;
+            }
+
+            int end;
+            if ((end = text.indexOf(' ', i)) == -1) {
+                end = j;
+            }
+
+            if (size == bounds.length) {
+                bounds = Arrays.copyOf(bounds, Math.max(4, size * 2));
+            }
+
+            bounds[size++] = i;
+            bounds[size++] = end;
+
+            i = end;
+        }
+
+        return size == bounds.length ? bounds : Arrays.copyOf(bounds, size);
+    }
+
+    private int[] touchArgumentBounds() {
+        int[] argumentBounds;
+        if ((argumentBounds = this.argumentBounds) == null) {
+            this.argumentBounds = argumentBounds = tokenize(text, argumentsStart);
+        }
+        return argumentBounds;
+    }
+
+    /**
+     * @return words of the command, starting with its name as it was typed
+     */
+    public String[] arguments() {
+        String[] arguments;
+        if ((arguments = this.arguments) == null) {
+            val count = argumentCount();
+
+            arguments = new String[count + 1];
+            arguments[0] = name;
+
+            for (int i = 0; i < count; i++) {
+                arguments[i + 1] = argument(i);
+            }
+
+            this.arguments = arguments;
+        }
+        return arguments;
+    }
+
     @Override
     public String argument(int i) {
-        return arguments[i + argumentOffset];
+        val argumentBounds = touchArgumentBounds();
+        return text.substring(argumentBounds[i * 2], argumentBounds[i * 2 + 1]);
     }
 
     @Override
     public int argumentCount() {
-        return arguments.length - argumentOffset;
+        return touchArgumentBounds().length / 2;
     }
 
     public CompletableFuture<SentMessage> sendMessage(OutMessage message) {
@@ -26,8 +26,6 @@ import wbot.model.InKeyboardCallback;
 import wbot.model.InMessage;
 import wbot.platform.Platform;
 
-import java.util.regex.Pattern;
-
 /**
  * @author whilein
  */
@@ -35,8 +33,6 @@ import java.util.regex.Pattern;
 @RequiredArgsConstructor
 public class CommandEventHandler implements EventHandler {
 
-    private static final Pattern SPACE = Pattern.compile(" +");
-
     CommandManager commandManager;
     JsonMapper jsonMapper;
 
@@ -59,13 +55,15 @@ public class CommandEventHandler implements EventHandler {
         val text = inMessage.getText();
         if (text == null || text.isEmpty() || text.charAt(0) != '/') return;
 
-        val params = SPACE.split(text.substring(1));
+        int nameEnd;
+        if ((nameEnd = text.indexOf(' ', 1)) == -1) {
+            nameEnd = text.length();
+        }
 
-        val commandName = params[0];
-        val command = commandManager.getCommand(commandName);
+        val command = commandManager.getCommand(text, 1, nameEnd);
         if (command == null) return;
 
-        command.execute(new CommandContext(platform, commandName, 1, params, inMessage));
+        command.execute(new CommandContext(platform, text.substring(1, nameEnd), text, nameEnd, inMessage));
     }
 
 }
@@ -16,17 +16,20 @@
 
 package wbot.command;
 
+import lombok.val;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Unmodifiable;
 
-import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Collection;
 import java.util.List;
 
 /**
+ * Registry of commands. Implementations are not required to be thread-safe,
+ * see {@link ConcurrentCommandManager} for one that is.
+ *
  * @author whilein
  */
-@NotThreadSafe
 public interface CommandManager {
 
     @NotNull CommandKeyboardButtonPayloadCodec getKeyboardButtonPayloadCodec();
@@ -39,6 +42,19 @@ public interface CommandManager {
      */
     @Nullable Command getCommand(@NotNull String commandName);
 
+    /**
+     * Retrieves a command by its name or alias (case-insensitive), which is located in the text,
+     * without copying it.
+     *
+     * @param text Text containing the name of the command.
+     * @param from Start index of the name, inclusive.
+     * @param to   End index of the name, exclusive.
+     * @return The found command if it exists; otherwise, returns {@code null}.
+     */
+    default @Nullable Command getCommand(@NotNull CharSequence text, int from, int to) {
+        return getCommand(text.subSequence(from, to).toString());
+    }
+
     @Nullable CommandKeyboardButtonExecutor getKeyboardButtonExecutor(@NotNull String name);
 
     @NotNull CommandKeyboardButton registerKeyboardButton(
@@ -54,6 +70,37 @@ public interface CommandManager {
      */
     boolean register(@NotNull Command command);
 
+    /**
+     * Registers all the commands.
+     *
+     * @param commands The commands to register.
+     * @return The count of successfully registered commands.
+     */
+    default int registerAll(@NotNull Collection<? extends @NotNull Command> commands) {
+        int count = 0;
+
+        for (val command : commands) {
+            if (register(command)) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Replaces all registered commands with the given ones.
+     *
+     * @param commands The commands to register instead of current ones.
+     */
+    default void replaceAll(@NotNull Collection<? extends @NotNull Command> commands) {
+        for (val command : getCommands()) {
+            unregister(command);
+        }
+
+        registerAll(commands);
+    }
+
     /**
      * Unregisters a previously registered command.
      *
@@ -0,0 +1,166 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.command;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Case-insensitive prefix tree of command names and aliases. Lookup runs over a range of the message text
+ * and stops at the first character, which is not a prefix of some name.
+ *
+ * @author whilein
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+final class CommandTrie {
+
+    private static final char[] EMPTY_KEYS = new char[0];
+    private static final Node[] EMPTY_CHILDREN = new Node[0];
+
+    Node root = new Node();
+
+    private static char normalize(char c) {
+        return Character.toLowerCase(c);
+    }
+
+    @Nullable Command get(CharSequence text, int from, int to) {
+        Node node = root;
+
+        for (int i = from; i < to; i++) {
+            if ((node = node.child(normalize(text.charAt(i)))) == null) {
+                return null;
+            }
+        }
+
+        return node.command;
+    }
+
+    /**
+     * @return command, previously mapped to the name, or {@code null}
+     */
+    @Nullable Command put(String name, Command command) {
+        Node node = root;
+
+        for (int i = 0, j = name.length(); i < j; i++) {
+            node = node.getOrCreateChild(normalize(name.charAt(i)));
+        }
+
+        val previous = node.command;
+        node.command = command;
+
+        return previous;
+    }
+
+    /**
+     * Removes name, only if it is mapped to the command.
+     *
+     * @return {@code true}, if name was removed
+     */
+    boolean remove(String name, Command command) {
+        return remove(root, name, 0, command);
+    }
+
+    private static boolean remove(Node node, String name, int index, Command command) {
+        if (index == name.length()) {
+            if (node.command != command) {
+                return false;
+            }
+
+            node.command = null;
+            return true;
+        }
+
+        val key = normalize(name.charAt(index));
+
+        Node child;
+        if ((child = node.child(key)) == null || !remove(child, name, index + 1, command)) {
+            return false;
+        }
+
+        if (child.isEmpty()) {
+            node.removeChild(key);
+        }
+
+        return true;
+    }
+
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    private static final class Node {
+
+        char[] keys = EMPTY_KEYS;
+
+        Node[] children = EMPTY_CHILDREN;
+
+        int size;
+
+        @Nullable Command command;
+
+        private @Nullable Node child(char key) {
+            // names are short and nodes have few children, linear scan is faster than hashing
+            val keys = this.keys;
+
+            for (int i = 0, j = size; i < j; i++) {
+                if (keys[i] == key) {
+                    return children[i];
+                }
+            }
+
+            return null;
+        }
+
+        private Node getOrCreateChild(char key) {
+            Node child;
+            if ((child = child(key)) != null) {
+                return child;
+            }
+
+            if (size == keys.length) {
+                val capacity = Math.max(2, size * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+
+            keys[size] = key;
+            children[size] = child = new Node();
+            size++;
+
+            return child;
+        }
+
+        private void removeChild(char key) {
+            for (int i = 0; i < size; i++) {
+                if (keys[i] == key) {
+                    val tail = size - i - 1;
+                    System.arraycopy(keys, i + 1, keys, i, tail);
+                    System.arraycopy(children, i + 1, children, i, tail);
+                    children[--size] = null;
+                    return;
+                }
+            }
+        }
+
+        private boolean isEmpty() {
+            return size == 0 && command == null;
+        }
+
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.command;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.val;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe command manager. Commands are kept in immutable snapshot, which is replaced on every change,
+ * so lookups don't take locks and never see partially applied changes.
+ * <p>
+ * Changes are expensive, use {@link #registerAll(Collection)} and {@link #replaceAll(Collection)}
+ * to apply many of them at once.
+ *
+ * @author whilein
+ */
+@ThreadSafe
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@RequiredArgsConstructor
+public final class ConcurrentCommandManager implements CommandManager {
+
+    @Getter
+    CommandKeyboardButtonPayloadCodec keyboardButtonPayloadCodec;
+
+    Object lock = new Object();
+
+    @NonFinal
+    volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    Map<String, CommandKeyboardButtonExecutor> name2KeyboardExecutorMap = new ConcurrentHashMap<>();
+
+    @Override
+    public @Nullable Command getCommand(@NotNull String commandName) {
+        return snapshot.commandTrie.get(commandName, 0, commandName.length());
+    }
+
+    @Override
+    public @Nullable Command getCommand(@NotNull CharSequence text, int from, int to) {
+        return snapshot.commandTrie.get(text, from, to);
+    }
+
+    @Override
+    public @Nullable CommandKeyboardButtonExecutor getKeyboardButtonExecutor(@NotNull String name) {
+        return name2KeyboardExecutorMap.get(name.toLowerCase());
+    }
+
+    @Override
+    public boolean register(@NotNull Command command) {
+        return registerAll(Collections.singletonList(command)) != 0;
+    }
+
+    @Override
+    public int registerAll(@NotNull Collection<? extends @NotNull Command> commands) {
+        synchronized (lock) {
+            val current = snapshot;
+            val updated = new LinkedHashSet<>(current.commands);
+
+            int count = 0;
+
+            for (val command : commands) {
+                if (updated.add(command)) {
+                    count++;
+                }
+            }
+
+            if (count != 0) {
+                snapshot = Snapshot.of(updated);
+            }
+
+            return count;
+        }
+    }
+
+    @Override
+    public void replaceAll(@NotNull Collection<? extends @NotNull Command> commands) {
+        val snapshot = Snapshot.of(new LinkedHashSet<>(commands));
+
+        synchronized (lock) {
+            this.snapshot = snapshot;
+        }
+    }
+
+    @Override
+    public boolean unregister(@NotNull Command command) {
+        synchronized (lock) {
+            val current = snapshot;
+
+            if (!current.commands.contains(command)) {
+                return false;
+            }
+
+            val updated = new LinkedHashSet<>(current.commands);
+            updated.remove(command);
+
+            snapshot = Snapshot.of(updated);
+
+            return true;
+        }
+    }
+
+    @Override
+    public boolean unregister(@NotNull String commandName) {
+        synchronized (lock) {
+            val command = getCommand(commandName);
+
+            return command != null && unregister(command);
+        }
+    }
+
+    @Override
+    public @NotNull @Unmodifiable List<@NotNull Command> getCommands() {
+        return snapshot.commandList;
+    }
+
+    @Override
+    public @NotNull CommandKeyboardButton registerKeyboardButton(
+            @NotNull String name,
+            @NotNull CommandKeyboardButtonExecutor executor
+    ) {
+        if (name2KeyboardExecutorMap.putIfAbsent(name.toLowerCase(), executor) != null) {
+            throw new IllegalArgumentException("Keyboard button " + name + " already registered");
+        }
+
+        return new CommandKeyboardButton(keyboardButtonPayloadCodec, name);
+    }
+
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    @RequiredArgsConstructor
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = of(Collections.emptySet());
+
+        Set<Command> commands;
+
+        List<Command> commandList;
+
+        CommandTrie commandTrie;
+
+        static Snapshot of(Set<Command> commands) {
+            val commandTrie = new CommandTrie();
+
+            // same as registering one by one: later commands take names of earlier ones
+            for (val command : commands) {
+                commandTrie.put(command.name(), command);
+
+                for (val alias : command.aliases()) {
+                    commandTrie.put(alias, command);
+                }
+            }
+
+            return new Snapshot(commands, Collections.unmodifiableList(new ArrayList<>(commands)), commandTrie);
+        }
+
+    }
+
+}
@@ -25,6 +25,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Unmodifiable;
 
+import javax.annotation.concurrent.NotThreadSafe;
+
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -36,6 +38,7 @@ import java.util.Set;
 /**
  * @author whilein
  */
+@NotThreadSafe
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 @RequiredArgsConstructor
 public final class SimpleCommandManager implements CommandManager {
@@ -44,13 +47,18 @@ public final class SimpleCommandManager implements CommandManager {
     CommandKeyboardButtonPayloadCodec keyboardButtonPayloadCodec;
 
     Set<Command> commands = new HashSet<>();
-    Map<String, Command> name2CommandMap = new HashMap<>();
+    CommandTrie commandTrie = new CommandTrie();
 
     Map<String, CommandKeyboardButtonExecutor> name2KeyboardExecutorMap = new HashMap<>();
 
     @Override
     public @Nullable Command getCommand(@NotNull String commandName) {
-        return name2CommandMap.get(commandName.toLowerCase());
+        return commandTrie.get(commandName, 0, commandName.length());
+    }
+
+    @Override
+    public @Nullable Command getCommand(@NotNull CharSequence text, int from, int to) {
+        return commandTrie.get(text, from, to);
     }
 
     @Override
@@ -62,9 +70,9 @@ public final class SimpleCommandManager implements CommandManager {
     public boolean register(@NotNull Command command) {
         if (!commands.add(command)) return false;
 
-        name2CommandMap.put(command.name().toLowerCase(), command);
+        commandTrie.put(command.name(), command);
         for (val alias : command.aliases()) {
-            name2CommandMap.put(alias.toLowerCase(), command);
+            commandTrie.put(alias, command);
         }
 
         return true;
@@ -74,9 +82,9 @@ public final class SimpleCommandManager implements CommandManager {
     public boolean unregister(@NotNull Command command) {
         if (!commands.remove(command)) return false;
 
-        name2CommandMap.remove(command.name().toLowerCase(), command);
+        commandTrie.remove(command.name(), command);
         for (val alias : command.aliases()) {
-            name2CommandMap.remove(alias.toLowerCase(), command);
+            commandTrie.remove(alias, command);
         }
 
         return true;
@@ -84,7 +92,7 @@ public final class SimpleCommandManager implements CommandManager {
 
     @Override
     public boolean unregister(String commandName) {
-        val command = name2CommandMap.get(commandName.toLowerCase());
+        val command = getCommand(commandName);
 
         return command != null && unregister(command);
     }
@@ -99,7 +107,7 @@ public final class SimpleCommandManager implements CommandManager {
             @NotNull String name,
             @NotNull CommandKeyboardButtonExecutor executor
     ) {
-        if (name2KeyboardExecutorMap.putIfAbsent(name, executor) != null) {
+        if (name2KeyboardExecutorMap.putIfAbsent(name.toLowerCase(), executor) != null) {
             throw new IllegalArgumentException("Keyboard button " + name + " already registered");
         }
 
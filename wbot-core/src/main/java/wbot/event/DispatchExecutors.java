@@ -0,0 +1,143 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.event;
+
+import lombok.experimental.UtilityClass;
+import lombok.val;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author whilein
+ */
+@UtilityClass
+class DispatchExecutors {
+
+    public ThreadPoolExecutor newExecutor(
+            int threads,
+            int queueCapacity,
+            ThreadFactory threadFactory,
+            RejectedExecutionHandler rejectedExecutionHandler
+    ) {
+        return new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, rejectedExecutionHandler);
+    }
+
+    public ThreadFactory newThreadFactory(Logger logger, String prefix, boolean virtualThreads) {
+        if (virtualThreads) {
+            val virtualThreadFactory = newVirtualThreadFactory(prefix);
+            if (virtualThreadFactory != null) {
+                return virtualThreadFactory;
+            }
+
+            logger.warn("Virtual threads are not available, falling back to platform threads");
+        }
+
+        val counter = new AtomicInteger();
+        return task -> new Thread(task, prefix + counter.incrementAndGet());
+    }
+
+    public @Nullable ThreadFactory newVirtualThreadFactory(String prefix) {
+        try {
+            val builderType = Class.forName("java.lang.Thread$Builder");
+
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Waits until executor completes already accepted events, the rest of events is discarded after timeout.
+     */
+    public void awaitTermination(Logger logger, ExecutorService executor, Duration timeout) {
+        try {
+            if (!executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                logger.warn("Event dispatcher has not completed events in {}, interrupting", timeout);
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    public RejectedExecutionHandler newRejectedExecutionHandler(
+            Logger logger,
+            OverflowPolicy overflowPolicy,
+            LongAdder droppedEvents,
+            LongAdder rejectedEvents
+    ) {
+        switch (overflowPolicy) {
+            case BLOCK:
+                return (task, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("Event dispatcher is stopped");
+                    }
+
+                    try {
+                        executor.getQueue().put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted while waiting for free space in queue", e);
+                    }
+                };
+            case DROP_OLDEST:
+                return (task, executor) -> {
+                    val queue = executor.getQueue();
+
+                    // offer directly to queue, re-entering execute could reject again and recurse
+                    while (!queue.offer(task)) {
+                        if (executor.isShutdown()) {
+                            throw new RejectedExecutionException("Event dispatcher is stopped");
+                        }
+
+                        if (queue.poll() != null) {
+                            droppedEvents.increment();
+                            logger.debug("Event queue is full, dropped the oldest event");
+                        }
+                    }
+                };
+            case REJECT:
+                return (task, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("Event dispatcher is stopped");
+                    }
+
+                    rejectedEvents.increment();
+                    logger.debug("Event queue is full, rejected the event");
+                };
+            default:
+                throw new IllegalArgumentException("Unsupported overflow policy " + overflowPolicy);
+        }
+    }
+
+}
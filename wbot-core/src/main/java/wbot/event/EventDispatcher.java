@@ -29,4 +29,10 @@ public interface EventDispatcher {
 
     void keyboardCallback(Platform platform, InKeyboardCallback inKeyboardCallback);
 
+    default void start() {
+    }
+
+    default void stop() {
+    }
+
 }
@@ -0,0 +1,39 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.event;
+
+import org.slf4j.Logger;
+import wbot.metrics.MetricsRecorder;
+
+import java.util.Set;
+
+/**
+ * @author whilein
+ */
+@FunctionalInterface
+public interface EventDispatcherFactory {
+
+    EventDispatcher create(Logger logger, Set<EventHandler> eventHandlers);
+
+    /**
+     * Same as {@link #create(Logger, Set)}, but event handlers are measured by {@code metricsRecorder}.
+     */
+    default EventDispatcher create(Logger logger, Set<EventHandler> eventHandlers, MetricsRecorder metricsRecorder) {
+        return create(logger, eventHandlers);
+    }
+
+}
@@ -0,0 +1,233 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.event;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.val;
+import org.slf4j.Logger;
+import wbot.metrics.MetricsRecorder;
+import wbot.model.InKeyboardCallback;
+import wbot.model.InMessage;
+import wbot.platform.Platform;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Event dispatcher, that hands events over to a pool of worker threads through a bounded queue,
+ * so slow event handlers do not stall the platform thread.
+ *
+ * @author whilein
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public final class ExecutorEventDispatcher implements EventDispatcher {
+
+    Logger logger;
+
+    EventDispatcher delegate;
+
+    int threads;
+    int queueCapacity;
+    boolean virtualThreads;
+    OverflowPolicy overflowPolicy;
+    Duration shutdownTimeout;
+
+    LongAdder droppedEvents = new LongAdder();
+    LongAdder rejectedEvents = new LongAdder();
+
+    @NonFinal
+    volatile ExecutorService executor;
+
+    private ExecutorEventDispatcher(
+            Logger logger,
+            EventDispatcher delegate,
+            int threads,
+            int queueCapacity,
+            boolean virtualThreads,
+            OverflowPolicy overflowPolicy,
+            Duration shutdownTimeout
+    ) {
+        this.logger = logger;
+        this.delegate = delegate;
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.virtualThreads = virtualThreads;
+        this.overflowPolicy = overflowPolicy;
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    /**
+     * Returns count of events, that were dropped by {@link OverflowPolicy#DROP_OLDEST}.
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Returns count of events, that were rejected by {@link OverflowPolicy#REJECT} or received
+     * while dispatcher is stopped.
+     */
+    public long getRejectedEvents() {
+        return rejectedEvents.sum();
+    }
+
+    /**
+     * Returns count of events waiting in queue, or count of events in flight if
+     * every event runs in its own virtual thread.
+     */
+    public int getQueuedEvents() {
+        ExecutorService executor;
+        if ((executor = this.executor) instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executor).getQueue().size();
+        } else if (executor instanceof ThreadPerTaskExecutor) {
+            return ((ThreadPerTaskExecutor) executor).getActiveTasks();
+        }
+
+        return 0;
+    }
+
+    @Override
+    public void start() {
+        if (this.executor != null) return;
+
+        if (virtualThreads) {
+            val virtualThreadFactory = DispatchExecutors.newVirtualThreadFactory("wbot-event-");
+
+            if (virtualThreadFactory != null) {
+                // virtual threads are cheap, so block only in handlers, not in queue
+                this.executor = new ThreadPerTaskExecutor(logger, virtualThreadFactory, queueCapacity,
+                        overflowPolicy, rejectedEvents);
+                return;
+            }
+
+            logger.warn("Virtual threads are not available, falling back to platform threads");
+        }
+
+        this.executor = DispatchExecutors.newExecutor(
+                threads,
+                queueCapacity,
+                DispatchExecutors.newThreadFactory(logger, "wbot-event-", false),
+                DispatchExecutors.newRejectedExecutionHandler(logger, overflowPolicy,
+                        droppedEvents, rejectedEvents)
+        );
+    }
+
+    @Override
+    public void stop() {
+        ExecutorService executor;
+        if ((executor = this.executor) == null) return;
+
+        this.executor = null;
+
+        executor.shutdown();
+        DispatchExecutors.awaitTermination(logger, executor, shutdownTimeout);
+    }
+
+    private void dispatch(Runnable task) {
+        ExecutorService executor;
+        if ((executor = this.executor) == null) {
+            rejectedEvents.increment();
+            logger.warn("Event dispatcher is not started, event is rejected");
+            return;
+        }
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejectedEvents.increment();
+            logger.warn("Event is rejected: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void message(Platform platform, InMessage inMessage) {
+        dispatch(() -> delegate.message(platform, inMessage));
+    }
+
+    @Override
+    public void keyboardCallback(Platform platform, InKeyboardCallback inKeyboardCallback) {
+        dispatch(() -> delegate.keyboardCallback(platform, inKeyboardCallback));
+    }
+
+    @Accessors(fluent = true)
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static final class Builder implements EventDispatcherFactory {
+
+        /**
+         * Count of worker threads, not used if {@link #virtualThreads} are available.
+         */
+        @Setter
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Maximum count of events waiting for a free worker, or maximum count of events in flight
+         * if {@link #virtualThreads} are used.
+         */
+        @Setter
+        int queueCapacity = 1024;
+
+        /**
+         * Run every event in its own virtual thread if they are available (Java 21+), so handlers
+         * blocked on I/O do not hold other events.
+         */
+        @Setter
+        boolean virtualThreads;
+
+        @Setter
+        OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+        /**
+         * How long {@link EventDispatcher#stop()} waits for accepted events to complete.
+         */
+        @Setter
+        Duration shutdownTimeout = Duration.ofSeconds(10);
+
+        @Override
+        public EventDispatcher create(Logger logger, Set<EventHandler> eventHandlers) {
+            return create(logger, eventHandlers, MetricsRecorder.noop());
+        }
+
+        @Override
+        public EventDispatcher create(
+                Logger logger,
+                Set<EventHandler> eventHandlers,
+                MetricsRecorder metricsRecorder
+        ) {
+            if (threads <= 0) {
+                throw new IllegalStateException("Threads count must be positive");
+            }
+
+            if (queueCapacity <= 0) {
+                throw new IllegalStateException("Queue capacity must be positive");
+            }
+
+            return new ExecutorEventDispatcher(logger,
+                    new SimpleEventDispatcher(logger, eventHandlers, metricsRecorder),
+                    threads, queueCapacity, virtualThreads, overflowPolicy, shutdownTimeout);
+        }
+
+    }
+
+}
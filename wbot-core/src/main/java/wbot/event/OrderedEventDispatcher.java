@@ -0,0 +1,239 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.event;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.val;
+import org.slf4j.Logger;
+import wbot.metrics.MetricsRecorder;
+import wbot.model.IdentityHolder;
+import wbot.model.InKeyboardCallback;
+import wbot.model.InMessage;
+import wbot.platform.Platform;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Event dispatcher, that processes events of the same chat in order, while events of
+ * different chats are processed in parallel.
+ * <p>
+ * Every chat is assigned to one of serial lanes by hash of its identity, each lane is a single
+ * worker thread with its own bounded queue.
+ *
+ * @author whilein
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public final class OrderedEventDispatcher implements EventDispatcher {
+
+    Logger logger;
+
+    EventDispatcher delegate;
+
+    int lanes;
+    int queueCapacity;
+    boolean virtualThreads;
+    OverflowPolicy overflowPolicy;
+    Duration shutdownTimeout;
+
+    LongAdder droppedEvents = new LongAdder();
+    LongAdder rejectedEvents = new LongAdder();
+
+    @NonFinal
+    volatile ThreadPoolExecutor[] executors;
+
+    private OrderedEventDispatcher(
+            Logger logger,
+            EventDispatcher delegate,
+            int lanes,
+            int queueCapacity,
+            boolean virtualThreads,
+            OverflowPolicy overflowPolicy,
+            Duration shutdownTimeout
+    ) {
+        this.logger = logger;
+        this.delegate = delegate;
+        this.lanes = lanes;
+        this.queueCapacity = queueCapacity;
+        this.virtualThreads = virtualThreads;
+        this.overflowPolicy = overflowPolicy;
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    /**
+     * Returns count of events, that were dropped by {@link OverflowPolicy#DROP_OLDEST}.
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Returns count of events, that were rejected by {@link OverflowPolicy#REJECT} or received
+     * while dispatcher is stopped.
+     */
+    public long getRejectedEvents() {
+        return rejectedEvents.sum();
+    }
+
+    /**
+     * Returns count of events waiting in queues of all lanes.
+     */
+    public int getQueuedEvents() {
+        ThreadPoolExecutor[] executors;
+        if ((executors = this.executors) == null) return 0;
+
+        int queued = 0;
+        for (val executor : executors) {
+            queued += executor.getQueue().size();
+        }
+
+        return queued;
+    }
+
+    @Override
+    public void start() {
+        if (this.executors != null) return;
+
+        val threadFactory = DispatchExecutors.newThreadFactory(logger, "wbot-event-lane-", virtualThreads);
+        val rejectedExecutionHandler = DispatchExecutors.newRejectedExecutionHandler(logger, overflowPolicy,
+                droppedEvents, rejectedEvents);
+
+        val executors = new ThreadPoolExecutor[lanes];
+        for (int i = 0; i < lanes; i++) {
+            // the only worker of lane takes events from FIFO queue one by one, so they are handled in order
+            executors[i] = DispatchExecutors.newExecutor(1, queueCapacity,
+                    threadFactory, rejectedExecutionHandler);
+        }
+
+        this.executors = executors;
+    }
+
+    @Override
+    public void stop() {
+        ThreadPoolExecutor[] executors;
+        if ((executors = this.executors) == null) return;
+
+        this.executors = null;
+
+        for (val executor : executors) {
+            executor.shutdown();
+        }
+
+        val deadline = System.nanoTime() + shutdownTimeout.toNanos();
+
+        for (val executor : executors) {
+            DispatchExecutors.awaitTermination(logger, executor,
+                    Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+        }
+    }
+
+    private static int hash(Platform platform, IdentityHolder chat) {
+        int hash = Long.hashCode(chat.getValue()) * 31 + platform.getType().ordinal();
+        return hash ^ (hash >>> 16);
+    }
+
+    private void dispatch(Platform platform, IdentityHolder chat, Runnable task) {
+        ThreadPoolExecutor[] executors;
+        if ((executors = this.executors) == null) {
+            rejectedEvents.increment();
+            logger.warn("Event dispatcher is not started, event is rejected");
+            return;
+        }
+
+        try {
+            executors[(hash(platform, chat) & 0x7FFFFFFF) % executors.length].execute(task);
+        } catch (RejectedExecutionException e) {
+            rejectedEvents.increment();
+            logger.warn("Event is rejected: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void message(Platform platform, InMessage inMessage) {
+        dispatch(platform, inMessage.getChat(), () -> delegate.message(platform, inMessage));
+    }
+
+    @Override
+    public void keyboardCallback(Platform platform, InKeyboardCallback inKeyboardCallback) {
+        dispatch(platform, inKeyboardCallback.getChat(), () -> delegate.keyboardCallback(platform, inKeyboardCallback));
+    }
+
+    @Accessors(fluent = true)
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static final class Builder implements EventDispatcherFactory {
+
+        /**
+         * Count of serial lanes, i.e. maximum count of chats processed in parallel.
+         */
+        @Setter
+        int lanes = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Maximum count of events waiting in queue of each lane.
+         */
+        @Setter
+        int queueCapacity = 256;
+
+        /**
+         * Use virtual threads as lane workers if they are available (Java 21+).
+         */
+        @Setter
+        boolean virtualThreads;
+
+        @Setter
+        OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+        /**
+         * How long {@link EventDispatcher#stop()} waits for accepted events to complete.
+         */
+        @Setter
+        Duration shutdownTimeout = Duration.ofSeconds(10);
+
+        @Override
+        public EventDispatcher create(Logger logger, Set<EventHandler> eventHandlers) {
+            return create(logger, eventHandlers, MetricsRecorder.noop());
+        }
+
+        @Override
+        public EventDispatcher create(
+                Logger logger,
+                Set<EventHandler> eventHandlers,
+                MetricsRecorder metricsRecorder
+        ) {
+            if (lanes <= 0) {
+                throw new IllegalStateException("Lanes count must be positive");
+            }
+
+            if (queueCapacity <= 0) {
+                throw new IllegalStateException("Queue capacity must be positive");
+            }
+
+            return new OrderedEventDispatcher(logger,
+                    new SimpleEventDispatcher(logger, eventHandlers, metricsRecorder),
+                    lanes, queueCapacity, virtualThreads, overflowPolicy, shutdownTimeout);
+        }
+
+    }
+
+}
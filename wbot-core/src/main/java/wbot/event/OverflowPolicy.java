@@ -0,0 +1,41 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.event;
+
+/**
+ * Behaviour of a bounded event queue when it has no free space left.
+ *
+ * @author whilein
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Block the receiving thread until the queue has free space.
+     */
+    BLOCK,
+
+    /**
+     * Drop the oldest queued event to make room for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Reject the new event, the event is counted as rejected.
+     */
+    REJECT
+
+}
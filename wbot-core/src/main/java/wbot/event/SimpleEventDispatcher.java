@@ -20,7 +20,10 @@ import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.val;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
+import wbot.jfr.UpdateDispatchedEvent;
+import wbot.metrics.MetricsRecorder;
 import wbot.model.InKeyboardCallback;
 import wbot.model.InMessage;
 import wbot.platform.Platform;
@@ -38,24 +41,73 @@ public final class SimpleEventDispatcher implements EventDispatcher {
 
     Set<EventHandler> eventHandlers;
 
+    MetricsRecorder metricsRecorder;
+
+    public SimpleEventDispatcher(Logger logger, Set<EventHandler> eventHandlers) {
+        this(logger, eventHandlers, MetricsRecorder.noop());
+    }
+
     @Override
     public void message(Platform platform, InMessage inMessage) {
-        for (val eventHandler : eventHandlers)
+        for (val eventHandler : eventHandlers) {
+            val event = new UpdateDispatchedEvent();
+            event.begin();
+
+            val start = System.nanoTime();
+
+            Exception error = null;
+
             try {
                 eventHandler.onMessage(platform, inMessage);
             } catch (Exception e) {
                 logger.error("Failed to handle message by " + eventHandlers, e);
+                error = e;
             }
+
+            completed(platform, "message", eventHandler, event, start, error);
+        }
     }
 
     @Override
     public void keyboardCallback(Platform platform, InKeyboardCallback inKeyboardCallback) {
-        for (val eventHandler : eventHandlers)
+        for (val eventHandler : eventHandlers) {
+            val event = new UpdateDispatchedEvent();
+            event.begin();
+
+            val start = System.nanoTime();
+
+            Exception error = null;
+
             try {
                 eventHandler.onKeyboardCallback(platform, inKeyboardCallback);
             } catch (Exception e) {
                 logger.error("Failed to handle keyboard callback by " + eventHandlers, e);
+                error = e;
             }
+
+            completed(platform, "keyboardCallback", eventHandler, event, start, error);
+        }
+    }
+
+    private void completed(
+            Platform platform,
+            String eventType,
+            EventHandler eventHandler,
+            UpdateDispatchedEvent event,
+            long start,
+            @Nullable Exception error
+    ) {
+        metricsRecorder.handlerCompleted(eventHandler, System.nanoTime() - start, error);
+
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.setPlatform(platform.getType().getDisplayName());
+            event.setEventType(eventType);
+            event.setHandler(eventHandler.getClass());
+            event.setError(error != null ? error.toString() : null);
+            event.commit();
+        }
     }
 
 }
@@ -0,0 +1,148 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.event;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import org.slf4j.Logger;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Starts a new (virtual) thread for each task, count of tasks in flight is limited by {@code maxTasks}.
+ * There is no queue, so {@link OverflowPolicy#DROP_OLDEST} has nothing to drop and rejects the new task
+ * like {@link OverflowPolicy#REJECT}.
+ *
+ * @author whilein
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@RequiredArgsConstructor
+final class ThreadPerTaskExecutor extends AbstractExecutorService {
+
+    Logger logger;
+
+    ThreadFactory threadFactory;
+
+    int maxTasks;
+
+    Semaphore permits;
+
+    OverflowPolicy overflowPolicy;
+
+    LongAdder rejectedEvents;
+
+    @NonFinal
+    volatile boolean shutdown;
+
+    ThreadPerTaskExecutor(
+            Logger logger,
+            ThreadFactory threadFactory,
+            int maxTasks,
+            OverflowPolicy overflowPolicy,
+            LongAdder rejectedEvents
+    ) {
+        this(logger, threadFactory, maxTasks, new Semaphore(maxTasks), overflowPolicy, rejectedEvents);
+    }
+
+    /**
+     * Returns count of tasks, that are started and not completed yet.
+     */
+    public int getActiveTasks() {
+        return maxTasks - permits.availablePermits();
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Event dispatcher is stopped");
+        }
+
+        if (!acquire()) {
+            rejectedEvents.increment();
+            logger.debug("Too many events in flight, rejected the event");
+            return;
+        }
+
+        try {
+            threadFactory.newThread(() -> {
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            }).start();
+        } catch (Throwable e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private boolean acquire() {
+        if (overflowPolicy != OverflowPolicy.BLOCK) {
+            return permits.tryAcquire();
+        }
+
+        try {
+            permits.acquire();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for free slot", e);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && permits.availablePermits() == maxTasks;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!permits.tryAcquire(maxTasks, timeout, unit)) {
+            return false;
+        }
+
+        permits.release(maxTasks);
+        return true;
+    }
+
+}
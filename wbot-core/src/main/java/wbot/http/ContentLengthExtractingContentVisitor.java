@@ -0,0 +1,65 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.http;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Extracts exact length of content, when it is known before sending.
+ * <p>
+ * Size of {@link InputStreamContent} is never trusted, because stream could be already partially read,
+ * e.g. when sniffing content type.
+ *
+ * @author whilein
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ContentLengthExtractingContentVisitor implements ContentVisitor<Long> {
+
+    public static final long UNKNOWN_LENGTH = -1L;
+
+    private static final ContentVisitor<Long> INSTANCE = new ContentLengthExtractingContentVisitor();
+
+    public static ContentVisitor<Long> getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public Long visitInputStream(String contentType, long size, InputStream is) {
+        return UNKNOWN_LENGTH;
+    }
+
+    @Override
+    public Long visitMultipart(String contentType, String boundary, List<MultipartContent.Part> parts) {
+        return MultipartEncoding.contentLength(boundary, parts);
+    }
+
+    @Override
+    public Long visitFile(String contentType, long size, Path path) {
+        return size >= 0L ? size : UNKNOWN_LENGTH;
+    }
+
+    @Override
+    public Long visitBytes(String contentType, byte[] bytes, int off, int len) {
+        return (long) len;
+    }
+
+}
@@ -21,15 +21,19 @@ import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.experimental.NonFinal;
 import lombok.val;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
@@ -43,18 +47,8 @@ import java.util.concurrent.Executors;
 @RequiredArgsConstructor
 public final class DefaultHttpClient implements HttpClient {
 
-    private static final ContentVisitor<String> CONTENT_TYPE = ContentTypeExtractingContentVisitor.getInstance();
-    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
-    private static final byte[] BOUNDARY_DELIMITER = "--".getBytes(StandardCharsets.US_ASCII);
-    private static final byte[] PART_CONTENT_DISPOSITION_START = "Content-Disposition: form-data; name=\""
-            .getBytes(StandardCharsets.US_ASCII);
-
-    private static final byte[] PART_CONTENT_DISPOSITION_FILENAME = "\"; filename=\""
-            .getBytes(StandardCharsets.US_ASCII);
-
-    private static final byte[] PART_CONTENT_DISPOSITION_END = "\"\r\n".getBytes(StandardCharsets.US_ASCII);
-
-    private static final byte[] PART_CONTENT_TYPE = "Content-Type: ".getBytes(StandardCharsets.US_ASCII);
+    private static final int BUFFER_SIZE = 8192;
+    private static final int FILE_BUFFER_SIZE = 65536;
 
     int nThreads;
 
@@ -75,122 +69,159 @@ public final class DefaultHttpClient implements HttpClient {
     }
 
     @Override
-    public CompletableFuture<HttpResponse> post(String url, Content content) {
+    public CompletableFuture<HttpResponse> post(String url, Content content, @Nullable Duration timeout) {
+        return post(url, content, timeout, false);
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> postBuffered(String url, Content content, @Nullable Duration timeout) {
+        return post(url, content, timeout, true);
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> get(String url, @Nullable Duration timeout) {
+        return get(url, timeout, false);
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> getBuffered(String url, @Nullable Duration timeout) {
+        return get(url, timeout, true);
+    }
+
+    private static HttpURLConnection openConnection(String url, @Nullable Duration timeout) throws IOException {
+        val urlConnection = (HttpURLConnection) new URL(url).openConnection();
+
+        if (timeout != null) {
+            // read timeout makes blocked read fail and the connection is closed then, so the request is aborted
+            val millis = (int) Math.min(Integer.MAX_VALUE, Math.max(1L, timeout.toMillis()));
+
+            urlConnection.setConnectTimeout(millis);
+            urlConnection.setReadTimeout(millis);
+        }
+
+        return urlConnection;
+    }
+
+    private CompletableFuture<HttpResponse> post(
+            String url,
+            Content content,
+            @Nullable Duration timeout,
+            boolean buffered
+    ) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                val urlConnection = (HttpURLConnection) new URL(url).openConnection();
+                val start = System.nanoTime();
+
+                val urlConnection = openConnection(url, timeout);
                 urlConnection.setRequestMethod("POST");
                 urlConnection.setDoInput(true);
                 urlConnection.setDoOutput(true);
 
-                content.accept(new RequestBootstrappingContentVisitor(urlConnection));
-
-                urlConnection.getResponseCode();
+                val bootstrapper = new RequestBootstrappingContentVisitor(urlConnection);
+                content.accept(bootstrapper);
 
-                return getResponse(urlConnection);
+                return getResponse(urlConnection, buffered, start, bootstrapper.connectedAt);
             } catch (Exception e) {
                 throw new CompletionException(e);
             }
         }, executor);
     }
 
-    @Override
-    public CompletableFuture<HttpResponse> get(String url) {
+    private CompletableFuture<HttpResponse> get(String url, @Nullable Duration timeout, boolean buffered) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                val urlConnection = (HttpURLConnection) new URL(url).openConnection();
+                val start = System.nanoTime();
+
+                val urlConnection = openConnection(url, timeout);
                 urlConnection.setRequestMethod("GET");
                 urlConnection.setDoInput(true);
                 urlConnection.setDoOutput(false);
+                urlConnection.connect();
 
-                return getResponse(urlConnection);
+                return getResponse(urlConnection, buffered, start, System.nanoTime());
             } catch (Exception e) {
                 throw new CompletionException(e);
             }
         }, executor);
     }
 
-    private HttpResponse getResponse(HttpURLConnection connection) throws IOException {
-        connection.getResponseCode();
+    private static long elapsed(long start, long end) {
+        return end == 0L ? HttpTiming.UNAVAILABLE : end - start;
+    }
+
+    private HttpResponse getResponse(
+            HttpURLConnection connection,
+            boolean buffered,
+            long start,
+            long connectedAt
+    ) throws IOException {
+        val status = connection.getResponseCode();
+        val firstByteAt = System.nanoTime();
+        val headers = connection.getHeaderFields();
 
         InputStream stream = connection.getErrorStream();
         if (stream == null) {
             stream = connection.getInputStream();
         }
 
-        return new HttpResponse(stream);
+        if (buffered) {
+            try (stream) {
+                // read body in http thread, so caller can parse it without blocking
+                val bytes = stream.readAllBytes();
+                val timing = new HttpTiming(elapsed(start, connectedAt), firstByteAt - start,
+                        System.nanoTime() - start);
+
+                return HttpResponse.buffered(status, headers, timing, bytes);
+            }
+        }
+
+        val timing = new HttpTiming(elapsed(start, connectedAt), firstByteAt - start, HttpTiming.UNAVAILABLE);
+
+        return new HttpResponse(status, headers, timing, stream);
     }
 
+    @VisibleForTesting
     @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
     @RequiredArgsConstructor
-    private static final class RequestSenderContentVisitor extends ExceptionSneakyPropagatingContentVisitor<Void> {
+    static final class RequestSenderContentVisitor extends ExceptionSneakyPropagatingContentVisitor<Void> {
 
         OutputStream output;
 
         @NonFinal
         byte[] buf;
 
-        private byte[] touchBuffer() {
+        private byte[] touchBuffer(int size) {
             byte[] buf;
-            if ((buf = this.buf) == null) {
-                this.buf = buf = new byte[8192];
+            if ((buf = this.buf) == null || buf.length < size) {
+                this.buf = buf = new byte[size];
             }
             return buf;
         }
 
-        private static String getContentType(MultipartContent.Part part) {
-            return part.content().accept(CONTENT_TYPE);
-        }
-
         @Override
         public Void visitMultipart0(String contentType, String boundary, List<MultipartContent.Part> parts) throws IOException {
-            val boundaryBytes = boundary.getBytes(StandardCharsets.US_ASCII);
+            val headers = MultipartEncoding.partHeaders(boundary, parts);
 
+            return writeMultipart(boundary, parts, headers);
+        }
+
+        public Void writeMultipart(String boundary, List<MultipartContent.Part> parts, byte[][] headers)
+                throws IOException {
             val os = output;
-            os.write(BOUNDARY_DELIMITER);
-            os.write(boundaryBytes);
-
-            if (!parts.isEmpty()) {
-                val iterator = parts.iterator();
-
-                do {
-                    os.write(CRLF);
-
-                    val part = iterator.next();
-                    os.write(PART_CONTENT_DISPOSITION_START);
-                    os.write(part.name().getBytes(StandardCharsets.UTF_8));
-
-                    String filename;
-                    if ((filename = part.fileName()) != null) {
-                        os.write(PART_CONTENT_DISPOSITION_FILENAME);
-                        os.write(filename.getBytes(StandardCharsets.UTF_8));
-                    }
-                    os.write(PART_CONTENT_DISPOSITION_END);
-
-                    String partContentType;
-                    if ((partContentType = getContentType(part)) != null) {
-                        os.write(PART_CONTENT_TYPE);
-                        os.write(partContentType.getBytes(StandardCharsets.UTF_8));
-                        os.write(CRLF);
-                    }
-                    os.write(CRLF);
-
-                    part.content().accept(this);
-
-                    os.write(CRLF);
-                    os.write(BOUNDARY_DELIMITER);
-                    os.write(boundaryBytes);
-                } while (iterator.hasNext());
+
+            for (int i = 0; i < headers.length; i++) {
+                os.write(headers[i]);
+                parts.get(i).content().accept(this);
+                os.write(MultipartEncoding.partTrailer());
             }
-            os.write(BOUNDARY_DELIMITER);
-            os.write(CRLF);
+            os.write(MultipartEncoding.closeDelimiter(boundary));
 
             return null;
         }
 
         @Override
         public Void visitInputStream0(String contentType, long size, InputStream is) throws IOException {
-            val buf = touchBuffer();
+            val buf = touchBuffer(BUFFER_SIZE);
             int n;
             while ((n = is.read(buf)) != -1) {
                 output.write(buf, 0, n);
@@ -200,9 +231,19 @@ public final class DefaultHttpClient implements HttpClient {
 
         @Override
         public Void visitFile0(String contentType, long size, Path path) throws IOException {
-            try (val is = Files.newInputStream(path)) {
-                return visitInputStream0(contentType, size, is);
+            // HttpURLConnection does not expose socket channel, so FileChannel#transferTo can't reach it.
+            // Large reads straight into the array are passed through to the socket without extra buffering.
+            val buf = touchBuffer((int) Math.max(BUFFER_SIZE, Math.min(size, FILE_BUFFER_SIZE)));
+            val bb = ByteBuffer.wrap(buf);
+
+            try (val channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                int n;
+                while ((n = channel.read(bb.clear())) != -1) {
+                    output.write(buf, 0, n);
+                }
             }
+
+            return null;
         }
 
         @Override
@@ -220,6 +261,12 @@ public final class DefaultHttpClient implements HttpClient {
 
         HttpURLConnection connection;
 
+        /**
+         * {@link System#nanoTime()} when connection was established, or zero
+         */
+        @NonFinal
+        long connectedAt;
+
         private OutputStream configure(String contentType, long contentLength) throws IOException {
             connection.setRequestProperty("Content-Type", contentType);
 
@@ -229,7 +276,10 @@ public final class DefaultHttpClient implements HttpClient {
                 connection.setChunkedStreamingMode(0);
             }
 
-            return connection.getOutputStream();
+            val output = connection.getOutputStream();
+            connectedAt = System.nanoTime();
+
+            return output;
         }
 
         @Override
@@ -242,9 +292,14 @@ public final class DefaultHttpClient implements HttpClient {
 
         @Override
         public Void visitMultipart0(String contentType, String boundary, List<MultipartContent.Part> parts) throws IOException {
-            try (val output = configure(contentType, -1L)) {
+            val headers = MultipartEncoding.partHeaders(boundary, parts);
+
+            // exact length allows fixed-length streaming, otherwise body is sent chunked
+            val contentLength = MultipartEncoding.contentLength(boundary, parts, headers);
+
+            try (val output = configure(contentType, contentLength)) {
                 return new RequestSenderContentVisitor(output)
-                        .visitMultipart0(contentType, boundary, parts);
+                        .writeMultipart(boundary, parts, headers);
             }
         }
 
@@ -16,7 +16,12 @@
 
 package wbot.http;
 
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * @author whilein
@@ -27,9 +32,75 @@ public interface HttpClient {
 
     void stop();
 
-    CompletableFuture<HttpResponse> post(String url, Content content);
+    default CompletableFuture<HttpResponse> post(String url, Content content) {
+        return post(url, content, null);
+    }
+
+    default CompletableFuture<HttpResponse> get(String url) {
+        return get(url, null);
+    }
+
+    /**
+     * Same as {@link #post(String, Content)}, but request is aborted, if response is not
+     * received within {@code timeout}.
+     *
+     * @param timeout timeout of the request, or {@code null} to use the client default
+     */
+    CompletableFuture<HttpResponse> post(String url, Content content, @Nullable Duration timeout);
+
+    /**
+     * Same as {@link #get(String)}, but request is aborted, if response is not
+     * received within {@code timeout}.
+     *
+     * @param timeout timeout of the request, or {@code null} to use the client default
+     */
+    CompletableFuture<HttpResponse> get(String url, @Nullable Duration timeout);
+
+    /**
+     * Same as {@link #post(String, Content)}, but response body is read into memory before
+     * future completes, so it can be parsed without blocking.
+     */
+    default CompletableFuture<HttpResponse> postBuffered(String url, Content content) {
+        return postBuffered(url, content, null);
+    }
+
+    /**
+     * Same as {@link #get(String)}, but response body is read into memory before
+     * future completes, so it can be parsed without blocking.
+     */
+    default CompletableFuture<HttpResponse> getBuffered(String url) {
+        return getBuffered(url, null);
+    }
+
+    /**
+     * Same as {@link #postBuffered(String, Content)}, but with timeout of the request.
+     *
+     * @see #post(String, Content, Duration)
+     */
+    default CompletableFuture<HttpResponse> postBuffered(String url, Content content, @Nullable Duration timeout) {
+        return post(url, content, timeout).thenApply(HttpClient::buffer);
+    }
+
+    /**
+     * Same as {@link #getBuffered(String)}, but with timeout of the request.
+     *
+     * @see #get(String, Duration)
+     */
+    default CompletableFuture<HttpResponse> getBuffered(String url, @Nullable Duration timeout) {
+        return get(url, timeout).thenApply(HttpClient::buffer);
+    }
 
-    CompletableFuture<HttpResponse> get(String url);
+    private static HttpResponse buffer(HttpResponse response) {
+        if (response.isBuffered()) {
+            return response;
+        }
 
+        try {
+            return HttpResponse.buffered(response.getStatus(), response.getHeaders(), response.getTiming(),
+                    response.getBytes());
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
 
 }
@@ -18,19 +18,145 @@ package wbot.http;
 
 import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
-@Getter
+/**
+ * Response of {@link HttpClient}, its body is either streamed from connection or
+ * already read into memory (see {@link #isBuffered()}).
+ *
+ * @author whilein
+ */
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
-@RequiredArgsConstructor
 public final class HttpResponse implements AutoCloseable {
 
+    public static final int UNKNOWN_STATUS = -1;
+
+    @Getter
+    int status;
+
+    /**
+     * Response headers, names are case-insensitive.
+     */
+    @Getter
+    Map<String, List<String>> headers;
+
+    @Getter
+    HttpTiming timing;
+
+    @Getter
     InputStream content;
 
+    @Nullable byte[] bytes;
+
+    public HttpResponse(InputStream content) {
+        this(UNKNOWN_STATUS, Collections.emptyMap(), HttpTiming.UNKNOWN, content, null);
+    }
+
+    public HttpResponse(
+            int status,
+            Map<String, List<String>> headers,
+            HttpTiming timing,
+            InputStream content
+    ) {
+        this(status, headers, timing, content, null);
+    }
+
+    private HttpResponse(
+            int status,
+            Map<String, List<String>> headers,
+            HttpTiming timing,
+            InputStream content,
+            @Nullable byte[] bytes
+    ) {
+        this.status = status;
+        this.headers = caseInsensitive(headers);
+        this.timing = timing;
+        this.content = content;
+        this.bytes = bytes;
+    }
+
+    public static HttpResponse buffered(byte[] bytes) {
+        return buffered(UNKNOWN_STATUS, Collections.emptyMap(), HttpTiming.UNKNOWN, bytes);
+    }
+
+    public static HttpResponse buffered(
+            int status,
+            Map<String, List<String>> headers,
+            HttpTiming timing,
+            byte[] bytes
+    ) {
+        return new HttpResponse(status, headers, timing, new ByteArrayInputStream(bytes), bytes);
+    }
+
+    private static Map<String, List<String>> caseInsensitive(Map<String, List<String>> headers) {
+        if (headers.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        val result = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+
+        for (val header : headers.entrySet()) {
+            // HttpURLConnection returns status line with null name
+            if (header.getKey() == null) continue;
+
+            result.put(header.getKey(), header.getValue());
+        }
+
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Returns first value of header.
+     *
+     * @param name case-insensitive header name
+     * @return header value or {@code null} if there is no such header
+     */
+    public @Nullable String getHeader(String name) {
+        val values = headers.get(name);
+
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    public boolean isSuccessful() {
+        return status >= 200 && status < 300;
+    }
+
+    public boolean isBuffered() {
+        return bytes != null;
+    }
+
+    /**
+     * Returns whole response body. Does not block if response is {@link #isBuffered() buffered},
+     * otherwise reads the rest of stream and closes it.
+     *
+     * @return response body
+     */
+    public byte[] getBytes() throws IOException {
+        byte[] bytes;
+        if ((bytes = this.bytes) != null) {
+            return bytes;
+        }
+
+        try (content) {
+            return content.readAllBytes();
+        }
+    }
+
+    public ByteBuffer getByteBuffer() throws IOException {
+        return ByteBuffer.wrap(getBytes()).asReadOnlyBuffer();
+    }
+
     @Override
     public void close() throws IOException {
         content.close();
@@ -0,0 +1,48 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.http;
+
+import lombok.Value;
+
+/**
+ * Timings of one HTTP request in nanoseconds, {@link #UNAVAILABLE} if HTTP client can't measure it.
+ *
+ * @author whilein
+ */
+@Value
+public class HttpTiming {
+
+    public static final long UNAVAILABLE = -1L;
+
+    public static final HttpTiming UNKNOWN = new HttpTiming(UNAVAILABLE, UNAVAILABLE, UNAVAILABLE);
+
+    /**
+     * Time spent on resolving host name and establishing connection.
+     */
+    long connectNanos;
+
+    /**
+     * Time from start of request until response headers are received.
+     */
+    long firstByteNanos;
+
+    /**
+     * Time from start of request until whole response body is received.
+     */
+    long totalNanos;
+
+}
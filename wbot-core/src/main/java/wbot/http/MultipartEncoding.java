@@ -0,0 +1,123 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.http;
+
+import lombok.experimental.UtilityClass;
+import lombok.val;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Framing of {@code multipart/form-data} bodies, shared by {@link HttpClient} implementations.
+ * <p>
+ * Body is written as {@code partHeader, content, CRLF} for each part followed by {@code closeDelimiter}.
+ *
+ * @author whilein
+ */
+@UtilityClass
+public class MultipartEncoding {
+
+    private final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+    private final byte[] BOUNDARY_DELIMITER = "--".getBytes(StandardCharsets.US_ASCII);
+    private final byte[] PART_CONTENT_DISPOSITION_START = "Content-Disposition: form-data; name=\""
+            .getBytes(StandardCharsets.US_ASCII);
+    private final byte[] PART_CONTENT_DISPOSITION_FILENAME = "\"; filename=\""
+            .getBytes(StandardCharsets.US_ASCII);
+    private final byte[] PART_CONTENT_DISPOSITION_END = "\"\r\n".getBytes(StandardCharsets.US_ASCII);
+    private final byte[] PART_CONTENT_TYPE = "Content-Type: ".getBytes(StandardCharsets.US_ASCII);
+
+    private final ContentVisitor<String> CONTENT_TYPE = ContentTypeExtractingContentVisitor.getInstance();
+    private final ContentVisitor<Long> CONTENT_LENGTH = ContentLengthExtractingContentVisitor.getInstance();
+
+    /**
+     * Bytes that terminate each part's content.
+     *
+     * @return shared array, must not be modified
+     */
+    public byte[] partTrailer() {
+        return CRLF;
+    }
+
+    public byte[] partHeader(String boundary, MultipartContent.Part part) {
+        val out = new ByteArrayOutputStream(128);
+        out.writeBytes(BOUNDARY_DELIMITER);
+        out.writeBytes(boundary.getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(CRLF);
+        out.writeBytes(PART_CONTENT_DISPOSITION_START);
+        out.writeBytes(part.name().getBytes(StandardCharsets.UTF_8));
+
+        String fileName;
+        if ((fileName = part.fileName()) != null) {
+            out.writeBytes(PART_CONTENT_DISPOSITION_FILENAME);
+            out.writeBytes(fileName.getBytes(StandardCharsets.UTF_8));
+        }
+        out.writeBytes(PART_CONTENT_DISPOSITION_END);
+
+        String contentType;
+        if ((contentType = part.content().accept(CONTENT_TYPE)) != null) {
+            out.writeBytes(PART_CONTENT_TYPE);
+            out.writeBytes(contentType.getBytes(StandardCharsets.UTF_8));
+            out.writeBytes(CRLF);
+        }
+        out.writeBytes(CRLF);
+
+        return out.toByteArray();
+    }
+
+    public byte[][] partHeaders(String boundary, List<MultipartContent.Part> parts) {
+        val headers = new byte[parts.size()][];
+        for (int i = 0; i < headers.length; i++) {
+            headers[i] = partHeader(boundary, parts.get(i));
+        }
+        return headers;
+    }
+
+    public byte[] closeDelimiter(String boundary) {
+        return ("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Calculates exact length of multipart body.
+     *
+     * @param headers part headers, made by {@link #partHeaders(String, List)}
+     * @return body length or {@link ContentLengthExtractingContentVisitor#UNKNOWN_LENGTH},
+     * if length of any part is unknown
+     */
+    public long contentLength(String boundary, List<MultipartContent.Part> parts, byte[][] headers) {
+        long length = 0L;
+
+        for (int i = 0, j = parts.size(); i < j; i++) {
+            long partLength;
+            if ((partLength = parts.get(i).content().accept(CONTENT_LENGTH))
+                    == ContentLengthExtractingContentVisitor.UNKNOWN_LENGTH) {
+                return ContentLengthExtractingContentVisitor.UNKNOWN_LENGTH;
+            }
+
+            length += headers[i].length + partLength + CRLF.length;
+        }
+
+        // "--" + boundary + "--" + CRLF
+        return length + boundary.length() + 4L + CRLF.length;
+    }
+
+    public long contentLength(String boundary, List<MultipartContent.Part> parts) {
+        return contentLength(boundary, parts, partHeaders(boundary, parts));
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.AccessLevel;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.jetbrains.annotations.Nullable;
+import wbot.http.Content;
+import wbot.http.ContentLengthExtractingContentVisitor;
+import wbot.platform.PlatformType;
+import wbot.util.FutureUtils;
+
+/**
+ * One HTTP request of API method, so retried methods produce several events.
+ *
+ * @author whilein
+ */
+@Name("wbot.ApiCall")
+@Label("API Call")
+@Category("wbot")
+@Description("HTTP request of platform API method")
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public final class ApiCallEvent extends Event {
+
+    @Label("Platform")
+    String platform;
+
+    @Label("Method")
+    String method;
+
+    @Label("Bytes Written")
+    @Description("Size of request body or -1, if it is unknown")
+    @DataAmount
+    long bytesOut;
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytesIn;
+
+    @Label("Status")
+    @Description("HTTP status or -1, if no response is received")
+    int status = -1;
+
+    @Label("Error")
+    String error;
+
+    /**
+     * Ends event and commits it, if it is enabled in recording.
+     *
+     * @param platform platform
+     * @param method   name of method
+     * @param request  request body
+     * @param error    cause of failure or {@code null}
+     */
+    public void complete(PlatformType platform, String method, Content request, @Nullable Throwable error) {
+        end();
+
+        if (!shouldCommit()) {
+            return;
+        }
+
+        this.platform = platform.getDisplayName();
+        this.method = method;
+        this.bytesOut = request.accept(ContentLengthExtractingContentVisitor.getInstance());
+        this.error = error != null ? FutureUtils.unwrap(error).toString() : null;
+
+        commit();
+    }
+
+}
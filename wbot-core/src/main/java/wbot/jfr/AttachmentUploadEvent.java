@@ -0,0 +1,74 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import lombok.AccessLevel;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Upload of attachment to platform, from requesting upload server until saving of uploaded file.
+ *
+ * @author whilein
+ */
+@Name("wbot.AttachmentUpload")
+@Label("Attachment Upload")
+@Category("wbot")
+@Description("Upload of photo or document")
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public final class AttachmentUploadEvent extends Event {
+
+    @Label("Platform")
+    String platform;
+
+    @Label("Attachment Type")
+    String attachmentType;
+
+    @Label("Size")
+    @Description("Size of file or -1, if it is unknown")
+    @DataAmount
+    long size = -1;
+
+    @Label("Upload Server Duration")
+    @Timespan
+    long uploadServerDuration;
+
+    @Label("Content Duration")
+    @Description("Time spent on opening content of attachment")
+    @Timespan
+    long contentDuration;
+
+    @Label("Transfer Duration")
+    @Timespan
+    long transferDuration;
+
+    @Label("Save Duration")
+    @Timespan
+    long saveDuration;
+
+    @Label("Error")
+    String error;
+
+}
@@ -0,0 +1,48 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.AccessLevel;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Long poll request, duration of event is the time of request.
+ *
+ * @author whilein
+ */
+@Name("wbot.UpdateReceived")
+@Label("Updates Received")
+@Category("wbot")
+@Description("Long poll request, that received a batch of updates")
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public final class UpdateReceivedEvent extends Event {
+
+    @Label("Platform")
+    String platform;
+
+    @Label("Updates")
+    @Description("Count of updates in batch")
+    int updates;
+
+}
@@ -0,0 +1,232 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.metrics;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+import wbot.event.EventHandler;
+import wbot.http.HttpTiming;
+import wbot.platform.ApiException;
+import wbot.platform.PlatformType;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps counters and {@link LatencyHistogram latency histograms} in memory, they can be read at
+ * any time by {@link #getCounters()} and {@link #getHistograms()}, e.g. to export them to monitoring.
+ * <p>
+ * Metrics are named as follows, where {@code <platform>} is lower-cased {@link PlatformType}:
+ * <ul>
+ *     <li>{@code <platform>.poll} - latency of long poll requests;</li>
+ *     <li>{@code <platform>.poll.updates}, {@code <platform>.poll.failures} - counters;</li>
+ *     <li>{@code <platform>.api.<method>} - latency of API methods;</li>
+ *     <li>{@code <platform>.api.<method>.errors.<code>} - count of failures by API error code
+ *     or by exception class;</li>
+ *     <li>{@code <platform>.http.firstByte}, {@code <platform>.http.connect} - HTTP timings;</li>
+ *     <li>{@code <platform>.http.status.<status>} - count of HTTP responses by status;</li>
+ *     <li>{@code handler.<class>} - time spent in event handler;</li>
+ *     <li>{@code handler.<class>.failures} - count of exceptions thrown by event handler.</li>
+ * </ul>
+ *
+ * @author whilein
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public final class HistogramMetricsRecorder implements MetricsRecorder {
+
+    Map<PlatformType, PlatformMetrics> platforms;
+
+    ConcurrentMap<Class<?>, Timer> handlers = new ConcurrentHashMap<>();
+
+    public HistogramMetricsRecorder() {
+        val platforms = new EnumMap<PlatformType, PlatformMetrics>(PlatformType.class);
+
+        for (val type : PlatformType.values()) {
+            platforms.put(type, new PlatformMetrics());
+        }
+
+        this.platforms = platforms;
+    }
+
+    @Override
+    public void pollCompleted(PlatformType platform, int updates, long nanos) {
+        val metrics = platforms.get(platform);
+        metrics.poll.record(nanos);
+        metrics.polledUpdates.add(updates);
+    }
+
+    @Override
+    public void pollFailed(PlatformType platform, long nanos) {
+        platforms.get(platform).pollFailures.increment();
+    }
+
+    @Override
+    public void handlerCompleted(EventHandler handler, long nanos, @Nullable Throwable error) {
+        val type = handler.getClass();
+
+        Timer timer;
+        if ((timer = handlers.get(type)) == null) {
+            timer = handlers.computeIfAbsent(type, __ -> new Timer());
+        }
+
+        timer.record(nanos, error != null ? error.getClass().getName() : null);
+    }
+
+    @Override
+    public void apiCallCompleted(PlatformType platform, String method, long nanos, @Nullable Throwable error) {
+        val methods = platforms.get(platform).methods;
+
+        Timer timer;
+        if ((timer = methods.get(method)) == null) {
+            timer = methods.computeIfAbsent(method, __ -> new Timer());
+        }
+
+        String errorKey = null;
+
+        if (error != null) {
+            errorKey = error instanceof ApiException
+                       && ((ApiException) error).getErrorCode() != ApiException.UNKNOWN_ERROR_CODE
+                    ? String.valueOf(((ApiException) error).getErrorCode())
+                    : error.getClass().getSimpleName();
+        }
+
+        timer.record(nanos, errorKey);
+    }
+
+    @Override
+    public void httpRequestCompleted(PlatformType platform, int status, HttpTiming timing) {
+        val metrics = platforms.get(platform);
+
+        if (timing.getConnectNanos() != HttpTiming.UNAVAILABLE) {
+            metrics.httpConnect.record(timing.getConnectNanos());
+        }
+
+        if (timing.getFirstByteNanos() != HttpTiming.UNAVAILABLE) {
+            metrics.httpFirstByte.record(timing.getFirstByteNanos());
+        }
+
+        increment(metrics.httpStatuses, status);
+    }
+
+    public @Unmodifiable Map<String, Long> getCounters() {
+        val counters = new TreeMap<String, Long>();
+
+        for (val platform : platforms.entrySet()) {
+            val prefix = platform.getKey().name().toLowerCase();
+            val metrics = platform.getValue();
+
+            counters.put(prefix + ".poll.updates", metrics.polledUpdates.sum());
+            counters.put(prefix + ".poll.failures", metrics.pollFailures.sum());
+
+            for (val status : metrics.httpStatuses.entrySet()) {
+                counters.put(prefix + ".http.status." + status.getKey(), status.getValue().sum());
+            }
+
+            for (val method : metrics.methods.entrySet()) {
+                for (val error : method.getValue().errors.entrySet()) {
+                    counters.put(prefix + ".api." + method.getKey() + ".errors." + error.getKey(),
+                            error.getValue().sum());
+                }
+            }
+        }
+
+        for (val handler : handlers.entrySet()) {
+            long failures = 0;
+
+            for (val error : handler.getValue().errors.values()) {
+                failures += error.sum();
+            }
+
+            counters.put("handler." + handler.getKey().getName() + ".failures", failures);
+        }
+
+        return Collections.unmodifiableMap(counters);
+    }
+
+    public @Unmodifiable Map<String, LatencyHistogram.Snapshot> getHistograms() {
+        val histograms = new TreeMap<String, LatencyHistogram.Snapshot>();
+
+        for (val platform : platforms.entrySet()) {
+            val prefix = platform.getKey().name().toLowerCase();
+            val metrics = platform.getValue();
+
+            histograms.put(prefix + ".poll", metrics.poll.snapshot());
+            histograms.put(prefix + ".http.connect", metrics.httpConnect.snapshot());
+            histograms.put(prefix + ".http.firstByte", metrics.httpFirstByte.snapshot());
+
+            for (val method : metrics.methods.entrySet()) {
+                histograms.put(prefix + ".api." + method.getKey(), method.getValue().latency.snapshot());
+            }
+        }
+
+        for (val handler : handlers.entrySet()) {
+            histograms.put("handler." + handler.getKey().getName(),
+                    handler.getValue().latency.snapshot());
+        }
+
+        return Collections.unmodifiableMap(histograms);
+    }
+
+    private static <K> void increment(ConcurrentMap<K, LongAdder> counters, K key) {
+        LongAdder counter;
+        if ((counter = counters.get(key)) == null) {
+            counter = counters.computeIfAbsent(key, __ -> new LongAdder());
+        }
+
+        counter.increment();
+    }
+
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    private static final class PlatformMetrics {
+
+        LatencyHistogram poll = new LatencyHistogram();
+        LongAdder polledUpdates = new LongAdder();
+        LongAdder pollFailures = new LongAdder();
+
+        LatencyHistogram httpConnect = new LatencyHistogram();
+        LatencyHistogram httpFirstByte = new LatencyHistogram();
+        ConcurrentMap<Integer, LongAdder> httpStatuses = new ConcurrentHashMap<>();
+
+        ConcurrentMap<String, Timer> methods = new ConcurrentHashMap<>();
+
+    }
+
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    private static final class Timer {
+
+        LatencyHistogram latency = new LatencyHistogram();
+        ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        void record(long nanos, @Nullable String error) {
+            latency.record(nanos);
+
+            if (error != null) {
+                increment(errors, error);
+            }
+        }
+
+    }
+
+}
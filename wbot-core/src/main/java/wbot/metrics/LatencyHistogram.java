@@ -0,0 +1,169 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.metrics;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values (e.g. nanoseconds) with log-linear buckets like HdrHistogram:
+ * each power of two is split into {@value #SUB_BUCKETS} buckets, so relative error of percentiles is
+ * about 3%. Recording is a single atomic increment and never allocates.
+ *
+ * @author whilein
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKETS = bucketIndex(Long.MAX_VALUE) + 1;
+
+    AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    LongAdder sum = new LongAdder();
+
+    AtomicLong max = new AtomicLong();
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        val shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Returns the highest value, which falls into bucket.
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        val shift = (index >>> SUB_BUCKET_BITS) - 1;
+        val subBucket = (long) ((index & (SUB_BUCKETS - 1)) + SUB_BUCKETS);
+
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+
+        counts.incrementAndGet(bucketIndex(value));
+        sum.add(value);
+
+        long max;
+        while (value > (max = this.max.get())) {
+            if (this.max.compareAndSet(max, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns copy of current state. Values recorded concurrently may be partially included.
+     */
+    public Snapshot snapshot() {
+        val counts = new long[BUCKETS];
+
+        long count = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts[i] = this.counts.get(i);
+        }
+
+        return new Snapshot(counts, count, sum.sum(), max.get());
+    }
+
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    public static final class Snapshot {
+
+        long[] counts;
+
+        @Getter
+        long count;
+
+        @Getter
+        long sum;
+
+        @Getter
+        long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Returns value, which is greater than or equal to {@code percentile} percents of recorded values.
+         *
+         * @param percentile percentile from 0 to 100
+         * @return value at percentile or zero, if nothing was recorded
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 100");
+            }
+
+            if (count == 0) {
+                return 0;
+            }
+
+            val rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+
+            long seen = 0;
+
+            for (int i = 0; i < counts.length; i++) {
+                if ((seen += counts[i]) >= rank) {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count
+                   + ", mean=" + (long) getMean()
+                   + ", p50=" + getValueAtPercentile(50)
+                   + ", p99=" + getValueAtPercentile(99)
+                   + ", max=" + max;
+        }
+
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.metrics;
+
+import org.jetbrains.annotations.Nullable;
+import wbot.event.EventHandler;
+import wbot.http.HttpTiming;
+import wbot.platform.PlatformType;
+
+/**
+ * Receives measurements of bot internals. All methods are called on hot paths from many threads,
+ * so implementations must be thread-safe and should not block.
+ *
+ * @author whilein
+ */
+public interface MetricsRecorder {
+
+    static MetricsRecorder noop() {
+        return NoopMetricsRecorder.INSTANCE;
+    }
+
+    /**
+     * Called after each long poll request.
+     *
+     * @param platform platform
+     * @param updates  count of received updates
+     * @param nanos    time of request, including handling of updates if long poll pipeline is disabled
+     */
+    default void pollCompleted(PlatformType platform, int updates, long nanos) {
+    }
+
+    default void pollFailed(PlatformType platform, long nanos) {
+    }
+
+    /**
+     * Called after event handler has processed an event.
+     *
+     * @param handler event handler
+     * @param nanos   time spent in handler
+     * @param error   exception thrown by handler or {@code null}
+     */
+    default void handlerCompleted(EventHandler handler, long nanos, @Nullable Throwable error) {
+    }
+
+    /**
+     * Called after API method completed, including time spent in rate limiters and retries.
+     *
+     * @param platform platform
+     * @param method   name of method
+     * @param nanos    time from sending until completion
+     * @param error    cause of failure or {@code null}
+     */
+    default void apiCallCompleted(PlatformType platform, String method, long nanos, @Nullable Throwable error) {
+    }
+
+    /**
+     * Called after each HTTP request to platform API, i.e. for every retry of API method.
+     */
+    default void httpRequestCompleted(PlatformType platform, int status, HttpTiming timing) {
+    }
+
+}
@@ -17,6 +17,7 @@
 package wbot.model;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import wbot.http.EmbeddableContent;
 
 import java.util.concurrent.CompletableFuture;
@@ -32,4 +33,14 @@ public interface Attachment {
 
     @NotNull CompletableFuture<EmbeddableContent> createContent();
 
+    /**
+     * Returns key, which identifies content of this attachment. Attachments with the same key
+     * are uploaded to platform only once, then uploaded file is reused.
+     *
+     * @return key or {@code null} if attachment should be uploaded every time
+     */
+    default @Nullable String cacheKey() {
+        return null;
+    }
+
 }
@@ -21,6 +21,7 @@ import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.Accessors;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
 import lombok.val;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -29,6 +30,7 @@ import wbot.http.EmbeddableContent;
 import wbot.http.FileContent;
 import wbot.http.InputStreamContent;
 import wbot.util.ByteArrayOutputStreamEx;
+import wbot.util.HashUtils;
 import wbot.util.MimeUtils;
 
 import javax.imageio.ImageIO;
@@ -90,6 +92,44 @@ public final class AttachmentFactory {
         return fromImage(type, "image." + format, MimeUtils.getContentTypeByExtension(format), image);
     }
 
+    /**
+     * Returns attachment, which is uploaded only once for given key, e.g. banner, that is
+     * loaded from file or rendered every time.
+     *
+     * @param attachment attachment
+     * @param cacheKey   key, that identifies content of attachment
+     * @return attachment with cache key
+     */
+    public Attachment withCacheKey(@NotNull Attachment attachment, @NotNull String cacheKey) {
+        return new CacheKeyAttachment(attachment, cacheKey);
+    }
+
+    @Accessors(fluent = true)
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    @RequiredArgsConstructor
+    private static final class CacheKeyAttachment implements Attachment {
+
+        Attachment delegate;
+
+        @Getter
+        String cacheKey;
+
+        @Override
+        public @NotNull AttachmentType type() {
+            return delegate.type();
+        }
+
+        @Override
+        public @NotNull String fileName() {
+            return delegate.fileName();
+        }
+
+        @Override
+        public @NotNull CompletableFuture<EmbeddableContent> createContent() {
+            return delegate.createContent();
+        }
+    }
+
     @Accessors(fluent = true)
     @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
     @RequiredArgsConstructor
@@ -220,10 +260,22 @@ public final class AttachmentFactory {
 
         byte[] bytes;
 
+        @NonFinal
+        String cacheKey;
+
         @Override
         public @NotNull CompletableFuture<EmbeddableContent> createContent() {
             return CompletableFuture.completedFuture(new BytesContent(contentType, bytes));
         }
+
+        @Override
+        public String cacheKey() {
+            String cacheKey;
+            if ((cacheKey = this.cacheKey) == null) {
+                this.cacheKey = cacheKey = HashUtils.sha256(bytes);
+            }
+            return cacheKey;
+        }
     }
 
 
@@ -0,0 +1,51 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.model;
+
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Result of sending broadcast message to one recipient.
+ *
+ * @author whilein
+ */
+@Value
+public class BroadcastResult {
+
+    Identity recipient;
+
+    @Nullable
+    SentMessage message;
+
+    @Nullable
+    Throwable error;
+
+    public static @NotNull BroadcastResult success(Identity recipient, SentMessage message) {
+        return new BroadcastResult(recipient, message, null);
+    }
+
+    public static @NotNull BroadcastResult failure(Identity recipient, Throwable error) {
+        return new BroadcastResult(recipient, null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+}
@@ -53,8 +53,8 @@ public class OutMessage {
                 keyboard,
                 attachment,
                 disableNotification,
-                keepForwardedMessages,
                 disableLinksParsing,
+                keepForwardedMessages,
                 latitude,
                 longitude
         );
@@ -19,9 +19,18 @@ package wbot.platform;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.val;
 import org.slf4j.Logger;
+import wbot.jfr.UpdateReceivedEvent;
+import wbot.metrics.MetricsRecorder;
 
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 
 /**
@@ -33,43 +42,159 @@ public abstract class AbstractLongPoll<T> {
 
     Logger logger;
 
-    private static final long MAX_BACKOFF = 10000;
-    private static final long MIN_BACKOFF = 100;
+    LongPollSettings settings;
 
-    private static final double BACKOFF_FACTOR = 3;
+    PlatformType platformType;
+
+    MetricsRecorder metricsRecorder;
 
-    @SuppressWarnings("BusyWait")
     public final void start(Consumer<T> updateHandler) throws Exception {
         onStart();
 
-        long delayMs = MIN_BACKOFF;
+        val pipelineCapacity = settings.getPipelineCapacity();
+        if (pipelineCapacity <= 0) {
+            receive(updateHandler);
+            return;
+        }
+
+        val buffer = new ArrayBlockingQueue<T>(pipelineCapacity);
+
+        val handlerThread = new Thread(() -> handleBuffered(buffer, updateHandler),
+                Thread.currentThread().getName() + " Handler");
+        handlerThread.start();
+
+        try {
+            receive(update -> enqueue(buffer, update));
+        } finally {
+            handlerThread.interrupt();
+        }
+    }
+
+    private static <T> void enqueue(BlockingQueue<T> buffer, T update) {
+        try {
+            buffer.put(update);
+        } catch (InterruptedException e) {
+            // next poll will notice interruption and stop long poll
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handleBuffered(BlockingQueue<T> buffer, Consumer<T> updateHandler) {
+        try {
+            while (true) {
+                val update = buffer.take();
+
+                try {
+                    updateHandler.accept(update);
+                } catch (Exception e) {
+                    logger.error("Cannot handle update", e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @SuppressWarnings("BusyWait")
+    private void receive(Consumer<T> updateHandler) {
+        val reconnectPolicy = settings.getReconnectPolicy();
+
+        val countingUpdateHandler = new CountingConsumer<>(updateHandler);
+
+        int attempt = 0;
+        Duration delay = Duration.ZERO;
 
         while (true) {
+            val event = new UpdateReceivedEvent();
+            event.begin();
+
+            val start = System.nanoTime();
+
             try {
-                poll(updateHandler);
-                delayMs = MIN_BACKOFF;
+                poll(countingUpdateHandler);
+
+                val updates = countingUpdateHandler.reset();
+                metricsRecorder.pollCompleted(platformType, updates, System.nanoTime() - start);
+
+                event.end();
+
+                if (event.shouldCommit()) {
+                    event.setPlatform(platformType.getDisplayName());
+                    event.setUpdates(updates);
+                    event.commit();
+                }
+
+                attempt = 0;
+                delay = Duration.ZERO;
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 break;
             } catch (Exception e) {
+                countingUpdateHandler.reset();
+                metricsRecorder.pollFailed(platformType, System.nanoTime() - start);
+
                 logger.error("LongPoll receiving updates failure", e);
-                logger.info("Retrying connection attempt in {}s", delayMs / 1000.0);
+
+                if ((delay = reconnectPolicy.nextDelay(++attempt, delay)) == null) {
+                    throw new IllegalStateException("LongPoll failed " + attempt + " times in a row", e);
+                }
+
+                logger.info("Retrying connection attempt in {}s", delay.toMillis() / 1000.0);
 
                 try {
-                    Thread.sleep(delayMs);
+                    Thread.sleep(delay.toMillis());
                 } catch (InterruptedException ie) {
                     Thread.currentThread().interrupt();
                     break;
                 }
-
-                delayMs = Math.min((long) (delayMs * BACKOFF_FACTOR), MAX_BACKOFF);
             }
         }
     }
 
+    /**
+     * Waits for response of poll request. Poll request itself is sent with timeout of
+     * {@link LongPollSettings#getStallTimeout()}, so stalled request is aborted by HTTP client. This wait
+     * is only a backstop, cancelling the future does not abort the request.
+     *
+     * @throws TimeoutException if connection is stalled
+     */
+    protected final <R> R await(CompletableFuture<R> response)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        val timeout = settings.getStallTimeout().plus(settings.getStallGrace());
+
+        try {
+            return response.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            response.cancel(true);
+            throw e;
+        }
+    }
+
     protected void onStart() throws Exception {
     }
 
     protected abstract void poll(Consumer<T> updateHandler) throws Exception;
 
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    @RequiredArgsConstructor
+    private static final class CountingConsumer<T> implements Consumer<T> {
+
+        final Consumer<T> delegate;
+
+        int count;
+
+        @Override
+        public void accept(T value) {
+            count++;
+            delegate.accept(value);
+        }
+
+        int reset() {
+            val count = this.count;
+            this.count = 0;
+            return count;
+        }
+
+    }
+
 }
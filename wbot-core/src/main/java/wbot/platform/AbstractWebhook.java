@@ -0,0 +1,103 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.function.Consumer;
+
+/**
+ * Receives updates pushed by platform to an embedded HTTP server.
+ *
+ * @author whilein
+ */
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+@RequiredArgsConstructor(access = AccessLevel.PROTECTED)
+public abstract class AbstractWebhook<T> {
+
+    Logger logger;
+
+    InetSocketAddress address;
+
+    String path;
+
+    /**
+     * Starts HTTP server and blocks current thread until it is interrupted.
+     *
+     * @param updateHandler update handler
+     */
+    public final void start(Consumer<T> updateHandler) throws Exception {
+        onStart();
+
+        val server = HttpServer.create(address, 0);
+        server.createContext(path, exchange -> {
+            try {
+                handle(exchange, updateHandler);
+            } catch (Exception e) {
+                logger.error("Cannot handle webhook request", e);
+
+                // headers could be sent already, then the second response would fail
+                if (exchange.getResponseCode() == -1) {
+                    try {
+                        respond(exchange, 500, null);
+                    } catch (IOException ioe) {
+                        logger.debug("Cannot send error response", ioe);
+                    }
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+
+        logger.info("Webhook server is listening on {}{}", address, path);
+
+        try {
+            Thread.currentThread().join();
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    protected void onStart() throws Exception {
+    }
+
+    protected abstract void handle(HttpExchange exchange, Consumer<T> updateHandler) throws Exception;
+
+    protected static void respond(HttpExchange exchange, int status, @Nullable byte[] body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+
+        exchange.sendResponseHeaders(status, body.length);
+
+        try (val os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Error returned by platform API.
+ *
+ * @author whilein
+ */
+@Getter
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ApiException extends RuntimeException {
+
+    public static final int UNKNOWN_ERROR_CODE = -1;
+
+    /**
+     * Error code of platform API or {@link #UNKNOWN_ERROR_CODE}.
+     */
+    int errorCode;
+
+    /**
+     * How long to wait before repeating request, if API told it.
+     */
+    @Nullable Duration retryAfter;
+
+    public ApiException() {
+        this.errorCode = UNKNOWN_ERROR_CODE;
+        this.retryAfter = null;
+    }
+
+    public ApiException(String message) {
+        this(message, UNKNOWN_ERROR_CODE, null);
+    }
+
+    public ApiException(String message, Throwable cause) {
+        super(message, cause);
+
+        this.errorCode = UNKNOWN_ERROR_CODE;
+        this.retryAfter = null;
+    }
+
+    public ApiException(String message, int errorCode, @Nullable Duration retryAfter) {
+        super(message);
+
+        this.errorCode = errorCode;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Whether error is caused by temporary failure of platform, so same request may succeed later.
+     */
+    public boolean isTransient() {
+        return false;
+    }
+
+    @Override
+    public Throwable fillInStackTrace() {
+        return this;
+    }
+
+    @Override
+    public Throwable initCause(Throwable cause) {
+        return this;
+    }
+
+}
@@ -32,4 +32,12 @@ public interface ApiMethod<R> {
 
     ApiMethodParams params();
 
+    /**
+     * Whether repeating this method has no additional effect, so it can be safely retried or hedged
+     * after network failure.
+     */
+    default boolean isIdempotent() {
+        return false;
+    }
+
 }
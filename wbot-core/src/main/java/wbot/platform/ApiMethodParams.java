@@ -25,4 +25,11 @@ public interface ApiMethodParams {
 
     Content asContent();
 
+    /**
+     * Whether {@link #asContent() content} can be sent more than once.
+     */
+    default boolean isReplayable() {
+        return true;
+    }
+
 }
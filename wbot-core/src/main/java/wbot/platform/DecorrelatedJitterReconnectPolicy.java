@@ -0,0 +1,55 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author whilein
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+final class DecorrelatedJitterReconnectPolicy implements ReconnectPolicy {
+
+    static final ReconnectPolicy DEFAULTS = new DecorrelatedJitterReconnectPolicy(100, 10000, 0);
+
+    long baseMillis;
+
+    long capMillis;
+
+    int maxAttempts;
+
+    @Override
+    public @Nullable Duration nextDelay(int attempt, Duration previousDelay) {
+        if (maxAttempts > 0 && attempt > maxAttempts) {
+            return null;
+        }
+
+        val upper = Math.max(baseMillis, previousDelay.toMillis() * 3);
+        val delay = Math.min(capMillis, ThreadLocalRandom.current().nextLong(baseMillis, upper + 1));
+
+        return Duration.ofMillis(delay);
+    }
+
+}
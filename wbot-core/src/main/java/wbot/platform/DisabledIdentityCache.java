@@ -0,0 +1,58 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform;
+
+import wbot.model.IdentityHolder;
+import wbot.model.IdentityName;
+import wbot.model.PhotoSize;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * @author whilein
+ */
+final class DisabledIdentityCache implements IdentityCache {
+
+    static final IdentityCache INSTANCE = new DisabledIdentityCache();
+
+    private DisabledIdentityCache() {
+    }
+
+    @Override
+    public CompletableFuture<IdentityName> getName(
+            IdentityHolder identity,
+            Supplier<CompletableFuture<IdentityName>> loader
+    ) {
+        return loader.get();
+    }
+
+    @Override
+    public CompletableFuture<String> getAvatarUrl(
+            IdentityHolder identity,
+            PhotoSize photoSize,
+            Supplier<CompletableFuture<String>> loader
+    ) {
+        return loader.get();
+    }
+
+    @Override
+    public void invalidate(IdentityHolder identity) {
+        // no-op
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform;
+
+import wbot.model.IdentityHolder;
+import wbot.model.IdentityName;
+import wbot.model.PhotoSize;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Cache of identity names and avatar URLs, shared by all platforms.
+ *
+ * @author whilein
+ */
+public interface IdentityCache {
+
+    static IdentityCache disabled() {
+        return DisabledIdentityCache.INSTANCE;
+    }
+
+    CompletableFuture<IdentityName> getName(
+            IdentityHolder identity,
+            Supplier<CompletableFuture<IdentityName>> loader
+    );
+
+    /**
+     * Returns cached URL (or platform-specific path) of avatar or loads it.
+     *
+     * @param identity  identity
+     * @param photoSize size of avatar
+     * @param loader    loader of URL, completes with {@code null} if identity has no avatar
+     * @return future of URL
+     */
+    CompletableFuture<String> getAvatarUrl(
+            IdentityHolder identity,
+            PhotoSize photoSize,
+            Supplier<CompletableFuture<String>> loader
+    );
+
+    void invalidate(IdentityHolder identity);
+
+}
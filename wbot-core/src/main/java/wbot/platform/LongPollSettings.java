@@ -0,0 +1,81 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * @author whilein
+ */
+@Value
+@Builder
+public class LongPollSettings {
+
+    /**
+     * Maximum count of received updates waiting to be handled, if positive, the next updates are
+     * requested while the current ones are being handled by a separate thread.
+     * <p>
+     * Note that updates are acknowledged as soon as they are buffered, so updates left in buffer
+     * are lost when long poll is stopped.
+     */
+    @Builder.Default
+    int pipelineCapacity = 0;
+
+    /**
+     * How long server holds request, when there are no updates.
+     */
+    @Builder.Default
+    Duration wait = Duration.ofSeconds(90);
+
+    /**
+     * How long to wait for response after {@link #wait} has passed, before considering connection stalled
+     * and reconnecting.
+     */
+    @Builder.Default
+    Duration stallGrace = Duration.ofSeconds(15);
+
+    @Builder.Default
+    ReconnectPolicy reconnectPolicy = ReconnectPolicy.defaults();
+
+    /**
+     * Parse response incrementally and pass each update to handler as soon as it is read, instead of
+     * reading the whole batch into memory first.
+     * <p>
+     * Note that connection is held until all updates of batch are handled, so slow handlers should be
+     * combined with {@link #pipelineCapacity}.
+     * <p>
+     * Delivery guarantees are the same as without streaming: Vkontakte {@code ts} is advanced as soon as
+     * it is read, and Telegram offset is advanced after each handled update.
+     */
+    @Builder.Default
+    boolean streaming = false;
+
+    /**
+     * @return time, after which request without response is considered stalled
+     */
+    public Duration getStallTimeout() {
+        return wait.plus(stallGrace);
+    }
+
+    public static LongPollSettings defaults() {
+        return builder().build();
+    }
+
+}
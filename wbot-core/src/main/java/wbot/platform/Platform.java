@@ -16,10 +16,13 @@
 
 package wbot.platform;
 
+import lombok.val;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import wbot.http.HttpResponse;
 import wbot.model.Attachment;
+import wbot.model.BroadcastResult;
+import wbot.model.Identity;
 import wbot.model.IdentityHolder;
 import wbot.model.IdentityName;
 import wbot.model.ImageDimensions;
@@ -29,10 +32,14 @@ import wbot.model.OutMessage;
 import wbot.model.Photo;
 import wbot.model.PhotoSize;
 import wbot.model.SentMessage;
+import wbot.util.FutureUtils;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * @author whilein
@@ -47,6 +54,28 @@ public interface Platform extends Runnable {
 
     CompletableFuture<SentMessage> sendMessage(OutMessage message);
 
+    /**
+     * Sends the same message to many recipients, {@link OutMessage#getChat() chat} and
+     * {@link OutMessage#getReply() reply} of message are ignored. All sends are started before
+     * this method returns.
+     *
+     * @param recipients recipients
+     * @param message    message
+     * @return results, one per recipient, in order of recipients
+     */
+    default Stream<CompletableFuture<BroadcastResult>> broadcast(Collection<Identity> recipients, OutMessage message) {
+        val results = new ArrayList<CompletableFuture<BroadcastResult>>(recipients.size());
+
+        for (val recipient : recipients) {
+            results.add(sendMessage(message.toBuilder().chat(recipient).build())
+                    .handle((sentMessage, e) -> e == null
+                            ? BroadcastResult.success(recipient, sentMessage)
+                            : BroadcastResult.failure(recipient, FutureUtils.unwrap(e))));
+        }
+
+        return results.stream();
+    }
+
     CompletableFuture<Void> editText(SentMessage message, String text);
 
     CompletableFuture<Void> editAttachment(SentMessage message, Attachment attachment);
@@ -0,0 +1,53 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Decides how long to wait before reconnecting long poll after failure.
+ *
+ * @author whilein
+ */
+public interface ReconnectPolicy {
+
+    /**
+     * Decorrelated jitter: each delay is random between {@code base} and three times the previous delay,
+     * but not more than {@code cap}, so instances failed at the same time don't reconnect in lockstep.
+     *
+     * @param base        minimal delay
+     * @param cap         maximal delay
+     * @param maxAttempts count of failures in a row, after which long poll gives up, zero means never
+     */
+    static ReconnectPolicy decorrelatedJitter(Duration base, Duration cap, int maxAttempts) {
+        return new DecorrelatedJitterReconnectPolicy(base.toMillis(), cap.toMillis(), maxAttempts);
+    }
+
+    static ReconnectPolicy defaults() {
+        return DecorrelatedJitterReconnectPolicy.DEFAULTS;
+    }
+
+    /**
+     * @param attempt       count of failures in a row, starting from one
+     * @param previousDelay delay before previous attempt, zero for the first attempt
+     * @return delay before next attempt or {@code null}, if long poll should give up
+     */
+    @Nullable Duration nextDelay(int attempt, Duration previousDelay);
+
+}
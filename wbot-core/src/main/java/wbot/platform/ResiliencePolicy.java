@@ -0,0 +1,305 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.jetbrains.annotations.Nullable;
+import wbot.util.FutureUtils;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Retries, circuit breakers and hedging for {@link ApiMethod API methods}.
+ * <ul>
+ *     <li>Requests rejected by API with {@code retry_after} are repeated after that time.</li>
+ *     <li>Requests failed because of network or temporary API errors are repeated with exponential backoff
+ *     and full jitter, but only {@link ApiMethod#isIdempotent() idempotent} ones, because other requests
+ *     may be already processed. Connection failures are safe to repeat for any method.</li>
+ *     <li>Requests to the host, which failed too many times in a row, are rejected with
+ *     {@link CircuitBreakerOpenException} for a while, then single request is let through to probe the host.</li>
+ *     <li>Idempotent requests, which take longer than hedge delay, are duplicated, first response wins.</li>
+ * </ul>
+ * Requests with {@link ApiMethodParams#isReplayable() non-replayable} params are never repeated.
+ *
+ * @author whilein
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public final class ResiliencePolicy {
+
+    private static final ResiliencePolicy DISABLED = new Builder()
+            .maxRetries(0)
+            .failureThreshold(0)
+            .build();
+
+    int maxRetries;
+
+    long baseDelayNanos;
+
+    long maxDelayNanos;
+
+    long maxRetryAfterNanos;
+
+    int failureThreshold;
+
+    long openNanos;
+
+    @Nullable Duration hedgeDelay;
+
+    Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    private ResiliencePolicy(
+            int maxRetries,
+            Duration baseDelay,
+            Duration maxDelay,
+            Duration maxRetryAfter,
+            int failureThreshold,
+            Duration openDuration,
+            @Nullable Duration hedgeDelay
+    ) {
+        this.maxRetries = maxRetries;
+        this.baseDelayNanos = baseDelay.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.maxRetryAfterNanos = maxRetryAfter.toNanos();
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.hedgeDelay = hedgeDelay;
+    }
+
+    /**
+     * Policy, which sends every request once.
+     */
+    public static ResiliencePolicy disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Sends request according to this policy.
+     *
+     * @param host    host of API, circuit breakers are kept per host
+     * @param method  method to send, used to decide whether request can be repeated
+     * @param request sends method once, called for every attempt
+     * @return response of first successful attempt
+     */
+    public <T> CompletableFuture<T> execute(String host, ApiMethod<?> method, Supplier<CompletableFuture<T>> request) {
+        val circuitBreaker = failureThreshold > 0
+                ? circuitBreakers.computeIfAbsent(host, __ -> new CircuitBreaker())
+                : null;
+
+        return attempt(host, circuitBreaker, method.isIdempotent(), method.params().isReplayable(), request, 0);
+    }
+
+    private <T> CompletableFuture<T> attempt(
+            String host,
+            @Nullable CircuitBreaker circuitBreaker,
+            boolean idempotent,
+            boolean replayable,
+            Supplier<CompletableFuture<T>> request,
+            int attempt
+    ) {
+        if (circuitBreaker != null && !circuitBreaker.allowRequest()) {
+            return CompletableFuture.failedFuture(new CircuitBreakerOpenException(host));
+        }
+
+        val response = idempotent && hedgeDelay != null
+                ? hedged(request)
+                : request.get();
+
+        return response.handle((result, e) -> {
+                    if (e == null) {
+                        if (circuitBreaker != null) {
+                            circuitBreaker.onSuccess();
+                        }
+
+                        return CompletableFuture.completedFuture(result);
+                    }
+
+                    val cause = FutureUtils.unwrap(e);
+                    val hostFailure = isHostFailure(cause);
+
+                    if (circuitBreaker != null) {
+                        if (hostFailure) {
+                            circuitBreaker.onFailure();
+                        } else {
+                            // host is fine, it just didn't like request
+                            circuitBreaker.onSuccess();
+                        }
+                    }
+
+                    if (attempt >= maxRetries || !replayable) {
+                        return CompletableFuture.<T>failedFuture(cause);
+                    }
+
+                    long delayNanos;
+
+                    Duration retryAfter;
+                    if (cause instanceof ApiException
+                        && (retryAfter = ((ApiException) cause).getRetryAfter()) != null) {
+                        if ((delayNanos = retryAfter.toNanos()) > maxRetryAfterNanos) {
+                            return CompletableFuture.<T>failedFuture(cause);
+                        }
+                    } else if (hostFailure && (idempotent || cause instanceof ConnectException)) {
+                        delayNanos = getBackoffNanos(attempt);
+                    } else {
+                        return CompletableFuture.<T>failedFuture(cause);
+                    }
+
+                    val delayed = CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS);
+
+                    return CompletableFuture.supplyAsync(() -> attempt(host, circuitBreaker, idempotent,
+                                    replayable, request, attempt + 1), delayed)
+                            .thenCompose(Function.identity());
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private <T> CompletableFuture<T> hedged(Supplier<CompletableFuture<T>> request) {
+        val result = new CompletableFuture<T>();
+        val inFlight = new AtomicInteger(1);
+
+        hedge(request, result, inFlight);
+
+        CompletableFuture.delayedExecutor(hedgeDelay.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+            if (!result.isDone()) {
+                inFlight.incrementAndGet();
+                hedge(request, result, inFlight);
+            }
+        });
+
+        return result;
+    }
+
+    private static <T> void hedge(
+            Supplier<CompletableFuture<T>> request,
+            CompletableFuture<T> result,
+            AtomicInteger inFlight
+    ) {
+        request.get().whenComplete((value, e) -> {
+            if (e == null) {
+                result.complete(value);
+            } else if (inFlight.decrementAndGet() == 0) {
+                result.completeExceptionally(FutureUtils.unwrap(e));
+            }
+        });
+    }
+
+    private long getBackoffNanos(int attempt) {
+        val ceiling = Math.min(maxDelayNanos, baseDelayNanos << Math.min(attempt, 30));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static boolean isHostFailure(Throwable cause) {
+        return cause instanceof IOException
+               || cause instanceof ApiException && ((ApiException) cause).isTransient();
+    }
+
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    private final class CircuitBreaker {
+
+        /**
+         * Count of failures in a row.
+         */
+        AtomicInteger failures = new AtomicInteger();
+
+        /**
+         * {@link System#nanoTime()} until which requests are rejected, if circuit is open.
+         */
+        AtomicLong openUntil = new AtomicLong();
+
+        private boolean allowRequest() {
+            if (failures.get() < failureThreshold) {
+                return true;
+            }
+
+            // let only one probe through after each open period
+            val openUntil = this.openUntil.get();
+            val now = System.nanoTime();
+
+            return now - openUntil >= 0L && this.openUntil.compareAndSet(openUntil, now + openNanos);
+        }
+
+        private void onSuccess() {
+            failures.set(0);
+        }
+
+        private void onFailure() {
+            if (failures.incrementAndGet() == failureThreshold) {
+                openUntil.set(System.nanoTime() + openNanos);
+            }
+        }
+
+    }
+
+    @Accessors(fluent = true)
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static final class Builder {
+
+        /**
+         * Maximum count of repeats for one request.
+         */
+        @Setter
+        int maxRetries = 3;
+
+        @Setter
+        Duration baseDelay = Duration.ofMillis(200);
+
+        @Setter
+        Duration maxDelay = Duration.ofSeconds(10);
+
+        /**
+         * Requests with longer {@code retry_after} fail instead of waiting.
+         */
+        @Setter
+        Duration maxRetryAfter = Duration.ofMinutes(1);
+
+        /**
+         * Count of failures in a row, which opens circuit, zero disables circuit breakers.
+         */
+        @Setter
+        int failureThreshold = 5;
+
+        @Setter
+        Duration openDuration = Duration.ofSeconds(30);
+
+        /**
+         * Delay before duplicating slow idempotent request, hedging is disabled if not set.
+         */
+        @Setter
+        Duration hedgeDelay;
+
+        public ResiliencePolicy build() {
+            return new ResiliencePolicy(maxRetries, baseDelay, maxDelay, maxRetryAfter,
+                    failureThreshold, openDuration, hedgeDelay);
+        }
+
+    }
+
+}
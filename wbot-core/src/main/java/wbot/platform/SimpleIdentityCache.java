@@ -0,0 +1,126 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import lombok.Value;
+import lombok.experimental.Accessors;
+import lombok.experimental.FieldDefaults;
+import org.jetbrains.annotations.Nullable;
+import wbot.model.IdentityHolder;
+import wbot.model.IdentityName;
+import wbot.model.PhotoSize;
+import wbot.util.AsyncCache;
+import wbot.util.CacheStats;
+import wbot.util.SegmentedLruCache;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Identity cache based on {@link SegmentedLruCache}.
+ *
+ * @author whilein
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public final class SimpleIdentityCache implements IdentityCache {
+
+    AsyncCache<Key, IdentityName> names;
+
+    AsyncCache<Key, String> avatarUrls;
+
+    private SimpleIdentityCache(AsyncCache<Key, IdentityName> names, AsyncCache<Key, String> avatarUrls) {
+        this.names = names;
+        this.avatarUrls = avatarUrls;
+    }
+
+    private static Key key(IdentityHolder identity, @Nullable PhotoSize photoSize) {
+        return new Key(identity.getPlatform(), identity.getValue(), photoSize);
+    }
+
+    @Override
+    public CompletableFuture<IdentityName> getName(
+            IdentityHolder identity,
+            Supplier<CompletableFuture<IdentityName>> loader
+    ) {
+        return names.get(key(identity, null), __ -> loader.get());
+    }
+
+    @Override
+    public CompletableFuture<String> getAvatarUrl(
+            IdentityHolder identity,
+            PhotoSize photoSize,
+            Supplier<CompletableFuture<String>> loader
+    ) {
+        return avatarUrls.get(key(identity, photoSize), __ -> loader.get());
+    }
+
+    @Override
+    public void invalidate(IdentityHolder identity) {
+        names.invalidate(key(identity, null));
+
+        for (PhotoSize photoSize : PhotoSize.VALUES) {
+            avatarUrls.invalidate(key(identity, photoSize));
+        }
+    }
+
+    public CacheStats getNameStats() {
+        return names.stats();
+    }
+
+    public CacheStats getAvatarUrlStats() {
+        return avatarUrls.stats();
+    }
+
+    @Value
+    private static class Key {
+        PlatformType platform;
+        long value;
+        @Nullable PhotoSize photoSize;
+    }
+
+    @Accessors(fluent = true)
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static final class Builder {
+
+        @Setter
+        int maximumSize = 10_000;
+
+        @Setter
+        int concurrencyLevel = 16;
+
+        @Setter
+        Duration ttl = Duration.ofMinutes(10);
+
+        /**
+         * How long failed lookups and missing avatars are cached.
+         */
+        @Setter
+        Duration negativeTtl = Duration.ofSeconds(30);
+
+        public SimpleIdentityCache build() {
+            return new SimpleIdentityCache(
+                    new SegmentedLruCache<>(concurrencyLevel, maximumSize, ttl, negativeTtl),
+                    new SegmentedLruCache<>(concurrencyLevel, maximumSize, ttl, negativeTtl)
+            );
+        }
+
+    }
+
+}
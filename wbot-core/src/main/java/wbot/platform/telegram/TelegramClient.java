@@ -19,11 +19,20 @@ package wbot.platform.telegram;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
 import lombok.experimental.FieldDefaults;
 import lombok.val;
+import org.jetbrains.annotations.Nullable;
 import wbot.http.HttpClient;
 import wbot.http.HttpResponse;
+import wbot.http.HttpStatusException;
+import wbot.jfr.ApiCallEvent;
+import wbot.metrics.MetricsRecorder;
+import wbot.platform.PlatformType;
+import wbot.platform.ResiliencePolicy;
 import wbot.platform.telegram.method.TelegramAnswerCallbackQuery;
+import wbot.platform.telegram.method.TelegramDeleteWebhook;
 import wbot.platform.telegram.method.TelegramEditMessageCaption;
 import wbot.platform.telegram.method.TelegramEditMessageMedia;
 import wbot.platform.telegram.method.TelegramEditMessageText;
@@ -36,12 +45,19 @@ import wbot.platform.telegram.method.TelegramMethod;
 import wbot.platform.telegram.method.TelegramSendDocument;
 import wbot.platform.telegram.method.TelegramSendMessage;
 import wbot.platform.telegram.method.TelegramSendPhoto;
+import wbot.platform.telegram.method.TelegramSetWebhook;
 import wbot.platform.telegram.model.ResponseOrError;
 import wbot.util.Env;
+import wbot.util.FutureUtils;
+import wbot.util.KeyedRateLimiter;
+import wbot.util.RateLimiter;
 
 import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
 
 /**
  * @author whilein
@@ -55,6 +71,10 @@ public final class TelegramClient {
     private static final String BOT_FILES_API_URL =  Env.getString("WBOT_TELEGRAM_CLIENT_FILES_URL",
             "https://api.telegram.org/file/bot");
 
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private static final String API_HOST = URI.create(BOT_API_URL).getHost();
+
     String apiUrl;
 
     String fileApiUrl;
@@ -65,11 +85,37 @@ public final class TelegramClient {
     @Getter
     JsonMapper jsonMapper;
 
+    RateLimiter rateLimiter;
+
+    KeyedRateLimiter<Object> chatRateLimiter;
+
+    ResiliencePolicy resiliencePolicy;
+
+    @Getter
+    MetricsRecorder metricsRecorder;
+
     public TelegramClient(String token, HttpClient httpClient, JsonMapper jsonMapper) {
+        this(token, httpClient, jsonMapper, Builder.defaultRateLimiter(), Builder.defaultChatRateLimiter(),
+                Builder.defaultResiliencePolicy(), MetricsRecorder.noop());
+    }
+
+    private TelegramClient(
+            String token,
+            HttpClient httpClient,
+            JsonMapper jsonMapper,
+            RateLimiter rateLimiter,
+            KeyedRateLimiter<Object> chatRateLimiter,
+            ResiliencePolicy resiliencePolicy,
+            MetricsRecorder metricsRecorder
+    ) {
         this.apiUrl = BOT_API_URL + token;
         this.fileApiUrl = BOT_FILES_API_URL + token;
         this.httpClient = httpClient;
         this.jsonMapper = jsonMapper;
+        this.rateLimiter = rateLimiter;
+        this.chatRateLimiter = chatRateLimiter;
+        this.resiliencePolicy = resiliencePolicy;
+        this.metricsRecorder = metricsRecorder;
     }
 
     public TelegramEditMessageText editMessageText() {
@@ -92,6 +138,14 @@ public final class TelegramClient {
         return new TelegramGetUpdates(this);
     }
 
+    public TelegramSetWebhook setWebhook() {
+        return new TelegramSetWebhook(this);
+    }
+
+    public TelegramDeleteWebhook deleteWebhook() {
+        return new TelegramDeleteWebhook(this);
+    }
+
     public TelegramSendPhoto sendPhoto() {
         return new TelegramSendPhoto(this);
     }
@@ -120,25 +174,168 @@ public final class TelegramClient {
         return new TelegramGetChat(this);
     }
 
+    /**
+     * Sends method. Methods addressed to some chat are limited by global and per-chat
+     * rate limiters, other methods are sent immediately.
+     * Failed requests are repeated according to {@link ResiliencePolicy}, except long poll methods
+     * (e.g. {@code getUpdates}): their timeouts must not open circuit breaker of other API methods.
+     */
     public <R> CompletableFuture<R> send(TelegramMethod<R> method) {
+        val start = System.nanoTime();
+
+        CompletableFuture<R> result;
+
+        Object chatId;
+        if (method.isLongPoll()) {
+            result = execute(method);
+        } else if ((chatId = method.chatId()) == null) {
+            result = resiliencePolicy.execute(API_HOST, method, () -> execute(method));
+        } else {
+            result = resiliencePolicy.execute(API_HOST, method, () -> send(method, chatId));
+        }
+
+        return recordApiCall(method, start, result);
+    }
+
+    private <R> CompletableFuture<R> send(TelegramMethod<R> method, Object chatId) {
+        return chatRateLimiter.acquire(chatId)
+                .thenCompose(__ -> rateLimiter.acquire())
+                .thenCompose(__ -> execute(method))
+                .whenComplete((result, e) -> {
+                    if (e == null) {
+                        return;
+                    }
+
+                    val cause = FutureUtils.unwrap(e);
+
+                    Duration retryAfter;
+
+                    if (cause instanceof TelegramException
+                        && (retryAfter = ((TelegramException) cause).getRetryAfter()) != null) {
+                        // slow down other messages to this chat as well
+                        chatRateLimiter.penalize(chatId, retryAfter);
+                    }
+                });
+    }
+
+    private <R> CompletableFuture<R> execute(TelegramMethod<R> method) {
         val responseType = jsonMapper.getTypeFactory().constructParametricType(ResponseOrError.class, method.type());
 
-        return httpClient.post(apiUrl + "/" + method.name(), method.params().asContent())
+        return post(method, true, (response, event) -> {
+            ResponseOrError<R> responseOrError;
+
+            try {
+                val bytes = response.getBytes();
+
+                if (event.isEnabled()) {
+                    event.setBytesIn(bytes.length);
+                }
+
+                responseOrError = jsonMapper.readValue(bytes, responseType);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+
+            if (!responseOrError.isOk()) {
+                val errorCode = responseOrError.getErrorCode();
+                val parameters = responseOrError.getParameters();
+
+                throw new TelegramException("[" + errorCode + "] " + responseOrError.getDescription(),
+                        errorCode != null ? errorCode : TelegramException.UNKNOWN_ERROR_CODE,
+                        parameters != null && parameters.getRetryAfter() != null
+                                ? Duration.ofSeconds(parameters.getRetryAfter())
+                                : null);
+            }
+
+            return responseOrError.getResult();
+        });
+    }
+
+    /**
+     * Sends method and records HTTP request and {@link ApiCallEvent}, fails on {@code 429} with {@code Retry-After}
+     * and on server errors, otherwise response is passed to {@code reader}.
+     */
+    private <T> CompletableFuture<T> post(
+            TelegramMethod<?> method,
+            boolean buffered,
+            BiFunction<HttpResponse, ApiCallEvent, T> reader
+    ) {
+        val url = apiUrl + "/" + method.name();
+        val content = method.params().asContent();
+
+        val event = new ApiCallEvent();
+        event.begin();
+
+        return (buffered
+                ? httpClient.postBuffered(url, content, method.requestTimeout())
+                : httpClient.post(url, content, method.requestTimeout()))
                 .thenApply(response -> {
-                    ResponseOrError<R> responseOrError;
+                    metricsRecorder.httpRequestCompleted(PlatformType.TELEGRAM, response.getStatus(),
+                            response.getTiming());
 
-                    try {
-                        responseOrError = jsonMapper.readValue(response.getContent(), responseType);
-                    } catch (IOException e) {
-                        throw new CompletionException(e);
+                    if (event.isEnabled()) {
+                        event.setStatus(response.getStatus());
                     }
 
-                    if (!responseOrError.isOk()) {
-                        throw new TelegramException("[" + responseOrError.getErrorCode() + "] " + responseOrError.getDescription());
+                    if (response.getStatus() == TOO_MANY_REQUESTS) {
+                        Duration retryAfter;
+                        if ((retryAfter = getRetryAfter(response)) != null) {
+                            close(response);
+
+                            throw new TelegramException("[429] Too Many Requests: retry after "
+                                    + retryAfter.getSeconds(), TOO_MANY_REQUESTS, retryAfter);
+                        }
                     }
 
-                    return responseOrError.getResult();
-                });
+                    if (response.getStatus() >= 500) {
+                        close(response);
+
+                        throw new CompletionException(new HttpStatusException(response.getStatus()));
+                    }
+
+                    return reader.apply(response, event);
+                })
+                .whenComplete((__, e) -> event.complete(PlatformType.TELEGRAM, method.name(), content, e));
+    }
+
+    private static void close(HttpResponse response) {
+        try {
+            response.close();
+        } catch (IOException e) {
+            // response is discarded anyway
+        }
+    }
+
+    private <R> CompletableFuture<R> recordApiCall(TelegramMethod<?> method, long start, CompletableFuture<R> result) {
+        result.whenComplete((__, e) -> metricsRecorder.apiCallCompleted(PlatformType.TELEGRAM, method.name(),
+                System.nanoTime() - start, e != null ? FutureUtils.unwrap(e) : null));
+
+        return result;
+    }
+
+    /**
+     * Sends method and returns response without reading it, so it can be parsed incrementally.
+     * Unlike {@link #send(TelegramMethod)}, method is not rate limited or retried and result is not checked,
+     * but API call is recorded and HTTP status is checked the same way.
+     */
+    public CompletableFuture<HttpResponse> sendUnparsed(TelegramMethod<?> method) {
+        val start = System.nanoTime();
+
+        return recordApiCall(method, start, post(method, false, (response, __) -> response));
+    }
+
+    private static @Nullable Duration getRetryAfter(HttpResponse response) {
+        String retryAfter;
+        if ((retryAfter = response.getHeader("Retry-After")) == null) {
+            return null;
+        }
+
+        try {
+            return Duration.ofSeconds(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException e) {
+            // HTTP-date format is not used by Telegram
+            return null;
+        }
     }
 
     public CompletableFuture<HttpResponse> getFile(String path) {
@@ -149,4 +346,81 @@ public final class TelegramClient {
         return fileApiUrl + "/" + path;
     }
 
+    @Accessors(fluent = true)
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static final class Builder {
+
+        @Setter
+        String token;
+
+        @Setter
+        HttpClient httpClient;
+
+        @Setter
+        JsonMapper jsonMapper;
+
+        /**
+         * Limit of messages for whole bot, Telegram allows about 30 messages per second.
+         */
+        @Setter
+        RateLimiter rateLimiter;
+
+        /**
+         * Limit of messages for one chat, Telegram allows about one message per second.
+         */
+        @Setter
+        KeyedRateLimiter<Object> chatRateLimiter;
+
+        /**
+         * Retries and circuit breaking of API calls, use {@link ResiliencePolicy#disabled()} to send
+         * every call once.
+         */
+        @Setter
+        ResiliencePolicy resiliencePolicy;
+
+        /**
+         * Receives latencies and errors of API methods, nothing is recorded by default.
+         */
+        @Setter
+        MetricsRecorder metricsRecorder;
+
+        private static RateLimiter defaultRateLimiter() {
+            return RateLimiter.create(30, 1);
+        }
+
+        private static KeyedRateLimiter<Object> defaultChatRateLimiter() {
+            return KeyedRateLimiter.create(1, 3);
+        }
+
+        private static ResiliencePolicy defaultResiliencePolicy() {
+            return new ResiliencePolicy.Builder().build();
+        }
+
+        public TelegramClient build() {
+            RateLimiter rateLimiter;
+            if ((rateLimiter = this.rateLimiter) == null) {
+                rateLimiter = defaultRateLimiter();
+            }
+
+            KeyedRateLimiter<Object> chatRateLimiter;
+            if ((chatRateLimiter = this.chatRateLimiter) == null) {
+                chatRateLimiter = defaultChatRateLimiter();
+            }
+
+            ResiliencePolicy resiliencePolicy;
+            if ((resiliencePolicy = this.resiliencePolicy) == null) {
+                resiliencePolicy = defaultResiliencePolicy();
+            }
+
+            MetricsRecorder metricsRecorder;
+            if ((metricsRecorder = this.metricsRecorder) == null) {
+                metricsRecorder = MetricsRecorder.noop();
+            }
+
+            return new TelegramClient(token, httpClient, jsonMapper, rateLimiter, chatRateLimiter,
+                    resiliencePolicy, metricsRecorder);
+        }
+
+    }
+
 }
@@ -16,10 +16,16 @@
 
 package wbot.platform.telegram;
 
+import org.jetbrains.annotations.Nullable;
+import wbot.platform.ApiException;
+
+import java.time.Duration;
+
 /**
  * @author whilein
  */
-public final class TelegramException extends RuntimeException {
+public final class TelegramException extends ApiException {
+
     public TelegramException() {
     }
 
@@ -31,14 +37,14 @@ public final class TelegramException extends RuntimeException {
         super(message, cause);
     }
 
-    @Override
-    public Throwable fillInStackTrace() {
-        return this;
+    public TelegramException(String message, int errorCode, @Nullable Duration retryAfter) {
+        super(message, errorCode, retryAfter);
     }
 
     @Override
-    public Throwable initCause(Throwable cause) {
-        return this;
+    public boolean isTransient() {
+        // 5xx, e.g. "Bad Gateway"
+        return getErrorCode() >= 500;
     }
 
 }
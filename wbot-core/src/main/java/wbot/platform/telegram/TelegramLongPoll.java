@@ -16,15 +16,22 @@
 
 package wbot.platform.telegram;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import lombok.AccessLevel;
 import lombok.experimental.FieldDefaults;
 import lombok.experimental.NonFinal;
 import lombok.val;
 import org.slf4j.Logger;
+import wbot.http.HttpResponse;
 import wbot.platform.AbstractLongPoll;
+import wbot.platform.LongPollSettings;
+import wbot.platform.PlatformType;
 import wbot.platform.telegram.model.Update;
 
+import java.io.IOException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 
 /**
@@ -32,12 +39,10 @@ import java.util.function.Consumer;
  */
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public final class TelegramLongPoll extends AbstractLongPoll<Update> {
-    private static final int TIMEOUT = 90;
-
     TelegramClient telegramClient;
 
-    public TelegramLongPoll(Logger logger, TelegramClient telegramClient) {
-        super(logger);
+    public TelegramLongPoll(Logger logger, LongPollSettings settings, TelegramClient telegramClient) {
+        super(logger, settings, PlatformType.TELEGRAM, telegramClient.getMetricsRecorder());
 
         this.telegramClient = telegramClient;
     }
@@ -46,12 +51,18 @@ public final class TelegramLongPoll extends AbstractLongPoll<Update> {
     volatile Integer offset;
 
     @Override
-    protected void poll(Consumer<Update> updateHandler) throws InterruptedException, ExecutionException {
-        val updates = telegramClient.getUpdates()
-                .timeout(TIMEOUT)
+    protected void poll(Consumer<Update> updateHandler)
+            throws InterruptedException, ExecutionException, TimeoutException, IOException {
+        if (settings.isStreaming()) {
+            pollStreaming(updateHandler);
+            return;
+        }
+
+        val updates = await(telegramClient.getUpdates()
+                .timeout((int) settings.getWait().getSeconds())
+                .requestTimeout(settings.getStallTimeout())
                 .offset(offset)
-                .make()
-                .get();
+                .make());
 
         logger.debug("Received {} updates", updates.length);
 
@@ -66,4 +77,68 @@ public final class TelegramLongPoll extends AbstractLongPoll<Update> {
         }
     }
 
+    private void pollStreaming(Consumer<Update> updateHandler)
+            throws InterruptedException, ExecutionException, TimeoutException, IOException {
+        val method = telegramClient.getUpdates()
+                .timeout((int) settings.getWait().getSeconds())
+                .requestTimeout(settings.getStallTimeout())
+                .offset(offset);
+
+        boolean ok = false;
+        int errorCode = TelegramException.UNKNOWN_ERROR_CODE;
+        String description = null;
+        int count = 0;
+
+        try (HttpResponse response = await(telegramClient.sendUnparsed(method));
+             JsonParser parser = telegramClient.getJsonMapper().createParser(response.getContent())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected getUpdates response: " + parser.currentToken());
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                val field = parser.getCurrentName();
+                val value = parser.nextToken();
+
+                switch (field) {
+                    case "ok":
+                        ok = parser.getBooleanValue();
+                        break;
+                    case "error_code":
+                        errorCode = parser.getIntValue();
+                        break;
+                    case "description":
+                        description = parser.getValueAsString();
+                        break;
+                    case "result":
+                        if (value != JsonToken.START_ARRAY) {
+                            parser.skipChildren();
+                            break;
+                        }
+
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            val update = parser.readValueAs(Update.class);
+                            count++;
+
+                            try {
+                                updateHandler.accept(update);
+                            } catch (Exception e) {
+                                logger.error("Cannot handle update", e);
+                            }
+
+                            offset = update.getUpdateId() + 1;
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+
+        if (!ok) {
+            throw new TelegramException("[" + errorCode + "] " + description, errorCode, null);
+        }
+
+        logger.debug("Received {} updates", count);
+    }
+
 }
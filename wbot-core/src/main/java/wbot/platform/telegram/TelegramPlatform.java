@@ -27,6 +27,8 @@ import org.slf4j.Logger;
 import wbot.event.EventDispatcher;
 import wbot.http.HttpResponse;
 import wbot.model.Attachment;
+import wbot.model.BroadcastResult;
+import wbot.model.Identity;
 import wbot.model.IdentityHolder;
 import wbot.model.IdentityName;
 import wbot.model.ImageDimensions;
@@ -37,6 +39,8 @@ import wbot.model.OutMessage;
 import wbot.model.Photo;
 import wbot.model.PhotoSize;
 import wbot.model.SentMessage;
+import wbot.platform.IdentityCache;
+import wbot.platform.LongPollSettings;
 import wbot.platform.Platform;
 import wbot.platform.PlatformType;
 import wbot.platform.telegram.mapper.TelegramInlineKeyboardMapper;
@@ -49,12 +53,18 @@ import wbot.platform.telegram.model.LinkPreviewOptions;
 import wbot.platform.telegram.model.Message;
 import wbot.platform.telegram.model.Update;
 import wbot.platform.telegram.model.User;
+import wbot.util.AsyncCache;
 import wbot.util.FutureUtils;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.Locale;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import static java.util.concurrent.CompletableFuture.completedFuture;
 
@@ -73,6 +83,21 @@ public final class TelegramPlatform implements Platform {
 
     EventDispatcher eventDispatcher;
 
+    /**
+     * Webhook settings, if {@code null}, long poll is used to receive updates.
+     */
+    @Nullable
+    TelegramWebhook.Settings webhookSettings;
+
+    LongPollSettings longPollSettings;
+
+    IdentityCache identityCache;
+
+    /**
+     * File ids of uploaded attachments by {@link Attachment#cacheKey()}.
+     */
+    AsyncCache<String, String> uploadCache;
+
     @Getter
     @NonFinal
     IdentityHolder identity;
@@ -111,13 +136,20 @@ public final class TelegramPlatform implements Platform {
             throw new IllegalArgumentException("Identity platform is not Telegram");
         }
 
+        return identityCache.getAvatarUrl(identity, photoSize, () -> getAvatarPath(identity, photoSize))
+                .thenCompose(path -> path == null
+                        ? completedFuture(new HttpResponse(InputStream.nullInputStream()))
+                        : telegramClient.getFile(path));
+    }
+
+    private CompletableFuture<String> getAvatarPath(IdentityHolder identity, PhotoSize photoSize) {
         return telegramClient.getUserProfilePhotos()
                 .userId(identity.getValue())
                 .limit(PhotoSize.VALUES.size())
                 .make()
                 .thenCompose(profile -> {
                     val photos = profile.getPhotos();
-                    if (photos.isEmpty()) return completedFuture(new HttpResponse(InputStream.nullInputStream()));
+                    if (photos.isEmpty()) return completedFuture(null);
 
                     val sizes = profile.getPhotos().get(0);
                     val firstPhoto = sizes.get(photoSize.ordinal());
@@ -125,8 +157,7 @@ public final class TelegramPlatform implements Platform {
                     return telegramClient.getFile()
                             .fileId(firstPhoto.getFileId())
                             .make()
-                            .thenApply(File::getFilePath)
-                            .thenCompose(telegramClient::getFile);
+                            .thenApply(File::getFilePath);
                 });
     }
 
@@ -144,7 +175,65 @@ public final class TelegramPlatform implements Platform {
         return PlatformType.TELEGRAM;
     }
 
-    private CompletableFuture<TelegramSend<?>> sendAttachment(Attachment attachment, String caption) {
+    private static @Nullable String getUploadCacheKey(Attachment attachment) {
+        String cacheKey;
+        if ((cacheKey = attachment.cacheKey()) == null) {
+            return null;
+        }
+
+        return "telegram:" + attachment.type() + ":" + cacheKey;
+    }
+
+    private static @Nullable String getFileId(Message message) {
+        val photo = message.getPhoto();
+        val document = message.getDocument();
+
+        if (photo != null && !photo.isEmpty()) {
+            // all sizes of photo are available by file id of the largest one
+            return photo.get(photo.size() - 1).getFileId();
+        } else if (document != null) {
+            return document.getFileId();
+        }
+
+        return null;
+    }
+
+    private void rememberUpload(@Nullable Attachment attachment, Message message) {
+        String cacheKey;
+        if (attachment == null || (cacheKey = getUploadCacheKey(attachment)) == null) {
+            return;
+        }
+
+        String fileId;
+        if ((fileId = getFileId(message)) != null) {
+            uploadCache.put(cacheKey, fileId);
+        }
+    }
+
+    private TelegramSend<?> sendUploadedAttachment(Attachment attachment, String fileId, String caption) {
+        switch (attachment.type()) {
+            case PHOTO:
+                return telegramClient.sendPhoto().photo(fileId).caption(caption);
+            case DOCUMENT:
+                return telegramClient.sendDocument().document(fileId).caption(caption);
+            default:
+                throw new IllegalArgumentException("Unsupported attachment type");
+        }
+    }
+
+    /**
+     * Returns {@code true} if Telegram no longer accepts file id, e.g. "wrong file identifier/HTTP URL specified".
+     */
+    private static boolean isInvalidFileId(Throwable e) {
+        String message;
+
+        return e instanceof TelegramException
+               && ((TelegramException) e).getErrorCode() == 400
+               && (message = e.getMessage()) != null
+               && message.toLowerCase(Locale.ROOT).contains("file");
+    }
+
+    private CompletableFuture<TelegramSend<?>> uploadAttachment(Attachment attachment, String caption) {
         return attachment.createContent()
                 .thenApply(content -> {
                     switch (attachment.type()) {
@@ -162,6 +251,54 @@ public final class TelegramPlatform implements Platform {
 
     @Override
     public CompletableFuture<SentMessage> sendMessage(OutMessage message) {
+        return sendMessage(message, null)
+                .thenApply(m -> new SentMessage(this, m.getMessageId(), m.getMessageId(), message));
+    }
+
+    /**
+     * Sends message to every recipient, attachment is uploaded with the first message
+     * and then reused by its file id.
+     */
+    @Override
+    public Stream<CompletableFuture<BroadcastResult>> broadcast(Collection<Identity> recipients, OutMessage message) {
+        if (message.getAttachment() == null || recipients.size() < 2) {
+            return Platform.super.broadcast(recipients, message);
+        }
+
+        val results = new ArrayList<CompletableFuture<BroadcastResult>>(recipients.size());
+        val iterator = recipients.iterator();
+
+        val first = iterator.next();
+        val firstMessage = message.toBuilder().chat(first).build();
+        val firstSent = sendMessage(firstMessage, null);
+
+        results.add(toBroadcastResult(first, firstMessage, firstSent));
+
+        // if first message is failed, other messages will upload attachment themselves
+        val fileId = firstSent.handle((sent, e) -> e == null ? getFileId(sent) : null);
+
+        while (iterator.hasNext()) {
+            val recipient = iterator.next();
+            val recipientMessage = message.toBuilder().chat(recipient).build();
+
+            results.add(toBroadcastResult(recipient, recipientMessage,
+                    fileId.thenCompose(id -> sendMessage(recipientMessage, id))));
+        }
+
+        return results.stream();
+    }
+
+    private CompletableFuture<BroadcastResult> toBroadcastResult(
+            Identity recipient,
+            OutMessage message,
+            CompletableFuture<Message> sent
+    ) {
+        return sent.handle((m, e) -> e == null
+                ? BroadcastResult.success(recipient, new SentMessage(this, m.getMessageId(), m.getMessageId(), message))
+                : BroadcastResult.failure(recipient, FutureUtils.unwrap(e)));
+    }
+
+    private CompletableFuture<Message> sendMessage(OutMessage message, @Nullable String uploadedFileId) {
         val peer = message.getChat();
         if (peer.getPlatform() != PlatformType.TELEGRAM) {
             throw new IllegalArgumentException("Chat platform is not Telegram");
@@ -169,9 +306,45 @@ public final class TelegramPlatform implements Platform {
 
         val attachment = message.getAttachment();
 
-        CompletableFuture<TelegramSend<?>> sendFuture = attachment == null
-                ? completedFuture(telegramClient.sendMessage().text(message.getText()))
-                : sendAttachment(attachment, message.getText());
+        if (attachment == null) {
+            return send(message, completedFuture(telegramClient.sendMessage().text(message.getText())));
+        }
+
+        val cacheKey = getUploadCacheKey(attachment);
+
+        CompletableFuture<String> fileId;
+
+        if (uploadedFileId != null) {
+            fileId = completedFuture(uploadedFileId);
+        } else if (cacheKey == null || (fileId = uploadCache.getIfPresent(cacheKey)) == null) {
+            return send(message, uploadAttachment(attachment, message.getText()));
+        }
+
+        return send(message, fileId.thenApply(id -> sendUploadedAttachment(attachment, id, message.getText())))
+                .handle((m, e) -> {
+                    if (e == null) {
+                        return completedFuture(m);
+                    }
+
+                    val cause = FutureUtils.unwrap(e);
+
+                    if (!isInvalidFileId(cause)) {
+                        return CompletableFuture.<Message>failedFuture(cause);
+                    }
+
+                    // file is not available by its id anymore, so upload it again
+                    if (cacheKey != null) {
+                        uploadCache.invalidate(cacheKey);
+                    }
+
+                    return send(message, uploadAttachment(attachment, message.getText()));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<Message> send(OutMessage message, CompletableFuture<TelegramSend<?>> sendFuture) {
+        val peer = message.getChat();
+        val attachment = message.getAttachment();
 
         return sendFuture
                 .thenCompose(send -> {
@@ -197,7 +370,11 @@ public final class TelegramPlatform implements Platform {
 
                     return send.make();
                 })
-                .thenApply(m -> new SentMessage(this, m.getMessageId(), m.getMessageId(), message));
+                .thenApply(m -> {
+                    rememberUpload(attachment, m);
+
+                    return m;
+                });
     }
 
     @Override
@@ -372,12 +549,18 @@ public final class TelegramPlatform implements Platform {
 
             logger.info("Waiting for updates in bot @" + user.getUsername() + " (id: " + user.getId() + ")");
 
-            val telegram = new TelegramLongPoll(logger, telegramClient);
-            telegram.start(this::handleUpdate);
+            TelegramWebhook.Settings webhookSettings;
+            if ((webhookSettings = this.webhookSettings) != null) {
+                val webhook = new TelegramWebhook(logger, telegramClient, webhookSettings);
+                webhook.start(this::handleUpdate);
+            } else {
+                val telegram = new TelegramLongPoll(logger, longPollSettings, telegramClient);
+                telegram.start(this::handleUpdate);
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         } catch (Exception e) {
-            logger.error("Failed to start Telegram LongPoll", e);
+            logger.error("Failed to start receiving Telegram updates", e);
         }
     }
 }
@@ -0,0 +1,149 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform.telegram;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.sun.net.httpserver.HttpExchange;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Value;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import wbot.platform.AbstractWebhook;
+import wbot.platform.telegram.model.Update;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * @author whilein
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public final class TelegramWebhook extends AbstractWebhook<Update> {
+
+    private static final String SECRET_TOKEN_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    TelegramClient telegramClient;
+
+    JsonMapper jsonMapper;
+
+    Settings settings;
+
+    byte[] secretToken;
+
+    public TelegramWebhook(Logger logger, TelegramClient telegramClient, Settings settings) {
+        super(logger, settings.getAddress(), settings.getPath());
+
+        this.telegramClient = telegramClient;
+        this.jsonMapper = telegramClient.getJsonMapper();
+        this.settings = settings;
+
+        val secretToken = settings.getSecretToken();
+        this.secretToken = secretToken != null
+                ? secretToken.getBytes(StandardCharsets.UTF_8)
+                : null;
+    }
+
+    @Override
+    protected void onStart() throws Exception {
+        try {
+            telegramClient.setWebhook()
+                    .url(settings.getUrl())
+                    .secretToken(settings.getSecretToken())
+                    .maxConnections(settings.getMaxConnections())
+                    .make()
+                    .get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+
+        logger.info("Webhook set to " + settings.getUrl());
+    }
+
+    private boolean isAuthorized(HttpExchange exchange) {
+        byte[] secretToken;
+        if ((secretToken = this.secretToken) == null) {
+            return true;
+        }
+
+        val header = exchange.getRequestHeaders().getFirst(SECRET_TOKEN_HEADER);
+
+        return header != null && MessageDigest.isEqual(secretToken, header.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange, Consumer<Update> updateHandler) throws Exception {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            respond(exchange, 405, null);
+            return;
+        }
+
+        if (!isAuthorized(exchange)) {
+            respond(exchange, 401, null);
+            return;
+        }
+
+        Update update;
+
+        try (val body = exchange.getRequestBody()) {
+            update = jsonMapper.readValue(body, Update.class);
+        }
+
+        try {
+            updateHandler.accept(update);
+        } catch (Exception e) {
+            // do not make Telegram redeliver the update that we cannot handle anyway
+            logger.error("Cannot handle update", e);
+        }
+
+        respond(exchange, 200, null);
+    }
+
+    @Value
+    @Builder
+    public static class Settings {
+
+        /**
+         * Local address of embedded HTTP server.
+         */
+        InetSocketAddress address;
+
+        @Builder.Default
+        String path = "/";
+
+        /**
+         * Public HTTPS url, which Telegram will send updates to.
+         */
+        String url;
+
+        /**
+         * Token, that Telegram will send in {@code X-Telegram-Bot-Api-Secret-Token} header.
+         */
+        @Nullable
+        String secretToken;
+
+        @Builder.Default
+        int maxConnections = 40;
+
+    }
+
+}
@@ -0,0 +1,35 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform.telegram.method;
+
+import wbot.platform.telegram.TelegramClient;
+
+/**
+ * @author whilein
+ */
+public final class TelegramDeleteWebhook extends TelegramMethod<Boolean> {
+
+    public TelegramDeleteWebhook(TelegramClient client) {
+        super(client, "deleteWebhook", Boolean.class);
+    }
+
+    public TelegramDeleteWebhook dropPendingUpdates(boolean dropPendingUpdates) {
+        params.set("drop_pending_updates", dropPendingUpdates);
+        return this;
+    }
+
+}
@@ -11,6 +11,11 @@ public final class TelegramGetChat extends TelegramMethod<ChatFullInfo> {
         super(client, "getChat", ChatFullInfo.class);
     }
 
+    @Override
+    public boolean isIdempotent() {
+        return true;
+    }
+
     public TelegramGetChat setChatId(String chatId) {
         params.set("chat_id", chatId);
         return this;
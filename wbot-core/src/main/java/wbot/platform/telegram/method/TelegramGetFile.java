@@ -27,6 +27,11 @@ public final class TelegramGetFile extends TelegramMethod<File> {
         super(client, "getFile", File.class);
     }
 
+    @Override
+    public boolean isIdempotent() {
+        return true;
+    }
+
     public TelegramGetFile fileId(String fileId) {
         params.set("file_id", fileId);
         return this;
@@ -28,4 +28,9 @@ public final class TelegramGetMe extends TelegramMethod<User> {
         super(client, "getMe", User.class);
     }
 
+    @Override
+    public boolean isIdempotent() {
+        return true;
+    }
+
 }
@@ -19,6 +19,7 @@ package wbot.platform.telegram.method;
 import wbot.platform.telegram.TelegramClient;
 import wbot.platform.telegram.model.Update;
 
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -30,6 +31,11 @@ public final class TelegramGetUpdates extends TelegramMethod<Update[]> {
         super(client, "getUpdates", Update[].class);
     }
 
+    @Override
+    public boolean isLongPoll() {
+        return true;
+    }
+
     public TelegramGetUpdates offset(Integer offset) {
         params.set("offset", offset);
         return this;
@@ -45,6 +51,14 @@ public final class TelegramGetUpdates extends TelegramMethod<Update[]> {
         return this;
     }
 
+    /**
+     * Timeout of HTTP request, must be greater than {@link #timeout(Integer)}.
+     */
+    public TelegramGetUpdates requestTimeout(Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+        return this;
+    }
+
     public TelegramGetUpdates allowedUpdates(List<String> allowedUpdates) {
         params.set("allowedUpdates", allowedUpdates);
         return this;
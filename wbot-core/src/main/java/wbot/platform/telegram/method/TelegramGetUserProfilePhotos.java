@@ -27,6 +27,11 @@ public final class TelegramGetUserProfilePhotos extends TelegramMethod<UserProfi
         super(client, "getUserProfilePhotos", UserProfilePhotos.class);
     }
 
+    @Override
+    public boolean isIdempotent() {
+        return true;
+    }
+
     public TelegramGetUserProfilePhotos userId(long userId) {
         params.set("user_id", userId);
         return this;
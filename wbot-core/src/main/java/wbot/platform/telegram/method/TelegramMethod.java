@@ -21,9 +21,12 @@ import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.Accessors;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import org.jetbrains.annotations.Nullable;
 import wbot.platform.ApiMethod;
 import wbot.platform.telegram.TelegramClient;
 
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -45,6 +48,20 @@ public abstract class TelegramMethod<R> implements ApiMethod<R> {
     @Getter
     TelegramMethodParams params;
 
+    /**
+     * Chat, which this method is addressed to, used for rate limiting.
+     */
+    @Getter
+    @NonFinal
+    @Nullable Object chatId;
+
+    /**
+     * Timeout of HTTP request, {@code null} means default timeout of HTTP client.
+     */
+    @Getter
+    @NonFinal
+    @Nullable Duration requestTimeout;
+
     public TelegramMethod(TelegramClient client, String name, Class<? extends R> type) {
         this(client, name, type, new TelegramJsonMethodParams(client.getJsonMapper()));
     }
@@ -55,6 +72,14 @@ public abstract class TelegramMethod<R> implements ApiMethod<R> {
                 : new TelegramMultipartMethodParams(client.getJsonMapper()));
     }
 
+    /**
+     * Whether this method waits for updates on server, such methods are not rate limited or retried,
+     * so their timeouts are handled by long poll itself.
+     */
+    public boolean isLongPoll() {
+        return false;
+    }
+
     @Override
     public CompletableFuture<R> make() {
         return client.send(this);
@@ -21,9 +21,11 @@ import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
 import wbot.http.BytesContent;
 import wbot.http.Content;
 import wbot.http.EmbeddableContent;
+import wbot.http.InputStreamContent;
 import wbot.http.MultipartContent;
 
 import java.nio.charset.StandardCharsets;
@@ -39,6 +41,9 @@ public final class TelegramMultipartMethodParams implements TelegramMethodParams
 
     MultipartContent.Builder multiPartContent = new MultipartContent.Builder();
 
+    @NonFinal
+    boolean replayable = true;
+
     @Override
     @SneakyThrows
     public void set(String field, Object value) {
@@ -55,6 +60,16 @@ public final class TelegramMultipartMethodParams implements TelegramMethodParams
     @Override
     public void setFile(String field, String filename, EmbeddableContent content) {
         multiPartContent.addPart(new MultipartContent.Part(field, filename, content));
+
+        if (content instanceof InputStreamContent) {
+            // stream can't be read twice
+            replayable = false;
+        }
+    }
+
+    @Override
+    public boolean isReplayable() {
+        return replayable;
     }
 
     @SneakyThrows
@@ -40,6 +40,7 @@ public abstract class TelegramSend<S extends TelegramSend<S>> extends TelegramMe
     }
 
     public S chatId(long chatId) {
+        this.chatId = chatId;
         params.set("chat_id", chatId);
         return self();
     }
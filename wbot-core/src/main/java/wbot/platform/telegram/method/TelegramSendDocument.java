@@ -34,6 +34,17 @@ public final class TelegramSendDocument extends TelegramSend<TelegramSendDocumen
         return this;
     }
 
+    /**
+     * Sends document, which was already uploaded to Telegram.
+     *
+     * @param fileId file id of document
+     * @return this method
+     */
+    public TelegramSendDocument document(String fileId) {
+        params.set("document", fileId);
+        return this;
+    }
+
     @SneakyThrows
     public TelegramSendDocument document(String filename, EmbeddableContent content) {
         params.setFile("document", filename, content);
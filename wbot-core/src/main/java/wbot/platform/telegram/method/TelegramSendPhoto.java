@@ -34,6 +34,17 @@ public final class TelegramSendPhoto extends TelegramSend<TelegramSendPhoto> {
         return this;
     }
 
+    /**
+     * Sends photo, which was already uploaded to Telegram.
+     *
+     * @param fileId file id of photo
+     * @return this method
+     */
+    public TelegramSendPhoto photo(String fileId) {
+        params.set("photo", fileId);
+        return this;
+    }
+
     @SneakyThrows
     public TelegramSendPhoto photo(String filename, EmbeddableContent content) {
         params.setFile("photo", filename, content);
@@ -0,0 +1,57 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform.telegram.method;
+
+import wbot.platform.telegram.TelegramClient;
+
+import java.util.List;
+
+/**
+ * @author whilein
+ */
+public final class TelegramSetWebhook extends TelegramMethod<Boolean> {
+
+    public TelegramSetWebhook(TelegramClient client) {
+        super(client, "setWebhook", Boolean.class);
+    }
+
+    public TelegramSetWebhook url(String url) {
+        params.set("url", url);
+        return this;
+    }
+
+    public TelegramSetWebhook secretToken(String secretToken) {
+        params.set("secret_token", secretToken);
+        return this;
+    }
+
+    public TelegramSetWebhook maxConnections(Integer maxConnections) {
+        params.set("max_connections", maxConnections);
+        return this;
+    }
+
+    public TelegramSetWebhook allowedUpdates(List<String> allowedUpdates) {
+        params.set("allowed_updates", allowedUpdates);
+        return this;
+    }
+
+    public TelegramSetWebhook dropPendingUpdates(boolean dropPendingUpdates) {
+        params.set("drop_pending_updates", dropPendingUpdates);
+        return this;
+    }
+
+}
@@ -45,4 +45,5 @@ public class Message {
     String caption;
     Message replyToMessage;
     List<PhotoSize> photo;
+    Document document;
 }
@@ -36,4 +36,15 @@ public class ResponseOrError<T> {
     Integer errorCode;
     String description;
     T result;
+    Parameters parameters;
+
+    @Value
+    @Builder
+    @Jacksonized
+    @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Parameters {
+        Long migrateToChatId;
+        Integer retryAfter;
+    }
 }
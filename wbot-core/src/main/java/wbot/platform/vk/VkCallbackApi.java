@@ -0,0 +1,145 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform.vk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.sun.net.httpserver.HttpExchange;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Value;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import wbot.platform.AbstractWebhook;
+import wbot.platform.vk.model.update.Update;
+import wbot.platform.vk.model.update.UpdateObject;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.function.Consumer;
+
+/**
+ * Receives updates through VK Callback API.
+ *
+ * @author whilein
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public final class VkCallbackApi extends AbstractWebhook<UpdateObject> {
+
+    private static final byte[] OK = "ok".getBytes(StandardCharsets.US_ASCII);
+
+    JsonMapper jsonMapper;
+
+    long groupId;
+
+    byte[] confirmationCode;
+
+    byte[] secret;
+
+    public VkCallbackApi(Logger logger, VkClient vkClient, long groupId, Settings settings) {
+        super(logger, settings.getAddress(), settings.getPath());
+
+        this.jsonMapper = vkClient.getJsonMapper();
+        this.groupId = groupId;
+        this.confirmationCode = settings.getConfirmationCode().getBytes(StandardCharsets.UTF_8);
+
+        val secret = settings.getSecret();
+        this.secret = secret != null
+                ? secret.getBytes(StandardCharsets.UTF_8)
+                : null;
+    }
+
+    private boolean isAuthorized(JsonNode request) {
+        byte[] secret;
+        if ((secret = this.secret) == null) {
+            return true;
+        }
+
+        val requestSecret = request.path("secret").textValue();
+
+        return requestSecret != null && MessageDigest.isEqual(secret, requestSecret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange, Consumer<UpdateObject> updateHandler) throws Exception {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            respond(exchange, 405, null);
+            return;
+        }
+
+        JsonNode request;
+
+        try (val body = exchange.getRequestBody()) {
+            request = jsonMapper.readTree(body);
+        }
+
+        if (request.path("group_id").asLong() != groupId) {
+            respond(exchange, 403, null);
+            return;
+        }
+
+        if ("confirmation".equals(request.path("type").textValue())) {
+            respond(exchange, 200, confirmationCode);
+            return;
+        }
+
+        if (!isAuthorized(request)) {
+            respond(exchange, 403, null);
+            return;
+        }
+
+        val update = jsonMapper.treeToValue(request, Update.class);
+
+        try {
+            updateHandler.accept(update.getObject());
+        } catch (Exception e) {
+            // do not make VK redeliver the update that we cannot handle anyway
+            logger.error("Cannot handle update", e);
+        }
+
+        respond(exchange, 200, OK);
+    }
+
+    @Value
+    @Builder
+    public static class Settings {
+
+        /**
+         * Local address of embedded HTTP server.
+         */
+        InetSocketAddress address;
+
+        @Builder.Default
+        String path = "/";
+
+        /**
+         * String, that server should return to confirm its address.
+         */
+        String confirmationCode;
+
+        /**
+         * Secret key, that VK sends in every request.
+         */
+        @Nullable
+        String secret;
+
+    }
+
+}
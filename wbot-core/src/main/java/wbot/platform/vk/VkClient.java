@@ -16,15 +16,27 @@
 
 package wbot.platform.vk;
 
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
 import lombok.experimental.FieldDefaults;
 import lombok.val;
+import org.jetbrains.annotations.Nullable;
 import wbot.http.HttpClient;
 import wbot.http.HttpResponse;
+import wbot.http.HttpStatusException;
+import wbot.jfr.ApiCallEvent;
+import wbot.metrics.MetricsRecorder;
+import wbot.platform.PlatformType;
+import wbot.platform.ResiliencePolicy;
 import wbot.platform.vk.method.VkDocsGetMessagesUploadServer;
 import wbot.platform.vk.method.VkDocsSave;
+import wbot.platform.vk.method.VkExecute;
 import wbot.platform.vk.method.VkGroupsGetById;
 import wbot.platform.vk.method.VkGroupsGetLongPollServer;
 import wbot.platform.vk.method.VkGroupsGetLongPollSettings;
@@ -32,15 +44,23 @@ import wbot.platform.vk.method.VkMessagesEdit;
 import wbot.platform.vk.method.VkMessagesSend;
 import wbot.platform.vk.method.VkMessagesSendEventAnswer;
 import wbot.platform.vk.method.VkMethod;
+import wbot.platform.vk.method.VkMethodParams;
 import wbot.platform.vk.method.VkPhotosGetMessagesUploadServer;
 import wbot.platform.vk.method.VkPhotosSaveMessagesPhoto;
 import wbot.platform.vk.method.VkUsersGet;
 import wbot.platform.vk.model.ResponseOrError;
 import wbot.util.Env;
+import wbot.util.FutureUtils;
+import wbot.util.RateLimiter;
 
 import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * @author whilein
@@ -52,19 +72,68 @@ public final class VkClient {
     private static final String API_URL = Env.getString("WBOT_VK_CLIENT_URL",
             "https://api.vk.ru/method/");
 
+    private static final String API_HOST = URI.create(API_URL).getHost();
+
     private static final String API_VERSION = "5.199";
 
-    String defaultParams;
+    static final int TOO_MANY_REQUESTS_PER_SECOND = 6;
+
+    static final int MAX_RATE_LIMIT_RETRIES = 3;
+
+    private static final Duration RATE_LIMIT_PENALTY = Duration.ofSeconds(1);
+
+    private static final JavaType EXECUTE_RESPONSE_TYPE = TypeFactory.defaultInstance()
+            .constructParametricType(ResponseOrError.class, JsonNode.class);
+
+    /**
+     * Encoded {@code access_token}, {@code v} and {@code lang} params, which are copied to every method,
+     * must not be modified or exposed, because they contain the token.
+     */
+    @Getter(AccessLevel.NONE)
+    byte[] defaultParams;
 
     HttpClient httpClient;
     JsonMapper jsonMapper;
 
+    RateLimiter rateLimiter;
+
+    ResiliencePolicy resiliencePolicy;
+
+    MetricsRecorder metricsRecorder;
+
+    @Getter(AccessLevel.NONE)
+    @Nullable VkExecuteBatcher batcher;
+
     public VkClient(String token, HttpClient httpClient, JsonMapper jsonMapper) {
-        this.defaultParams = "access_token=" + token
-                             + "&v=" + API_VERSION
-                             + "&lang=ru";
+        this(token, httpClient, jsonMapper, Builder.defaultRateLimiter(), Builder.defaultResiliencePolicy(),
+                MetricsRecorder.noop(), null);
+    }
+
+    private VkClient(
+            String token,
+            HttpClient httpClient,
+            JsonMapper jsonMapper,
+            RateLimiter rateLimiter,
+            ResiliencePolicy resiliencePolicy,
+            MetricsRecorder metricsRecorder,
+            @Nullable Duration batchWindow
+    ) {
+        this.defaultParams = ("access_token=" + token
+                              + "&v=" + API_VERSION
+                              + "&lang=ru").getBytes(StandardCharsets.UTF_8);
         this.httpClient = httpClient;
         this.jsonMapper = jsonMapper;
+        this.rateLimiter = rateLimiter;
+        this.resiliencePolicy = resiliencePolicy;
+        this.metricsRecorder = metricsRecorder;
+        this.batcher = batchWindow != null ? new VkExecuteBatcher(this, batchWindow) : null;
+    }
+
+    /**
+     * Creates params of new method, which already contain {@code access_token}, {@code v} and {@code lang}.
+     */
+    public VkMethodParams newMethodParams() {
+        return new VkMethodParams(jsonMapper, defaultParams);
     }
 
 
@@ -72,6 +141,10 @@ public final class VkClient {
         return new VkDocsGetMessagesUploadServer(this);
     }
 
+    public VkExecute execute() {
+        return new VkExecute(this);
+    }
+
     public VkDocsSave docsSave() {
         return new VkDocsSave(this);
     }
@@ -113,29 +186,181 @@ public final class VkClient {
     }
 
     public <R> CompletableFuture<R> send(VkMethod<R> method) {
+        val start = System.nanoTime();
+
+        CompletableFuture<R> result;
+
+        VkExecuteBatcher batcher;
+        if ((batcher = this.batcher) != null && method.batchable()) {
+            result = batcher.submit(method);
+        } else {
+            result = sendUnbatched(method);
+        }
+
+        result.whenComplete((__, e) -> metricsRecorder.apiCallCompleted(PlatformType.VK, method.name(),
+                System.nanoTime() - start, e != null ? FutureUtils.unwrap(e) : null));
+
+        return result;
+    }
+
+    <R> CompletableFuture<R> sendUnbatched(VkMethod<R> method) {
         val type = jsonMapper.getTypeFactory().constructParametricType(ResponseOrError.class, method.type());
 
-        return httpClient.post(API_URL + method.name(), method.params().asContent())
+        return resiliencePolicy.execute(API_HOST, method, () -> limited(() -> this.<R>request(method, type)
+                .thenApply(ResponseOrError::getResponse), 0));
+    }
+
+    CompletableFuture<ResponseOrError<JsonNode>> executeBatch(VkExecute execute) {
+        return resiliencePolicy.execute(API_HOST, execute, () -> limited(() -> request(execute,
+                EXECUTE_RESPONSE_TYPE), 0));
+    }
+
+    /**
+     * Slows down all requests after API reported, that limit was exceeded.
+     */
+    void penalize() {
+        rateLimiter.penalize(RATE_LIMIT_PENALTY);
+    }
+
+    private <T> CompletableFuture<T> limited(Supplier<CompletableFuture<T>> request, int attempt) {
+        return rateLimiter.acquire()
+                .thenCompose(__ -> request.get())
+                .handle((result, e) -> {
+                    if (e == null) {
+                        return CompletableFuture.completedFuture(result);
+                    }
+
+                    val cause = FutureUtils.unwrap(e);
+
+                    if (cause instanceof VkException
+                        && ((VkException) cause).getErrorCode() == TOO_MANY_REQUESTS_PER_SECOND
+                        && attempt < MAX_RATE_LIMIT_RETRIES) {
+                        // limit is shared with other applications using the same token,
+                        // so slow down everyone and try again
+                        penalize();
+
+                        return limited(request, attempt + 1);
+                    }
+
+                    return CompletableFuture.<T>failedFuture(cause);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private <R> CompletableFuture<ResponseOrError<R>> request(VkMethod<?> method, JavaType type) {
+        val content = method.params().asContent();
+
+        val event = new ApiCallEvent();
+        event.begin();
+
+        return httpClient.postBuffered(API_URL + method.name(), content)
                 .thenApply(response -> {
+                    metricsRecorder.httpRequestCompleted(PlatformType.VK, response.getStatus(), response.getTiming());
+
+                    if (event.isEnabled()) {
+                        event.setStatus(response.getStatus());
+                    }
+
+                    if (response.getStatus() >= 500) {
+                        throw new CompletionException(new HttpStatusException(response.getStatus()));
+                    }
+
                     ResponseOrError<R> responseOrError;
 
-                    try (val content = response.getContent()) {
-                        responseOrError = jsonMapper.readValue(content, type);
+                    try {
+                        val bytes = response.getBytes();
+
+                        if (event.isEnabled()) {
+                            event.setBytesIn(bytes.length);
+                        }
+
+                        responseOrError = jsonMapper.readValue(bytes, type);
                     } catch (IOException e) {
                         throw new CompletionException(e);
                     }
 
                     val error = responseOrError.getError();
                     if (error != null) {
-                        throw new VkException("[" + error.getErrorCode() + "] " + error.getErrorMsg());
+                        throw new VkException("[" + error.getErrorCode() + "] " + error.getErrorMsg(),
+                                error.getErrorCode(), null);
                     }
 
-                    return responseOrError.getResponse();
-                });
+                    return responseOrError;
+                })
+                .whenComplete((__, e) -> event.complete(PlatformType.VK, method.name(), content, e));
     }
 
     public CompletableFuture<HttpResponse> getFile(String url) {
         return httpClient.get(url);
     }
 
+    @Accessors(fluent = true)
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static final class Builder {
+
+        @Setter
+        String token;
+
+        @Setter
+        HttpClient httpClient;
+
+        @Setter
+        JsonMapper jsonMapper;
+
+        /**
+         * Limit of requests for whole token, VK allows 20 requests per second for community tokens.
+         */
+        @Setter
+        RateLimiter rateLimiter;
+
+        /**
+         * If set, API calls made within this window are sent together in one {@code execute}
+         * (up to 25 calls), which reduces count of requests.
+         */
+        @Setter
+        Duration batchWindow;
+
+        /**
+         * Retries and circuit breaking of API calls, use {@link ResiliencePolicy#disabled()} to send
+         * every call once.
+         */
+        @Setter
+        ResiliencePolicy resiliencePolicy;
+
+        /**
+         * Receives latencies and errors of API methods, nothing is recorded by default.
+         */
+        @Setter
+        MetricsRecorder metricsRecorder;
+
+        private static RateLimiter defaultRateLimiter() {
+            return RateLimiter.create(20, 1);
+        }
+
+        private static ResiliencePolicy defaultResiliencePolicy() {
+            return new ResiliencePolicy.Builder().build();
+        }
+
+        public VkClient build() {
+            RateLimiter rateLimiter;
+            if ((rateLimiter = this.rateLimiter) == null) {
+                rateLimiter = defaultRateLimiter();
+            }
+
+            ResiliencePolicy resiliencePolicy;
+            if ((resiliencePolicy = this.resiliencePolicy) == null) {
+                resiliencePolicy = defaultResiliencePolicy();
+            }
+
+            MetricsRecorder metricsRecorder;
+            if ((metricsRecorder = this.metricsRecorder) == null) {
+                metricsRecorder = MetricsRecorder.noop();
+            }
+
+            return new VkClient(token, httpClient, jsonMapper, rateLimiter, resiliencePolicy, metricsRecorder,
+                    batchWindow);
+        }
+
+    }
+
 }
@@ -16,10 +16,17 @@
 
 package wbot.platform.vk;
 
+import org.jetbrains.annotations.Nullable;
+import wbot.platform.ApiException;
+
+import java.time.Duration;
+
 /**
  * @author whilein
  */
-public final class VkException extends RuntimeException {
+public final class VkException extends ApiException {
+
+    private static final int INTERNAL_SERVER_ERROR = 10;
 
     public VkException() {
     }
@@ -32,14 +39,13 @@ public final class VkException extends RuntimeException {
         super(message, cause);
     }
 
-    @Override
-    public Throwable fillInStackTrace() {
-        return this;
+    public VkException(String message, int errorCode, @Nullable Duration retryAfter) {
+        super(message, errorCode, retryAfter);
     }
 
     @Override
-    public Throwable initCause(Throwable cause) {
-        return this;
+    public boolean isTransient() {
+        return getErrorCode() == INTERNAL_SERVER_ERROR;
     }
 
 }
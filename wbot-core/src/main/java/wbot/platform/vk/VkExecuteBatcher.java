@@ -0,0 +1,237 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform.vk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.val;
+import wbot.platform.vk.method.VkExecute;
+import wbot.platform.vk.method.VkMethod;
+import wbot.platform.vk.model.ResponseOrError;
+import wbot.util.AbstractBatcher;
+import wbot.util.FutureUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Coalesces API calls made within short window into one {@code execute} call.
+ *
+ * @author whilein
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+final class VkExecuteBatcher extends AbstractBatcher<VkExecuteBatcher.Call<?>, VkExecuteBatcher.Call<?>> {
+
+    /**
+     * Maximum count of API calls in one {@code execute}.
+     */
+    static final int MAX_CALLS = 25;
+
+    VkClient client;
+
+    JsonMapper jsonMapper;
+
+    VkExecuteBatcher(VkClient client, Duration window) {
+        super(MAX_CALLS, window);
+
+        this.client = client;
+        this.jsonMapper = client.getJsonMapper();
+    }
+
+    public <R> CompletableFuture<R> submit(VkMethod<R> method) {
+        val call = new Call<>(method, new CompletableFuture<R>());
+        enqueue(call);
+
+        return call.result;
+    }
+
+    private void enqueue(Call<?> call) {
+        // every call is sent, so call itself is the key
+        submit(call, Function.identity());
+    }
+
+    @Override
+    protected void flush(Map<Call<?>, Call<?>> calls) {
+        val batch = new ArrayList<>(calls.values());
+
+        if (batch.size() == 1) {
+            // execute gives nothing for one call
+            batch.get(0).sendDirectly(client);
+            return;
+        }
+
+        String code;
+
+        try {
+            code = createCode(batch);
+        } catch (JsonProcessingException e) {
+            for (val call : batch) {
+                call.result.completeExceptionally(e);
+            }
+            return;
+        }
+
+        client.executeBatch(new VkExecute(client).code(code).idempotent(isIdempotent(batch)))
+                .whenComplete((response, e) -> {
+                    if (e != null) {
+                        val cause = FutureUtils.unwrap(e);
+
+                        for (val call : batch) {
+                            call.result.completeExceptionally(cause);
+                        }
+                    } else {
+                        complete(batch, response);
+                    }
+                });
+    }
+
+    private static boolean isIdempotent(List<Call<?>> batch) {
+        for (val call : batch) {
+            if (!call.method.isIdempotent()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private String createCode(List<Call<?>> batch) throws JsonProcessingException {
+        val code = new StringBuilder("return [");
+
+        for (int i = 0, j = batch.size(); i < j; i++) {
+            if (i != 0) {
+                code.append(',');
+            }
+
+            val method = batch.get(i).method;
+
+            code.append("API.").append(method.name()).append('(')
+                    .append(jsonMapper.writeValueAsString(method.params().asMap()))
+                    .append(')');
+        }
+
+        return code.append("];").toString();
+    }
+
+    private void complete(List<Call<?>> batch, ResponseOrError<JsonNode> response) {
+        val results = response.getResponse();
+        val errors = response.getExecuteErrors();
+
+        int errorIndex = 0;
+        boolean penalized = false;
+
+        for (int i = 0, j = batch.size(); i < j; i++) {
+            val call = batch.get(i);
+            val result = results != null ? results.get(i) : null;
+
+            if (result == null) {
+                call.result.completeExceptionally(new VkException("No result in execute response"));
+                continue;
+            }
+
+            int matchedError;
+
+            // failed call returns false, but so can succeeded one. Errors are listed in order of calls,
+            // so false result is failed only if there is an error of the same method after previous one
+            if (result.isBoolean() && !result.booleanValue()
+                && (matchedError = findError(errors, errorIndex, call.method.name())) != -1) {
+                val error = errors.get(matchedError);
+                errorIndex = matchedError + 1;
+
+                if (error.getErrorCode() == VkClient.TOO_MANY_REQUESTS_PER_SECOND
+                    && call.attempt < VkClient.MAX_RATE_LIMIT_RETRIES) {
+                    if (!penalized) {
+                        client.penalize();
+                        penalized = true;
+                    }
+
+                    call.attempt++;
+                    enqueue(call);
+                    continue;
+                }
+
+                call.result.completeExceptionally(new VkException(
+                        "[" + error.getErrorCode() + "] " + error.getErrorMsg(),
+                        error.getErrorCode(), null));
+                continue;
+            }
+
+            call.complete(jsonMapper, result);
+        }
+    }
+
+    private static int findError(List<ResponseOrError.Error> errors, int from, String method) {
+        if (errors == null) {
+            return -1;
+        }
+
+        for (int i = from, j = errors.size(); i < j; i++) {
+            val errorMethod = errors.get(i).getMethod();
+
+            if (errorMethod == null || errorMethod.equals(method)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    @RequiredArgsConstructor
+    static final class Call<R> {
+
+        VkMethod<R> method;
+
+        CompletableFuture<R> result;
+
+        /**
+         * Count of times call was sent again after rate limit error.
+         */
+        @NonFinal
+        int attempt;
+
+        private void sendDirectly(VkClient client) {
+            client.sendUnbatched(method)
+                    .whenComplete((value, e) -> {
+                        if (e != null) {
+                            result.completeExceptionally(FutureUtils.unwrap(e));
+                        } else {
+                            result.complete(value);
+                        }
+                    });
+        }
+
+        private void complete(JsonMapper jsonMapper, JsonNode node) {
+            try {
+                result.complete(jsonMapper.treeToValue(node, method.type()));
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+    }
+
+}
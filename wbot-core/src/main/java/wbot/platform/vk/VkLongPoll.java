@@ -17,6 +17,8 @@
 package wbot.platform.vk;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import lombok.AccessLevel;
 import lombok.Builder;
@@ -25,9 +27,13 @@ import lombok.experimental.FieldDefaults;
 import lombok.experimental.NonFinal;
 import lombok.extern.jackson.Jacksonized;
 import lombok.val;
+import org.jetbrains.annotations.VisibleForTesting;
 import org.slf4j.Logger;
 import wbot.http.HttpClient;
+import wbot.http.HttpResponse;
 import wbot.platform.AbstractLongPoll;
+import wbot.platform.LongPollSettings;
+import wbot.platform.PlatformType;
 import wbot.platform.vk.model.update.Update;
 import wbot.platform.vk.model.update.UpdateObject;
 
@@ -35,7 +41,6 @@ import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
@@ -43,9 +48,7 @@ import java.util.function.Consumer;
  */
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public final class VkLongPoll extends AbstractLongPoll<UpdateObject> {
-    private static final String URL = "%s?act=a_check&key=%s&ts=%s&wait=90";
-
-    private static final int TIMEOUT_SECONDS = 300000; // 5 минут
+    private static final String URL = "%s?act=a_check&key=%s&ts=%s&wait=%d";
 
     VkClient vkClient;
 
@@ -60,8 +63,8 @@ public final class VkLongPoll extends AbstractLongPoll<UpdateObject> {
     @NonFinal
     String server, key, ts;
 
-    public VkLongPoll(Logger logger, VkClient vkClient, long groupId) {
-        super(logger);
+    public VkLongPoll(Logger logger, LongPollSettings settings, VkClient vkClient, long groupId) {
+        super(logger, settings, PlatformType.VK, vkClient.getMetricsRecorder());
 
         this.vkClient = vkClient;
         this.groupId = groupId;
@@ -98,14 +101,16 @@ public final class VkLongPoll extends AbstractLongPoll<UpdateObject> {
         this.uri = String.format(URL,
                 server,
                 key,
-                ts);
+                ts,
+                settings.getWait().getSeconds());
     }
 
     @Value
     @Builder
     @Jacksonized
+    @VisibleForTesting
     @JsonIgnoreProperties(ignoreUnknown = true)
-    private static class Response {
+    static class Response {
         int failed;
         Object ts;
         List<Update> updates;
@@ -113,15 +118,19 @@ public final class VkLongPoll extends AbstractLongPoll<UpdateObject> {
 
     @Override
     protected void poll(Consumer<UpdateObject> updateHandler) throws Exception {
-        val response = httpClient.get(uri)
+        if (settings.isStreaming()) {
+            pollStreaming(updateHandler);
+            return;
+        }
+
+        val response = await(httpClient.getBuffered(uri, settings.getStallTimeout())
                 .thenApply(value -> {
-                    try (val content = value.getContent()) {
-                        return jsonMapper.readValue(content, Response.class);
+                    try {
+                        return jsonMapper.readValue(value.getBytes(), Response.class);
                     } catch (IOException e) {
                         throw new CompletionException(e);
                     }
-                })
-                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                }));
 
         switch (response.failed) {
             case 0:
@@ -150,4 +159,72 @@ public final class VkLongPoll extends AbstractLongPoll<UpdateObject> {
         }
     }
 
+    private void pollStreaming(Consumer<UpdateObject> updateHandler) throws Exception {
+        int failed = 0;
+        String ts = null;
+        int count = 0;
+
+        try (HttpResponse response = await(httpClient.get(uri, settings.getStallTimeout()));
+             JsonParser parser = jsonMapper.createParser(response.getContent())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected long poll response: " + parser.currentToken());
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                val field = parser.getCurrentName();
+                val value = parser.nextToken();
+
+                switch (field) {
+                    case "failed":
+                        failed = parser.getIntValue();
+                        break;
+                    case "ts":
+                        ts = parser.getValueAsString();
+
+                        if (failed == 0) {
+                            // advance before updates are handled, so delivery is at-most-once like buffered poll
+                            this.ts = ts;
+                            updateUri();
+                        }
+                        break;
+                    case "updates":
+                        if (value != JsonToken.START_ARRAY) {
+                            parser.skipChildren();
+                            break;
+                        }
+
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            val update = parser.readValueAs(Update.class);
+                            count++;
+
+                            try {
+                                updateHandler.accept(update.getObject());
+                            } catch (Exception e) {
+                                logger.error("Cannot handle update", e);
+                            }
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+
+        switch (failed) {
+            case 0:
+                this.ts = ts;
+                updateUri();
+
+                logger.debug("Received {} updates", count);
+                break;
+            case 1:
+                this.ts = ts;
+                updateUri();
+                break;
+            case 2:
+            case 3:
+                updateServer();
+        }
+    }
+
 }
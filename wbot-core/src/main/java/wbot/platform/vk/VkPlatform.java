@@ -28,10 +28,13 @@ import lombok.val;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import wbot.event.EventDispatcher;
+import wbot.http.ContentLengthExtractingContentVisitor;
 import wbot.http.EmbeddableContent;
 import wbot.http.HttpResponse;
 import wbot.http.MultipartContent;
+import wbot.jfr.AttachmentUploadEvent;
 import wbot.model.Attachment;
+import wbot.model.BroadcastResult;
 import wbot.model.Identity;
 import wbot.model.IdentityHolder;
 import wbot.model.IdentityName;
@@ -42,6 +45,8 @@ import wbot.model.OutMessage;
 import wbot.model.Photo;
 import wbot.model.PhotoSize;
 import wbot.model.SentMessage;
+import wbot.platform.IdentityCache;
+import wbot.platform.LongPollSettings;
 import wbot.platform.Platform;
 import wbot.platform.PlatformType;
 import wbot.platform.vk.mapper.VkInlineKeyboardMapper;
@@ -59,15 +64,26 @@ import wbot.platform.vk.model.User;
 import wbot.platform.vk.model.update.MessageEvent;
 import wbot.platform.vk.model.update.MessageNew;
 import wbot.platform.vk.model.update.UpdateObject;
+import wbot.util.AsyncCache;
+import wbot.util.BatchLoader;
 import wbot.util.FutureUtils;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.function.ObjLongConsumer;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * @author whilein
@@ -76,6 +92,20 @@ import java.util.function.Predicate;
 @RequiredArgsConstructor
 public final class VkPlatform implements Platform {
 
+    private static final int MAX_USERS_PER_REQUEST = 1000;
+
+    private static final int MAX_GROUPS_PER_REQUEST = 500;
+
+    private static final int MAX_PEERS_PER_MESSAGE = 100;
+
+    private static final Duration LOOKUP_WINDOW = Duration.ofMillis(5);
+
+    /**
+     * Fields, requested for every user or group lookup, so that lookups of name
+     * and avatar are served by the same batch.
+     */
+    private static final String[] LOOKUP_FIELDS = {"photo_100", "photo_200", "photo_400"};
+
     long documentOwnerId;
 
     @Getter
@@ -86,10 +116,31 @@ public final class VkPlatform implements Platform {
 
     EventDispatcher eventDispatcher;
 
+    /**
+     * Callback API settings, if {@code null}, long poll is used to receive updates.
+     */
+    @Nullable
+    VkCallbackApi.Settings callbackApiSettings;
+
+    LongPollSettings longPollSettings;
+
+    IdentityCache identityCache;
+
+    /**
+     * Attachment strings of uploaded attachments by {@link Attachment#cacheKey()}.
+     */
+    AsyncCache<String, String> uploadCache;
+
     @Getter
     @NonFinal
     IdentityHolder identity;
 
+    BatchLoader<Long, User> userLoader = new BatchLoader<>(this::loadUsers, MAX_USERS_PER_REQUEST,
+            LOOKUP_WINDOW);
+
+    BatchLoader<Long, Group> groupLoader = new BatchLoader<>(this::loadGroups, MAX_GROUPS_PER_REQUEST,
+            LOOKUP_WINDOW);
+
     private void handleUpdate(UpdateObject object) {
         if (object instanceof MessageNew) {
             val message = ((MessageNew) object).getMessage();
@@ -121,52 +172,87 @@ public final class VkPlatform implements Platform {
         String file;
     }
 
-    private <T> CompletableFuture<T> upload(String fileName, EmbeddableContent file, String uploadUrl, Class<T> type) {
+    private <T> CompletableFuture<T> upload(
+            String fileName,
+            EmbeddableContent file,
+            String uploadUrl,
+            Class<T> type,
+            AttachmentUploadEvent event
+    ) {
         val httpClient = vkClient.getHttpClient();
 
         val requestContent = new MultipartContent.Builder()
                 .addPart(new MultipartContent.Part("file", fileName, file))
                 .build();
 
-        return httpClient.post(uploadUrl, requestContent)
+        if (event.isEnabled()) {
+            event.setSize(file.accept(ContentLengthExtractingContentVisitor.getInstance()));
+        }
+
+        return timed(() -> httpClient.postBuffered(uploadUrl, requestContent), event,
+                AttachmentUploadEvent::setTransferDuration)
                 .thenApply(response -> {
-                    try (val content = response.getContent()) {
-                        return vkClient.getJsonMapper().readValue(content, type);
+                    try {
+                        return vkClient.getJsonMapper().readValue(response.getBytes(), type);
                     } catch (IOException e) {
                         throw new CompletionException(e);
                     }
                 });
     }
 
-    private <T> CompletableFuture<T> upload(Attachment attachment, String uploadUrl, Class<T> type) {
-        return attachment.createContent()
-                .thenCompose(content -> upload(attachment.fileName(), content, uploadUrl, type));
+    private <T> CompletableFuture<T> upload(
+            Attachment attachment,
+            String uploadUrl,
+            Class<T> type,
+            AttachmentUploadEvent event
+    ) {
+        return timed(attachment::createContent, event, AttachmentUploadEvent::setContentDuration)
+                .thenCompose(content -> upload(attachment.fileName(), content, uploadUrl, type, event));
     }
 
-    private CompletableFuture<Document> uploadDocument(Attachment document) {
-        return vkClient.docsGetMessagesUploadServer().peerId(documentOwnerId).make()
-                .thenCompose(result -> upload(document, result.getUploadUrl(), DocumentUploadResult.class))
-                .thenCompose(result -> vkClient.docsSave()
+    private CompletableFuture<Document> uploadDocument(Attachment document, AttachmentUploadEvent event) {
+        return timed(() -> vkClient.docsGetMessagesUploadServer().peerId(documentOwnerId).make(), event,
+                AttachmentUploadEvent::setUploadServerDuration)
+                .thenCompose(result -> upload(document, result.getUploadUrl(), DocumentUploadResult.class, event))
+                .thenCompose(result -> timed(() -> vkClient.docsSave()
                         .file(result.file)
-                        .make())
+                        .make(), event, AttachmentUploadEvent::setSaveDuration))
                 .thenApply(VkDocsSave.Result::getDoc);
     }
 
 
-    private CompletableFuture<wbot.platform.vk.model.Photo> uploadPhoto(Attachment photo) {
-        return vkClient.photosGetMessagesUploadServer().make()
-                .thenCompose(result -> upload(photo, result.getUploadUrl(), PhotoUploadResult.class))
-                .thenCompose(result -> vkClient.photosSaveMessagesPhoto()
+    private CompletableFuture<wbot.platform.vk.model.Photo> uploadPhoto(Attachment photo, AttachmentUploadEvent event) {
+        return timed(() -> vkClient.photosGetMessagesUploadServer().make(), event,
+                AttachmentUploadEvent::setUploadServerDuration)
+                .thenCompose(result -> upload(photo, result.getUploadUrl(), PhotoUploadResult.class, event))
+                .thenCompose(result -> timed(() -> vkClient.photosSaveMessagesPhoto()
                         .server(result.server)
                         .hash(result.hash)
                         .photo(result.photo)
-                        .make())
+                        .make(), event, AttachmentUploadEvent::setSaveDuration))
                 .thenApply(photos -> photos[0])
                 .whenComplete((r, e) -> {
                     if (e != null) logger.error("", e);
                 });
     }
 
+    /**
+     * Starts phase of upload and reports its duration, when it completes and event is enabled.
+     */
+    private static <T> CompletableFuture<T> timed(
+            Supplier<CompletableFuture<T>> phase,
+            AttachmentUploadEvent event,
+            ObjLongConsumer<AttachmentUploadEvent> duration
+    ) {
+        if (!event.isEnabled()) {
+            return phase.get();
+        }
+
+        val start = System.nanoTime();
+
+        return phase.get().whenComplete((__, e) -> duration.accept(event, System.nanoTime() - start));
+    }
+
     @Override
     public PlatformType getType() {
         return PlatformType.VK;
@@ -181,13 +267,7 @@ public final class VkPlatform implements Platform {
 
         val peerId = chat.getValue();
 
-        val sendMessage = vkClient.messagesSend()
-                .peerIds(peerId);
-
-        val text = message.getText();
-        if (text != null && !text.isEmpty()) {
-            sendMessage.message(message.getText());
-        }
+        val sendMessage = newMessagesSend(message, peerId);
 
         val reply = message.getReply();
         if (reply != null) {
@@ -198,6 +278,121 @@ public final class VkPlatform implements Platform {
                     .build());
         }
 
+        Attachment attachment;
+
+        CompletableFuture<VkMessagesSend.Result[]> cf;
+        if ((attachment = message.getAttachment()) != null) {
+            cf = uploadAttachment(attachment)
+                    .thenCompose(attachmentValue -> sendMessage.attachment(attachmentValue)
+                            .make());
+        } else {
+            cf = sendMessage.make();
+        }
+
+        return cf.thenApply(results -> {
+            val result = results[0];
+            return new SentMessage(this,
+                    result.getMessageId(),
+                    result.getCmId(),
+                    message
+            );
+        });
+    }
+
+    /**
+     * Sends message to many peers with {@code peer_ids}, attachment is uploaded only once.
+     */
+    @Override
+    public Stream<CompletableFuture<BroadcastResult>> broadcast(Collection<Identity> recipients, OutMessage message) {
+        for (val recipient : recipients) {
+            if (recipient.getPlatform() != PlatformType.VK) {
+                throw new IllegalArgumentException("Chat platform is not VK");
+            }
+        }
+
+        Attachment attachment;
+
+        val attachmentValue = (attachment = message.getAttachment()) != null
+                ? uploadAttachment(attachment)
+                : CompletableFuture.<String>completedFuture(null);
+
+        val results = new ArrayList<CompletableFuture<BroadcastResult>>(recipients.size());
+        val iterator = recipients.iterator();
+
+        while (iterator.hasNext()) {
+            val chunk = new ArrayList<Identity>(MAX_PEERS_PER_MESSAGE);
+
+            while (iterator.hasNext() && chunk.size() < MAX_PEERS_PER_MESSAGE) {
+                chunk.add(iterator.next());
+            }
+
+            val peerIds = new long[chunk.size()];
+
+            for (int i = 0; i < peerIds.length; i++) {
+                peerIds[i] = chunk.get(i).getValue();
+            }
+
+            val chunkResults = attachmentValue
+                    .thenCompose(value -> {
+                        val sendMessage = newMessagesSend(message, peerIds);
+
+                        if (value != null) {
+                            sendMessage.attachment(value);
+                        }
+
+                        return sendMessage.make();
+                    })
+                    .thenApply(sendResults -> {
+                        val peerId2Result = new HashMap<Long, VkMessagesSend.Result>(sendResults.length);
+
+                        for (val sendResult : sendResults) {
+                            Id peerId;
+                            if ((peerId = sendResult.getPeerId()) != null) {
+                                peerId2Result.put(peerId.getValue(), sendResult);
+                            }
+                        }
+
+                        return peerId2Result;
+                    });
+
+            for (val recipient : chunk) {
+                results.add(chunkResults.handle((peerId2Result, e) -> {
+                    if (e != null) {
+                        return BroadcastResult.failure(recipient, FutureUtils.unwrap(e));
+                    }
+
+                    val result = peerId2Result.get(recipient.getValue());
+
+                    if (result == null) {
+                        return BroadcastResult.failure(recipient, new VkException("No result for peer " + recipient));
+                    }
+
+                    VkMessagesSend.SendError error;
+                    if ((error = result.getError()) != null) {
+                        return BroadcastResult.failure(recipient, new VkException(
+                                "[" + error.getCode() + "] " + error.getDescription(), error.getCode(), null));
+                    }
+
+                    return BroadcastResult.success(recipient, new SentMessage(this,
+                            result.getMessageId(),
+                            result.getCmId(),
+                            message.toBuilder().chat(recipient).build()));
+                }));
+            }
+        }
+
+        return results.stream();
+    }
+
+    private VkMessagesSend newMessagesSend(OutMessage message, long... peerIds) {
+        val sendMessage = vkClient.messagesSend()
+                .peerIds(peerIds);
+
+        val text = message.getText();
+        if (text != null && !text.isEmpty()) {
+            sendMessage.message(message.getText());
+        }
+
         val keyboard = message.getKeyboard();
         if (keyboard != null) {
             sendMessage.keyboard(VkInlineKeyboardMapper.INSTANCE.mapKeyboard(keyboard));
@@ -217,38 +412,48 @@ public final class VkPlatform implements Platform {
             sendMessage.dontParseLinks(true);
         }
 
-        Attachment attachment;
+        return sendMessage;
+    }
 
-        CompletableFuture<VkMessagesSend.Result[]> cf;
-        if ((attachment = message.getAttachment()) != null) {
-            cf = uploadAttachment(attachment)
-                    .thenCompose(attachmentValue -> sendMessage.attachment(attachmentValue)
-                            .make());
-        } else {
-            cf = sendMessage.make();
+    private CompletableFuture<String> uploadAttachment(Attachment attachment) {
+        String cacheKey;
+        if ((cacheKey = attachment.cacheKey()) == null) {
+            return uploadAttachment0(attachment);
         }
 
-        return cf.thenApply(results -> {
-            val result = results[0];
-            return new SentMessage(this,
-                    result.getMessageId(),
-                    result.getCmId(),
-                    message
-            );
-        });
+        // concurrent sends of the same attachment share one upload
+        return uploadCache.get("vk:" + attachment.type() + ":" + cacheKey, __ -> uploadAttachment0(attachment));
     }
 
-    private CompletableFuture<String> uploadAttachment(Attachment attachment) {
+    private CompletableFuture<String> uploadAttachment0(Attachment attachment) {
+        val event = new AttachmentUploadEvent();
+        event.begin();
+
+        CompletableFuture<String> result;
+
         switch (attachment.type()) {
             case PHOTO:
-                return uploadPhoto(attachment)
+                result = uploadPhoto(attachment, event)
                         .thenApply(photo -> "photo" + photo.getOwnerId() + "_" + photo.getId());
+                break;
             case DOCUMENT:
-                return uploadDocument(attachment)
+                result = uploadDocument(attachment, event)
                         .thenApply(doc -> "doc" + doc.getOwnerId() + "_" + doc.getId());
+                break;
             default:
                 throw new IllegalArgumentException("Unsupported attachment type " + attachment.type());
         }
+
+        return result.whenComplete((__, e) -> {
+            event.end();
+
+            if (event.shouldCommit()) {
+                event.setPlatform(getType().getDisplayName());
+                event.setAttachmentType(attachment.type().name());
+                event.setError(e != null ? FutureUtils.unwrap(e).toString() : null);
+                event.commit();
+            }
+        });
     }
 
     @Override
@@ -357,6 +562,58 @@ public final class VkPlatform implements Platform {
                 .thenCompose(VkMethod::make);
     }
 
+    private static long[] toArray(List<Long> ids) {
+        val result = new long[ids.size()];
+
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids.get(i);
+        }
+
+        return result;
+    }
+
+    private CompletableFuture<Map<Long, User>> loadUsers(List<Long> userIds) {
+        return vkClient.usersGet()
+                .userIds(toArray(userIds))
+                .fields(LOOKUP_FIELDS)
+                .make()
+                .thenApply(users -> {
+                    val result = new HashMap<Long, User>(users.length);
+
+                    for (val user : users) {
+                        result.put(user.getId(), user);
+                    }
+
+                    return result;
+                });
+    }
+
+    private CompletableFuture<Map<Long, Group>> loadGroups(List<Long> groupIds) {
+        return vkClient.groupsGetById()
+                .groupIds(toArray(groupIds))
+                .fields(LOOKUP_FIELDS)
+                .make()
+                .thenApply(response -> {
+                    val groups = response.getGroups();
+                    val result = new HashMap<Long, Group>(groups.length);
+
+                    for (val group : groups) {
+                        result.put((long) group.getId(), group);
+                    }
+
+                    return result;
+                });
+    }
+
+    private CompletableFuture<User> getUser(IdentityHolder identity) {
+        return userLoader.load(identity.getValue());
+    }
+
+    private CompletableFuture<Group> getGroup(IdentityHolder identity) {
+        // identity of group is negative
+        return groupLoader.load(Math.abs(identity.getValue()));
+    }
+
     private static IdentityName getUserName(User user) {
         return new IdentityName(user.getFirstName(), user.getLastName());
     }
@@ -375,17 +632,9 @@ public final class VkPlatform implements Platform {
             throw new IllegalArgumentException("Identity platform is not VK");
         }
 
-        if (identity.isBot()) {
-            return vkClient.groupsGetById()
-                    .groupIds(identity.getValue())
-                    .make()
-                    .thenApply(r -> getGroupName(r.getGroups()[0]));
-        } else {
-            return vkClient.usersGet()
-                    .userIds(identity.getValue())
-                    .make()
-                    .thenApply(r -> getUserName(r[0]));
-        }
+        return identityCache.getName(identity, () -> identity.isBot()
+                ? getGroup(identity).thenApply(VkPlatform::getGroupName)
+                : getUser(identity).thenApply(VkPlatform::getUserName));
     }
 
     private static String getUserPhoto(User user, PhotoSize photoSize) {
@@ -416,20 +665,6 @@ public final class VkPlatform implements Platform {
         return photo;
     }
 
-    private static String getPhotoSizeField(PhotoSize photoSize) {
-        String size = "photo_100";
-        switch (photoSize) {
-            case NORMAL:
-                size = "photo_200";
-                break;
-            case MAXIMUM:
-                size = "photo_400";
-                break;
-        }
-
-        return size;
-    }
-
     @Override
     public CompletableFuture<HttpResponse>  getAvatar(IdentityHolder identity, PhotoSize photoSize) {
         if (identity.isChat()) {
@@ -440,23 +675,10 @@ public final class VkPlatform implements Platform {
             throw new IllegalArgumentException("Identity platform is not VK");
         }
 
-        CompletableFuture<String> fileFuture;
-
-        if (identity.isBot()) {
-            fileFuture = vkClient.groupsGetById()
-                    .groupIds(identity.getValue())
-                    .fields(getPhotoSizeField(photoSize))
-                    .make()
-                    .thenApply(r -> getGroupPhoto(r.getGroups()[0], photoSize));
-        } else {
-            fileFuture = vkClient.usersGet()
-                    .userIds(identity.getValue())
-                    .fields(getPhotoSizeField(photoSize))
-                    .make()
-                    .thenApply(r -> getUserPhoto(r[0], photoSize));
-        }
-
-        return fileFuture.thenCompose(vkClient::getFile);
+        return identityCache.getAvatarUrl(identity, photoSize, () -> identity.isBot()
+                        ? getGroup(identity).thenApply(group -> getGroupPhoto(group, photoSize))
+                        : getUser(identity).thenApply(user -> getUserPhoto(user, photoSize)))
+                .thenCompose(vkClient::getFile);
     }
 
     @Override
@@ -555,6 +777,19 @@ public final class VkPlatform implements Platform {
 
             val groupId = group.getValue();
 
+            val name = Optional.ofNullable(group.getScreenName())
+                    .map(screenName -> "@" + screenName + " (id: " + groupId + ")")
+                    .orElseGet(() -> "@club" + groupId);
+
+            VkCallbackApi.Settings callbackApiSettings;
+            if ((callbackApiSettings = this.callbackApiSettings) != null) {
+                logger.info("Waiting for updates in group " + name + " through Callback API");
+
+                val callbackApi = new VkCallbackApi(logger, vkClient, groupId, callbackApiSettings);
+                callbackApi.start(this::handleUpdate);
+                return;
+            }
+
             try {
                 val settings = vkClient.groupsGetLongPollSettings()
                         .groupId(groupId)
@@ -576,20 +811,16 @@ public final class VkPlatform implements Platform {
                 logger.error("Cannot check for group settings", e);
             }
 
-            val name = Optional.ofNullable(group.getScreenName())
-                    .map(screenName -> "@" + screenName + " (id: " + groupId + ")")
-                    .orElseGet(() -> "@club" + groupId);
-
             logger.info("Waiting for updates in group " + name);
 
-            val longPoll = new VkLongPoll(logger, vkClient, groupId);
+            val longPoll = new VkLongPoll(logger, longPollSettings, vkClient, groupId);
             longPoll.start(this::handleUpdate);
 
             logger.info("LP terminated");
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         } catch (Exception e) {
-            logger.error("Failed to start Vkontakte LongPoll", e);
+            logger.error("Failed to start receiving Vkontakte updates", e);
         }
     }
 }
@@ -32,6 +32,11 @@ public final class VkDocsGetMessagesUploadServer extends VkMethod<VkDocsGetMessa
         super(client, "docs.getMessagesUploadServer", Result.class);
     }
 
+    @Override
+    public boolean isIdempotent() {
+        return true;
+    }
+
     public VkDocsGetMessagesUploadServer peerId(long peerId) {
         params.set("peer_id", peerId);
         return this;
@@ -0,0 +1,58 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform.vk.method;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import wbot.platform.vk.VkClient;
+
+/**
+ * Runs VKScript code, which may call up to 25 API methods.
+ *
+ * @author whilein
+ */
+public final class VkExecute extends VkMethod<JsonNode> {
+
+    private boolean idempotent;
+
+    public VkExecute(VkClient client) {
+        super(client, "execute", JsonNode.class);
+    }
+
+    public VkExecute code(String code) {
+        params.set("code", code);
+        return this;
+    }
+
+    /**
+     * Marks code as idempotent, e.g. when it only calls idempotent methods.
+     */
+    public VkExecute idempotent(boolean idempotent) {
+        this.idempotent = idempotent;
+        return this;
+    }
+
+    @Override
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    @Override
+    public boolean batchable() {
+        return false;
+    }
+
+}
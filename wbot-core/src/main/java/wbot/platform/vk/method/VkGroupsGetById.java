@@ -32,6 +32,11 @@ public final class VkGroupsGetById extends VkMethod<VkGroupsGetById.Result> {
         super(client, "groups.getById", Result.class);
     }
 
+    @Override
+    public boolean isIdempotent() {
+        return true;
+    }
+
     public VkGroupsGetById groupId(long groupId) {
         params.set("group_id", groupId);
         return this;
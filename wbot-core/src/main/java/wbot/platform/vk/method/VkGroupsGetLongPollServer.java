@@ -28,6 +28,11 @@ public final class VkGroupsGetLongPollServer extends VkMethod<GroupLongPollServe
         super(client, "groups.getLongPollServer", GroupLongPollServer.class);
     }
 
+    @Override
+    public boolean isIdempotent() {
+        return true;
+    }
+
     public VkGroupsGetLongPollServer groupId(long groupId) {
         params.set("group_id", groupId);
         return this;
@@ -28,6 +28,11 @@ public final class VkGroupsGetLongPollSettings extends VkMethod<GroupLongPollSet
         super(client, "groups.getLongPollSettings", GroupLongPollSettings.class);
     }
 
+    @Override
+    public boolean isIdempotent() {
+        return true;
+    }
+
     public VkGroupsGetLongPollSettings groupId(long groupId) {
         params.set("group_id", groupId);
         return this;
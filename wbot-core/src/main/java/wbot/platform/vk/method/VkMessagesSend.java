@@ -54,6 +54,21 @@ public final class VkMessagesSend extends VkMethod<VkMessagesSend.Result[]> {
         int messageId;
         @Nullable
         Long cmId;
+        /**
+         * Error of sending to this peer, if message was sent to many peers.
+         */
+        @Nullable
+        SendError error;
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    @Value
+    public static class SendError {
+        int code;
+        String description;
     }
 
     private static class ResultDeserializer extends JsonDeserializer<Result> {
@@ -64,14 +79,19 @@ public final class VkMessagesSend extends VkMethod<VkMessagesSend.Result[]> {
                 DeserializationContext ctx
         ) throws IOException, JacksonException {
             if (parser.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
-                return new Result(null, parser.getIntValue(), null);
+                return new Result(null, parser.getIntValue(), null, null);
             }
 
             val node = (ObjectNode) parser.readValueAsTree();
+            val error = node.get("error");
+
             return new Result(
-                    new Id(node.get("peer_id").intValue()),
-                    node.get("message_id").intValue(),
-                    node.get("conversation_message_id").longValue()
+                    new Id(node.path("peer_id").longValue()),
+                    node.path("message_id").intValue(),
+                    node.has("conversation_message_id") ? node.get("conversation_message_id").longValue() : null,
+                    error != null
+                            ? new SendError(error.path("code").intValue(), error.path("description").asText())
+                            : null
             );
         }
     }
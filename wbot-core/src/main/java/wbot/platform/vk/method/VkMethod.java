@@ -47,7 +47,7 @@ public abstract class VkMethod<R> implements ApiMethod<R> {
         this.client = client;
         this.name = name;
         this.type = type;
-        this.params = new VkMethodParams(client.getJsonMapper(), client.getDefaultParams());
+        this.params = client.newMethodParams();
     }
 
     @Override
@@ -55,5 +55,12 @@ public abstract class VkMethod<R> implements ApiMethod<R> {
         return client.send(this);
     }
 
+    /**
+     * Whether this method can be sent inside {@code execute} batch.
+     */
+    public boolean batchable() {
+        return true;
+    }
+
 
 }
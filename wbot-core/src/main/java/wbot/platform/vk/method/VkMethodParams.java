@@ -20,31 +20,66 @@ import com.fasterxml.jackson.databind.json.JsonMapper;
 import lombok.AccessLevel;
 import lombok.SneakyThrows;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.val;
 import wbot.http.BytesContent;
 import wbot.http.Content;
 import wbot.platform.ApiMethodParams;
 import wbot.util.EncodeUtils;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
+ * Params of method encoded as {@code application/x-www-form-urlencoded}. Params are encoded
+ * directly into UTF-8 bytes, which are sent without copying.
+ *
  * @author whilein
  */
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public final class VkMethodParams implements ApiMethodParams {
 
+    private static final String CONTENT_TYPE = "application/x-www-form-urlencoded";
+
+    private static final int INITIAL_PARAMS_CAPACITY = 256;
+
+    private static final int MAX_LONG_LENGTH = 20;
+
     JsonMapper jsonMapper;
 
-    StringBuilder builder;
+    @NonFinal
+    byte[] buf;
 
-    public VkMethodParams(JsonMapper jsonMapper, String prefix) {
+    @NonFinal
+    int length;
+
+    int prefixLength;
+
+    /**
+     * @param jsonMapper json mapper
+     * @param prefix     encoded params, that are sent with each method (e.g. access token)
+     */
+    public VkMethodParams(JsonMapper jsonMapper, byte[] prefix) {
         this.jsonMapper = jsonMapper;
-        this.builder = new StringBuilder(prefix);
+        this.buf = Arrays.copyOf(prefix, prefix.length + INITIAL_PARAMS_CAPACITY);
+        this.length = prefix.length;
+        this.prefixLength = prefix.length;
+    }
+
+    public VkMethodParams(JsonMapper jsonMapper, String prefix) {
+        this(jsonMapper, prefix.getBytes(StandardCharsets.UTF_8));
     }
 
     @SneakyThrows
     public void setJson(String field, Object value) {
-        set(field, jsonMapper.writeValueAsString(value));
+        val json = jsonMapper.writeValueAsBytes(value);
+
+        appendField(field);
+
+        ensureCapacity(EncodeUtils.encodedURLLength(json, 0, json.length));
+        length = EncodeUtils.encodeURL(json, 0, json.length, buf, length);
     }
 
     public void set(String field, String[] value) {
@@ -52,19 +87,21 @@ public final class VkMethodParams implements ApiMethodParams {
 
         for (int i = 0, j = value.length; i < j; i++) {
             if (i != 0) {
-                builder.append(',');
+                append(',');
             }
 
-            builder.append(EncodeUtils.encodeURL(value[i]));
+            appendEncoded(value[i]);
         }
     }
 
     public void set(String field, String value) {
-        appendField(field).append(EncodeUtils.encodeURL(value));
+        appendField(field);
+        appendEncoded(value);
     }
 
     public void set(String field, Number value) {
-        appendField(field).append(value);
+        appendField(field);
+        appendAscii(value.toString());
     }
 
     public void set(String field, long[] value) {
@@ -72,10 +109,10 @@ public final class VkMethodParams implements ApiMethodParams {
 
         for (int i = 0, j = value.length; i < j; i++) {
             if (i != 0) {
-                builder.append(',');
+                append(',');
             }
 
-            builder.append(value[i]);
+            append(value[i]);
         }
     }
 
@@ -84,15 +121,16 @@ public final class VkMethodParams implements ApiMethodParams {
 
         for (int i = 0, j = value.length; i < j; i++) {
             if (i != 0) {
-                builder.append(',');
+                append(',');
             }
 
-            builder.append(value[i]);
+            append(value[i]);
         }
     }
 
     public void set(String field, long value) {
-        appendField(field).append(value);
+        appendField(field);
+        append(value);
     }
 
     public void set(String field, boolean value) {
@@ -100,17 +138,121 @@ public final class VkMethodParams implements ApiMethodParams {
     }
 
     public void set(String field, int value) {
-        appendField(field).append(value);
+        appendField(field);
+        append(value);
+    }
+
+    private void ensureCapacity(int count) {
+        byte[] buf;
+        if ((buf = this.buf).length - length < count) {
+            this.buf = Arrays.copyOf(buf, Math.max(buf.length << 1, length + count));
+        }
+    }
+
+    private void appendField(String field) {
+        append('&');
+        appendAscii(field);
+        append('=');
+    }
+
+    private void append(char ch) {
+        ensureCapacity(1);
+        buf[length++] = (byte) ch;
+    }
+
+    private void appendAscii(String value) {
+        val count = value.length();
+        ensureCapacity(count);
+
+        val buf = this.buf;
+        int length = this.length;
+
+        for (int i = 0; i < count; i++) {
+            buf[length++] = (byte) value.charAt(i);
+        }
+
+        this.length = length;
+    }
+
+    private void appendEncoded(String value) {
+        ensureCapacity(EncodeUtils.encodedURLLength(value));
+        length = EncodeUtils.encodeURL(value, buf, length);
+    }
+
+    private void append(long value) {
+        if (value == Long.MIN_VALUE) {
+            appendAscii(Long.toString(value));
+            return;
+        }
+
+        ensureCapacity(MAX_LONG_LENGTH);
+
+        if (value < 0) {
+            buf[length++] = '-';
+            value = -value;
+        }
+
+        int digits = 1;
+        for (long limit = 10; digits < 19 && value >= limit; limit *= 10) {
+            digits++;
+        }
+
+        val buf = this.buf;
+        int pos = length += digits;
+
+        do {
+            buf[--pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
     }
 
-    private StringBuilder appendField(String field) {
-        return builder.append('&').append(field).append('=');
+    /**
+     * Decodes params set after prefix (e.g. without access token), used to call method
+     * from VKScript.
+     *
+     * @return decoded params in order they were set
+     */
+    public Map<String, String> asMap() {
+        val result = new LinkedHashMap<String, String>();
+
+        val buf = this.buf;
+        val length = this.length;
+
+        int start = prefixLength;
+
+        while (start < length) {
+            // skip '&'
+            start++;
+
+            int end = indexOf(buf, '&', start, length);
+            int separator = indexOf(buf, '=', start, end);
+
+            if (separator < end) {
+                result.put(new String(buf, start, separator - start, StandardCharsets.US_ASCII),
+                        EncodeUtils.decodeURL(new String(buf, separator + 1, end - separator - 1,
+                                StandardCharsets.US_ASCII)));
+            }
+
+            start = end;
+        }
+
+        return result;
+    }
+
+    private static int indexOf(byte[] buf, char ch, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] == ch) {
+                return i;
+            }
+        }
+
+        return to;
     }
 
     @Override
     public Content asContent() {
-        return new BytesContent("application/x-www-form-urlencoded", builder.toString(),
-                StandardCharsets.UTF_8);
+        // params can only be appended, so content keeps seeing the same bytes
+        return new BytesContent(CONTENT_TYPE, buf, 0, length);
     }
 
 }
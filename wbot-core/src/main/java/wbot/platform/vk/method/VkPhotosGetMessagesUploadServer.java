@@ -33,6 +33,11 @@ public final class VkPhotosGetMessagesUploadServer extends VkMethod<VkPhotosGetM
         super(client, "photos.getMessagesUploadServer", Result.class);
     }
 
+    @Override
+    public boolean isIdempotent() {
+        return true;
+    }
+
     public VkPhotosGetMessagesUploadServer peerId(long peerId) {
         params.set("peer_id", peerId);
         return this;
@@ -29,6 +29,11 @@ public final class VkUsersGet extends VkMethod<User[]> {
         super(client, "users.get", User[].class);
     }
 
+    @Override
+    public boolean isIdempotent() {
+        return true;
+    }
+
     public VkUsersGet nameCase(UserNameCase nameCase) {
         params.set("name_case", nameCase.name());
         return this;
@@ -17,12 +17,15 @@
 package wbot.platform.vk.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
 import lombok.Builder;
 import lombok.Value;
 import lombok.extern.jackson.Jacksonized;
 
+import java.util.List;
+
 /**
  * @author whilein
  */
@@ -34,6 +37,12 @@ public class ResponseOrError<T> {
     T response;
     Error error;
 
+    /**
+     * Errors of methods called from {@code execute}, failed calls return {@code false}.
+     */
+    @JsonProperty("execute_errors")
+    List<Error> executeErrors;
+
     @Value
     @Builder
     @Jacksonized
@@ -42,6 +51,11 @@ public class ResponseOrError<T> {
     public static class Error {
         int errorCode;
         String errorMsg;
+
+        /**
+         * Name of failed method, present only in {@code execute_errors}.
+         */
+        String method;
     }
 
 }
@@ -0,0 +1,125 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.util;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.val;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects elements submitted within short window and flushes them as one batch, when window is over
+ * or batch is full. Elements with the same key within window are merged.
+ *
+ * @author whilein
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public abstract class AbstractBatcher<K, E> {
+
+    int maxBatchSize;
+
+    Executor flushExecutor;
+
+    Object lock = new Object();
+
+    @NonFinal
+    Map<K, E> pending = new LinkedHashMap<>();
+
+    /**
+     * @param maxBatchSize maximum count of elements in one batch
+     * @param window       how long to wait for other elements
+     */
+    protected AbstractBatcher(int maxBatchSize, Duration window) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+
+        this.maxBatchSize = maxBatchSize;
+        this.flushExecutor = CompletableFuture.delayedExecutor(window.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Adds element to pending batch.
+     *
+     * @param key     key of element
+     * @param factory creates element, if there is no pending element with the same key
+     * @return pending element with the same key or the new one
+     */
+    protected final E submit(K key, Function<? super K, ? extends E> factory) {
+        Map<K, E> batch = null;
+        Map<K, E> scheduled = null;
+        E element;
+
+        synchronized (lock) {
+            val pending = this.pending;
+
+            if ((element = pending.get(key)) != null) {
+                return element;
+            }
+
+            pending.put(key, element = factory.apply(key));
+
+            if (pending.size() == 1) {
+                scheduled = pending;
+            }
+
+            if (pending.size() >= maxBatchSize) {
+                batch = pending;
+                this.pending = new LinkedHashMap<>();
+            }
+        }
+
+        if (batch != null) {
+            flush(batch);
+        } else if (scheduled != null) {
+            // timer is tied to its batch, so it doesn't cut window of the next batch short
+            // when its own batch was flushed early being full
+            val window = scheduled;
+            flushExecutor.execute(() -> flushPending(window));
+        }
+
+        return element;
+    }
+
+    private void flushPending(Map<K, E> batch) {
+        synchronized (lock) {
+            if (pending != batch) {
+                return;
+            }
+
+            pending = new LinkedHashMap<>();
+        }
+
+        flush(batch);
+    }
+
+    /**
+     * Sends batch, called without holding any lock.
+     *
+     * @param batch elements by their keys in order of submission
+     */
+    protected abstract void flush(Map<K, E> batch);
+
+}
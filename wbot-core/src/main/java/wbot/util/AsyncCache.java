@@ -0,0 +1,58 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Cache of asynchronously loaded values.
+ *
+ * @author whilein
+ */
+public interface AsyncCache<K, V> {
+
+    /**
+     * Returns cached value or loads it. Concurrent calls for the same key share one loading future.
+     *
+     * @param key    key
+     * @param loader loader of value
+     * @return future of value
+     */
+    CompletableFuture<V> get(K key, Function<? super K, ? extends CompletableFuture<V>> loader);
+
+    /**
+     * Returns cached value without loading it.
+     *
+     * @param key key
+     * @return future of value or {@code null}, if value is not cached
+     */
+    @Nullable CompletableFuture<V> getIfPresent(K key);
+
+    void put(K key, V value);
+
+    void invalidate(K key);
+
+    void invalidateAll();
+
+    int size();
+
+    CacheStats stats();
+
+}
@@ -0,0 +1,98 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.util;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Collects single-key lookups made within short window and loads them with one bulk request.
+ * Lookups of the same key within window share one future.
+ *
+ * @author whilein
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public final class BatchLoader<K, V> extends AbstractBatcher<K, CompletableFuture<V>> {
+
+    Function<List<K>, CompletableFuture<Map<K, V>>> batchFunction;
+
+    /**
+     * Creates new batch loader.
+     *
+     * @param batchFunction function, which loads values of all keys, missing keys are completed
+     *                      with {@link NoSuchElementException}
+     * @param maxBatchSize  maximum count of keys in one batch
+     * @param window        how long to wait for other lookups
+     */
+    public BatchLoader(
+            Function<List<K>, CompletableFuture<Map<K, V>>> batchFunction,
+            int maxBatchSize,
+            Duration window
+    ) {
+        super(maxBatchSize, window);
+
+        this.batchFunction = batchFunction;
+    }
+
+    public CompletableFuture<V> load(K key) {
+        return submit(key, __ -> new CompletableFuture<>());
+    }
+
+    @Override
+    protected void flush(Map<K, CompletableFuture<V>> batch) {
+        CompletableFuture<Map<K, V>> values;
+
+        try {
+            values = batchFunction.apply(new ArrayList<>(batch.keySet()));
+        } catch (Throwable e) {
+            values = CompletableFuture.failedFuture(e);
+        }
+
+        values.whenComplete((result, e) -> {
+            if (e != null) {
+                val cause = FutureUtils.unwrap(e);
+
+                for (val future : batch.values()) {
+                    future.completeExceptionally(cause);
+                }
+
+                return;
+            }
+
+            for (val entry : batch.entrySet()) {
+                val value = result.get(entry.getKey());
+
+                if (value == null) {
+                    entry.getValue().completeExceptionally(new NoSuchElementException(
+                            "No value for " + entry.getKey()));
+                } else {
+                    entry.getValue().complete(value);
+                }
+            }
+        });
+    }
+
+}
@@ -17,9 +17,12 @@
 package wbot.util;
 
 import lombok.experimental.UtilityClass;
+import lombok.val;
 
 import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 
 /**
  * @author whilein
@@ -27,6 +30,27 @@ import java.net.URLEncoder;
 @UtilityClass
 public class EncodeUtils {
 
+    private final byte[] HEX = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'
+    };
+
+    private final boolean[] UNRESERVED = unreserved();
+
+    private boolean[] unreserved() {
+        val unreserved = new boolean[128];
+
+        for (int ch = 'a'; ch <= 'z'; ch++) unreserved[ch] = true;
+        for (int ch = 'A'; ch <= 'Z'; ch++) unreserved[ch] = true;
+        for (int ch = '0'; ch <= '9'; ch++) unreserved[ch] = true;
+
+        unreserved['.'] = true;
+        unreserved['-'] = true;
+        unreserved['*'] = true;
+        unreserved['_'] = true;
+
+        return unreserved;
+    }
+
     public String encodeURL(String value) {
         try {
             return URLEncoder.encode(value, "UTF-8");
@@ -35,4 +59,127 @@ public class EncodeUtils {
         }
     }
 
+    /**
+     * Returns count of bytes written by {@link #encodeURL(String, byte[], int)}.
+     */
+    public int encodedURLLength(String value) {
+        int length = 0;
+
+        for (int i = 0, j = value.length(); i < j; i++) {
+            val ch = value.charAt(i);
+
+            if (ch < 0x80) {
+                length += ch == ' ' || UNRESERVED[ch] ? 1 : 3;
+            } else if (ch < 0x800) {
+                length += 6;
+            } else if (Character.isHighSurrogate(ch) && i + 1 < j && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 12;
+                i++;
+            } else if (Character.isSurrogate(ch)) {
+                length += 3;
+            } else {
+                length += 9;
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Encodes value in UTF-8 the same way as {@link URLEncoder#encode(String, String)} does,
+     * but writes it directly into array.
+     *
+     * @param value value
+     * @param dst   destination, must have at least {@link #encodedURLLength(String)} free bytes
+     * @param off   offset in destination
+     * @return offset after the last written byte
+     */
+    public int encodeURL(String value, byte[] dst, int off) {
+        for (int i = 0, j = value.length(); i < j; i++) {
+            val ch = value.charAt(i);
+
+            if (ch < 0x80) {
+                if (UNRESERVED[ch]) {
+                    dst[off++] = (byte) ch;
+                } else if (ch == ' ') {
+                    dst[off++] = '+';
+                } else {
+                    off = percentEncode(ch, dst, off);
+                }
+            } else if (ch < 0x800) {
+                off = percentEncode(0xC0 | ch >> 6, dst, off);
+                off = percentEncode(0x80 | ch & 0x3F, dst, off);
+            } else if (Character.isHighSurrogate(ch) && i + 1 < j && Character.isLowSurrogate(value.charAt(i + 1))) {
+                val codePoint = Character.toCodePoint(ch, value.charAt(++i));
+
+                off = percentEncode(0xF0 | codePoint >> 18, dst, off);
+                off = percentEncode(0x80 | codePoint >> 12 & 0x3F, dst, off);
+                off = percentEncode(0x80 | codePoint >> 6 & 0x3F, dst, off);
+                off = percentEncode(0x80 | codePoint & 0x3F, dst, off);
+            } else if (Character.isSurrogate(ch)) {
+                // malformed surrogate is replaced by encoder, as URLEncoder does
+                off = percentEncode('?', dst, off);
+            } else {
+                off = percentEncode(0xE0 | ch >> 12, dst, off);
+                off = percentEncode(0x80 | ch >> 6 & 0x3F, dst, off);
+                off = percentEncode(0x80 | ch & 0x3F, dst, off);
+            }
+        }
+
+        return off;
+    }
+
+    /**
+     * Returns count of bytes written by {@link #encodeURL(byte[], int, int, byte[], int)}.
+     */
+    public int encodedURLLength(byte[] value, int off, int len) {
+        int length = 0;
+
+        for (int i = off, j = off + len; i < j; i++) {
+            val b = value[i];
+
+            length += b >= 0 && (b == ' ' || UNRESERVED[b]) ? 1 : 3;
+        }
+
+        return length;
+    }
+
+    /**
+     * Same as {@link #encodeURL(String, byte[], int)}, but value is already encoded in UTF-8.
+     *
+     * @param value  value in UTF-8
+     * @param off    offset of value
+     * @param len    length of value
+     * @param dst    destination, must have at least {@link #encodedURLLength(byte[], int, int)} free bytes
+     * @param dstOff offset in destination
+     * @return offset after the last written byte
+     */
+    public int encodeURL(byte[] value, int off, int len, byte[] dst, int dstOff) {
+        for (int i = off, j = off + len; i < j; i++) {
+            val b = value[i];
+
+            if (b >= 0 && UNRESERVED[b]) {
+                dst[dstOff++] = b;
+            } else if (b == ' ') {
+                dst[dstOff++] = '+';
+            } else {
+                dstOff = percentEncode(b & 0xFF, dst, dstOff);
+            }
+        }
+
+        return dstOff;
+    }
+
+    private int percentEncode(int b, byte[] dst, int off) {
+        dst[off] = '%';
+        dst[off + 1] = HEX[b >> 4];
+        dst[off + 2] = HEX[b & 0xF];
+
+        return off + 3;
+    }
+
+    public String decodeURL(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
 }
@@ -19,6 +19,7 @@ package wbot.util;
 import lombok.experimental.UtilityClass;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * @author whilein
@@ -32,4 +33,11 @@ public class FutureUtils {
         return cf.thenRun(NOOP);
     }
 
+    /**
+     * Returns actual cause of failure, passed to {@code handle} or {@code whenComplete}.
+     */
+    public Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
 }
@@ -0,0 +1,131 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.util;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Set of {@link RateLimiter rate limiters} with the same limit, one per key (e.g. per chat).
+ *
+ * @author whilein
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public final class KeyedRateLimiter<K> {
+
+    private static final int DEFAULT_MAX_IDLE_KEYS = 4096;
+
+    private static final KeyedRateLimiter<?> UNLIMITED = new KeyedRateLimiter<>(0, 0, 0);
+
+    double permitsPerSecond;
+
+    int burst;
+
+    int maxIdleKeys;
+
+    /**
+     * Time, in which used limiter becomes idle again, idle limiters are looked for not more often.
+     */
+    long sweepIntervalNanos;
+
+    AtomicLong nextSweepAt;
+
+    Map<K, RateLimiter> limiters = new ConcurrentHashMap<>();
+
+    private KeyedRateLimiter(double permitsPerSecond, int burst, int maxIdleKeys) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.maxIdleKeys = maxIdleKeys;
+        this.sweepIntervalNanos = permitsPerSecond != 0 ? (long) (burst * 1e9 / permitsPerSecond) : 0L;
+        this.nextSweepAt = new AtomicLong(System.nanoTime() + sweepIntervalNanos);
+    }
+
+    public static <K> KeyedRateLimiter<K> create(double permitsPerSecond, int burst) {
+        // validate arguments early
+        RateLimiter.create(permitsPerSecond, burst);
+
+        return new KeyedRateLimiter<>(permitsPerSecond, burst, DEFAULT_MAX_IDLE_KEYS);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K> KeyedRateLimiter<K> unlimited() {
+        return (KeyedRateLimiter<K>) UNLIMITED;
+    }
+
+    private RateLimiter get(K key) {
+        if (permitsPerSecond == 0) {
+            return RateLimiter.unlimited();
+        }
+
+        if (limiters.size() > maxIdleKeys) {
+            evictIdle();
+        }
+
+        return limiters.computeIfAbsent(key, __ -> RateLimiter.create(permitsPerSecond, burst));
+    }
+
+    private void evictIdle() {
+        val now = System.nanoTime();
+        val nextSweepAt = this.nextSweepAt.get();
+
+        // many active keys would be scanned on every call otherwise, so one thread scans once per interval
+        if (now - nextSweepAt < 0 || !this.nextSweepAt.compareAndSet(nextSweepAt, now + sweepIntervalNanos)) {
+            return;
+        }
+
+        for (val entry : limiters.entrySet()) {
+            val limiter = entry.getValue();
+
+            // limiters, which have no reserved permits, are equal to new ones. Limiter is evicted
+            // atomically with the idle check, so concurrent reservation on it fails and is retried
+            if (limiter.evictIfIdle()) {
+                limiters.remove(entry.getKey(), limiter);
+            }
+        }
+    }
+
+    public CompletableFuture<Void> acquire(K key) {
+        RateLimiter limiter;
+        long delay;
+
+        while ((delay = (limiter = get(key)).tryReserve()) < 0) {
+            limiters.remove(key, limiter);
+        }
+
+        return RateLimiter.delay(delay);
+    }
+
+    public void penalize(K key, Duration duration) {
+        RateLimiter limiter;
+
+        while (!(limiter = get(key)).tryPenalize(duration)) {
+            limiters.remove(key, limiter);
+        }
+    }
+
+    public int size() {
+        return limiters.size();
+    }
+
+}
@@ -0,0 +1,226 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.util;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free rate limiter based on generic cell rate algorithm (token bucket equivalent).
+ * Requests over the limit are not rejected, but delayed until permit is available.
+ *
+ * @author whilein
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public final class RateLimiter {
+
+    private static final RateLimiter UNLIMITED = new RateLimiter(0, 0);
+
+    /**
+     * Theoretical arrival time of limiter, that is evicted from {@link KeyedRateLimiter} and gives no permits.
+     */
+    private static final long EVICTED = Long.MIN_VALUE;
+
+    /**
+     * Interval between two permits.
+     */
+    long intervalNanos;
+
+    /**
+     * How far theoretical arrival time may be ahead of now without waiting.
+     */
+    long burstNanos;
+
+    /**
+     * Theoretical arrival time of next permit.
+     */
+    AtomicLong tat = new AtomicLong(System.nanoTime());
+
+    private RateLimiter(long intervalNanos, long burstNanos) {
+        this.intervalNanos = intervalNanos;
+        this.burstNanos = burstNanos;
+    }
+
+    /**
+     * Creates new rate limiter.
+     *
+     * @param permitsPerSecond maximum average count of permits per second
+     * @param burst            count of permits, that can be acquired at once
+     * @return new rate limiter
+     */
+    public static RateLimiter create(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+        }
+
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be positive");
+        }
+
+        val intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+
+        return new RateLimiter(intervalNanos, intervalNanos * (burst - 1));
+    }
+
+    public static RateLimiter unlimited() {
+        return UNLIMITED;
+    }
+
+    public boolean isUnlimited() {
+        return intervalNanos == 0;
+    }
+
+    /**
+     * Reserves permit.
+     *
+     * @return time in nanoseconds to wait before permit can be used
+     */
+    public long reserve() {
+        return tryReserve();
+    }
+
+    /**
+     * Reserves permit if limiter is not evicted.
+     *
+     * @return time in nanoseconds to wait before permit can be used, or {@code -1} if limiter is evicted
+     */
+    long tryReserve() {
+        if (intervalNanos == 0) {
+            return 0;
+        }
+
+        val tat = this.tat;
+
+        long now, current, next, delay;
+
+        do {
+            now = System.nanoTime();
+            current = tat.get();
+
+            if (current == EVICTED) {
+                return -1;
+            }
+
+            val start = current - now > 0 ? current : now;
+            next = start + intervalNanos;
+            delay = start - now - burstNanos;
+        } while (!tat.compareAndSet(current, next));
+
+        return Math.max(delay, 0);
+    }
+
+    /**
+     * Reserves permit and returns future, which is completed when permit can be used.
+     *
+     * @return future
+     */
+    public CompletableFuture<Void> acquire() {
+        return delay(reserve());
+    }
+
+    static CompletableFuture<Void> delay(long delayNanos) {
+        if (delayNanos == 0) {
+            // new future every time, shared completed one could be completed or obtruded by caller
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return CompletableFuture.runAsync(() -> {
+        }, CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Postpones all permits by specified duration, used when API reports that limit was exceeded.
+     *
+     * @param duration how long no permits should be given
+     */
+    public void penalize(Duration duration) {
+        tryPenalize(duration);
+    }
+
+    /**
+     * Postpones all permits if limiter is not evicted.
+     *
+     * @param duration how long no permits should be given
+     * @return {@code false} if limiter is evicted
+     */
+    boolean tryPenalize(Duration duration) {
+        if (intervalNanos == 0) {
+            return true;
+        }
+
+        val tat = this.tat;
+        val until = System.nanoTime() + duration.toNanos() + burstNanos;
+
+        long current;
+
+        do {
+            current = tat.get();
+
+            if (current == EVICTED) {
+                return false;
+            }
+
+            if (current - until >= 0) {
+                return true;
+            }
+        } while (!tat.compareAndSet(current, until));
+
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if limiter has no reserved permits and its state can be forgotten.
+     *
+     * @return whether limiter is idle
+     */
+    public boolean isIdle() {
+        val current = tat.get();
+        return current == EVICTED || current - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Evicts limiter if it is idle, evicted limiter gives no permits anymore.
+     *
+     * @return whether limiter is evicted
+     */
+    boolean evictIfIdle() {
+        val tat = this.tat;
+
+        long current;
+
+        do {
+            current = tat.get();
+
+            if (current == EVICTED) {
+                return true;
+            }
+
+            if (current - System.nanoTime() > 0) {
+                return false;
+            }
+        } while (!tat.compareAndSet(current, EVICTED));
+
+        return true;
+    }
+
+}
@@ -0,0 +1,258 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.util;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Size-bounded cache with expiration, split into segments, each of which is LRU map
+ * guarded by its own lock.
+ * <p>
+ * Failed loads and {@code null} values are cached too, but for {@code negativeTtl}.
+ *
+ * @author whilein
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public final class SegmentedLruCache<K, V> implements AsyncCache<K, V> {
+
+    Segment<K, V>[] segments;
+
+    int segmentMask;
+
+    long ttlNanos;
+
+    long negativeTtlNanos;
+
+    LongAdder hits = new LongAdder();
+
+    LongAdder misses = new LongAdder();
+
+    LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates new cache.
+     *
+     * @param concurrencyLevel expected count of concurrently accessing threads, rounded up to power of two
+     * @param maximumSize      maximum count of entries
+     * @param ttl              how long loaded value lives
+     * @param negativeTtl      how long failure or {@code null} value lives, zero disables negative caching
+     */
+    @SuppressWarnings("unchecked")
+    public SegmentedLruCache(int concurrencyLevel, int maximumSize, Duration ttl, Duration negativeTtl) {
+        if (concurrencyLevel < 1) {
+            throw new IllegalArgumentException("concurrencyLevel must be positive");
+        }
+
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+
+        int segmentCount = 1;
+
+        while (segmentCount < concurrencyLevel && segmentCount < maximumSize) {
+            segmentCount <<= 1;
+        }
+
+        val segmentSize = Math.max(1, maximumSize / segmentCount);
+
+        this.segments = new Segment[segmentCount];
+
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(segmentSize, evictions);
+        }
+
+        this.segmentMask = segmentCount - 1;
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        val hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & segmentMask];
+    }
+
+    @Override
+    public CompletableFuture<V> get(K key, Function<? super K, ? extends CompletableFuture<V>> loader) {
+        val segment = segmentFor(key);
+        val now = System.nanoTime();
+
+        Entry<V> entry;
+
+        synchronized (segment) {
+            if ((entry = segment.get(key)) != null && !entry.isExpired(now)) {
+                hits.increment();
+                return entry.future;
+            }
+
+            segment.put(key, entry = new Entry<>());
+        }
+
+        misses.increment();
+
+        CompletableFuture<V> loading;
+
+        try {
+            loading = loader.apply(key);
+        } catch (Throwable e) {
+            loading = CompletableFuture.failedFuture(e);
+        }
+
+        val loadingEntry = entry;
+
+        loading.whenComplete((value, e) -> {
+            val ttl = e != null || value == null ? negativeTtlNanos : ttlNanos;
+
+            if (ttl <= 0) {
+                synchronized (segment) {
+                    segment.remove(key, loadingEntry);
+                }
+            } else {
+                loadingEntry.expiresAt = System.nanoTime() + ttl;
+                loadingEntry.loaded = true;
+            }
+
+            if (e != null) {
+                loadingEntry.future.completeExceptionally(e);
+            } else {
+                loadingEntry.future.complete(value);
+            }
+        });
+
+        return entry.future;
+    }
+
+    @Override
+    public @Nullable CompletableFuture<V> getIfPresent(K key) {
+        val segment = segmentFor(key);
+        val now = System.nanoTime();
+
+        Entry<V> entry;
+
+        synchronized (segment) {
+            if ((entry = segment.get(key)) == null || entry.isExpired(now)) {
+                misses.increment();
+                return null;
+            }
+        }
+
+        hits.increment();
+        return entry.future;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        val entry = new Entry<V>();
+        entry.expiresAt = System.nanoTime() + (value == null ? negativeTtlNanos : ttlNanos);
+        entry.loaded = true;
+        entry.future.complete(value);
+
+        val segment = segmentFor(key);
+
+        synchronized (segment) {
+            segment.put(key, entry);
+        }
+    }
+
+    @Override
+    public void invalidate(K key) {
+        val segment = segmentFor(key);
+
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        for (val segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+
+        for (val segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+
+        return size;
+    }
+
+    @Override
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    private static final class Entry<V> {
+
+        final CompletableFuture<V> future = new CompletableFuture<>();
+
+        volatile boolean loaded;
+
+        volatile long expiresAt;
+
+        private boolean isExpired(long now) {
+            // entry, which is still loading, is never expired
+            return loaded && expiresAt - now <= 0;
+        }
+
+    }
+
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    private static final class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+
+        int maximumSize;
+
+        LongAdder evictions;
+
+        private Segment(int maximumSize, LongAdder evictions) {
+            super(16, 0.75f, true);
+
+            this.maximumSize = maximumSize;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            if (size() > maximumSize) {
+                evictions.increment();
+                return true;
+            }
+
+            return false;
+        }
+
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.command;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author whilein
+ */
+public class CommandContextTests {
+
+    private static final Pattern SPACE = Pattern.compile(" +");
+
+    private static CommandContext createContext(String text) {
+        int nameEnd;
+        if ((nameEnd = text.indexOf(' ')) == -1) {
+            nameEnd = text.length();
+        }
+
+        return new CommandContext(null, text.substring(1, nameEnd), text, nameEnd, null);
+    }
+
+    private static void assertSameAsSplit(String text) {
+        val context = createContext(text);
+        val expected = SPACE.split(text.substring(1));
+
+        assertThat(context.arguments())
+                .containsExactly(expected);
+
+        assertThat(context.argumentCount())
+                .isEqualTo(expected.length - 1);
+
+        assertThat(context.joinArguments(0))
+                .isEqualTo(String.join(" ", Arrays.copyOfRange(expected, 1, expected.length)));
+    }
+
+    @Test
+    public void noArguments() {
+        assertSameAsSplit("/foo");
+        assertSameAsSplit("/foo ");
+        assertSameAsSplit("/foo   ");
+    }
+
+    @Test
+    public void arguments() {
+        assertSameAsSplit("/foo bar");
+        assertSameAsSplit("/foo  bar   baz");
+        assertSameAsSplit("/foo bar baz   ");
+    }
+
+    @Test
+    public void onlySpaceSeparatesArguments() {
+        assertSameAsSplit("/foo bar\tbaz\nquux");
+    }
+
+    @Test
+    public void argument() {
+        val context = createContext("/foo  bar baz");
+
+        assertThat(context.argument(0))
+                .isEqualTo("bar");
+
+        assertThat(context.argument(1))
+                .isEqualTo("baz");
+    }
+
+}
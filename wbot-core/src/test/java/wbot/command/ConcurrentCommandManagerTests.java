@@ -0,0 +1,158 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.command;
+
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author whilein
+ */
+public class ConcurrentCommandManagerTests {
+
+    CommandManager commandManager;
+
+    @BeforeEach
+    public void setup() {
+        commandManager = new ConcurrentCommandManager(mock());
+    }
+
+    @Test
+    public void register() {
+        val command = new TestCommand("foo", Arrays.asList("bar"));
+
+        assertThat(commandManager.register(command))
+                .isTrue();
+
+        assertThat(commandManager.register(command))
+                .isFalse();
+
+        assertThat(commandManager.getCommand("FOO"))
+                .isSameAs(command);
+
+        assertThat(commandManager.getCommand("/bar baz", 1, 4))
+                .isSameAs(command);
+    }
+
+    @Test
+    public void registerAll() {
+        val foo = new TestCommand("foo", Collections.emptyList());
+        val bar = new TestCommand("bar", Collections.emptyList());
+
+        commandManager.register(foo);
+
+        assertThat(commandManager.registerAll(Arrays.asList(foo, bar)))
+                .isEqualTo(1);
+
+        assertThat(commandManager.getCommands())
+                .containsExactly(foo, bar);
+    }
+
+    @Test
+    public void replaceAll() {
+        val foo = new TestCommand("foo", Collections.emptyList());
+        val bar = new TestCommand("bar", Collections.emptyList());
+
+        commandManager.register(foo);
+        commandManager.replaceAll(Collections.singletonList(bar));
+
+        assertThat(commandManager.getCommand("foo"))
+                .isNull();
+
+        assertThat(commandManager.getCommand("bar"))
+                .isSameAs(bar);
+
+        assertThat(commandManager.getCommands())
+                .containsExactly(bar);
+    }
+
+    @Test
+    public void unregisterByAlias() {
+        val command = new TestCommand("foo", Arrays.asList("bar"));
+
+        commandManager.register(command);
+        commandManager.unregister("bar");
+
+        assertThat(commandManager.getCommand("foo"))
+                .isNull();
+
+        assertThat(commandManager.getCommands())
+                .isEmpty();
+    }
+
+    @Test
+    public void lookupDuringReplace() throws InterruptedException {
+        val first = new ArrayList<Command>();
+        val second = new ArrayList<Command>();
+
+        for (int i = 0; i < 100; i++) {
+            first.add(new TestCommand("cmd" + i, Collections.emptyList()));
+            second.add(new TestCommand("cmd" + i, Collections.emptyList()));
+        }
+
+        commandManager.replaceAll(first);
+
+        val running = new AtomicBoolean(true);
+        val failure = new AtomicReference<String>();
+
+        val reader = new Thread(() -> {
+            while (running.get()) {
+                for (int i = 0; i < 100; i++) {
+                    if (commandManager.getCommand("cmd" + i) == null) {
+                        failure.set("cmd" + i + " is missing");
+                        return;
+                    }
+                }
+            }
+        });
+        reader.start();
+
+        for (int i = 0; i < 1000; i++) {
+            commandManager.replaceAll((i & 1) == 0 ? second : first);
+        }
+
+        running.set(false);
+        reader.join();
+
+        assertThat(failure.get())
+                .isNull();
+    }
+
+    private static final class TestCommand extends Command {
+
+        public TestCommand(String name, List<String> aliases) {
+            super(name, aliases);
+        }
+
+        @Override
+        public void execute(CommandContext context) {
+            // no-op
+        }
+    }
+
+}
@@ -74,6 +74,46 @@ public class SimpleCommandManagerTests {
                 .isNull();
     }
 
+    @Test
+    public void getCommandInText() {
+        commandManager.register(new TestCommand("foo", Arrays.asList("foobar")));
+
+        val text = "/FooBar baz";
+
+        assertThat(commandManager.getCommand(text, 1, 7))
+                .isNotNull()
+                .extracting(Command::name)
+                .isEqualTo("foo");
+
+        assertThat(commandManager.getCommand(text, 1, 4))
+                .isNotNull()
+                .extracting(Command::name)
+                .isEqualTo("foo");
+
+        assertThat(commandManager.getCommand(text, 1, 3))
+                .isNull();
+
+        assertThat(commandManager.getCommand(text, 1, text.length()))
+                .isNull();
+    }
+
+    @Test
+    public void unregisterAliasSharingPrefix() {
+        val foo = new TestCommand("foo", Collections.emptyList());
+        val foobar = new TestCommand("foobar", Collections.emptyList());
+
+        commandManager.register(foo);
+        commandManager.register(foobar);
+
+        commandManager.unregister(foo);
+
+        assertThat(commandManager.getCommand("foo"))
+                .isNull();
+
+        assertThat(commandManager.getCommand("foobar"))
+                .isSameAs(foobar);
+    }
+
     @Test
     public void unregisterByName() {
         val command = new TestCommand("foo", List.of());
@@ -0,0 +1,243 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.event;
+
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import wbot.model.InMessage;
+import wbot.platform.Platform;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author whilein
+ */
+public class ExecutorEventDispatcherTests {
+
+    Platform platform = mock(Platform.class);
+
+    List<Long> handled = Collections.synchronizedList(new ArrayList<>());
+
+    CountDownLatch started = new CountDownLatch(1);
+
+    CountDownLatch release = new CountDownLatch(1);
+
+    ExecutorEventDispatcher dispatcher;
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
+    }
+
+    private ExecutorEventDispatcher create(ExecutorEventDispatcher.Builder builder) {
+        // the first event blocks the only worker until released
+        val handler = new EventHandler() {
+            @Override
+            public void onMessage(Platform platform, InMessage inMessage) throws Exception {
+                if (inMessage.getId() == 1) {
+                    started.countDown();
+                    release.await();
+                }
+
+                handled.add(inMessage.getId());
+            }
+        };
+
+        dispatcher = (ExecutorEventDispatcher) builder.threads(1).queueCapacity(2)
+                .create(mock(Logger.class), Set.of(handler));
+        dispatcher.start();
+
+        return dispatcher;
+    }
+
+    private void message(long id) {
+        dispatcher.message(platform, new InMessage(id, null, null, null, null, null, 0, false, null));
+    }
+
+    private void fillQueue() throws InterruptedException {
+        message(1);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        message(2);
+        message(3);
+
+        assertThat(dispatcher.getQueuedEvents()).isEqualTo(2);
+    }
+
+    private void awaitHandled(int count) throws InterruptedException {
+        val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (handled.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void blockWaitsForFreeSpace() throws InterruptedException {
+        create(new ExecutorEventDispatcher.Builder().overflowPolicy(OverflowPolicy.BLOCK));
+        fillQueue();
+
+        val sender = new Thread(() -> message(4));
+        sender.start();
+
+        sender.join(200);
+        assertThat(sender.isAlive()).isTrue();
+
+        release.countDown();
+
+        sender.join(5000);
+        assertThat(sender.isAlive()).isFalse();
+
+        awaitHandled(4);
+        assertThat(handled).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(dispatcher.getDroppedEvents()).isZero();
+        assertThat(dispatcher.getRejectedEvents()).isZero();
+    }
+
+    @Test
+    public void dropOldestDropsQueuedEvents() throws InterruptedException {
+        create(new ExecutorEventDispatcher.Builder().overflowPolicy(OverflowPolicy.DROP_OLDEST));
+        fillQueue();
+
+        message(4);
+        message(5);
+
+        assertThat(dispatcher.getDroppedEvents()).isEqualTo(2);
+
+        release.countDown();
+
+        awaitHandled(3);
+        assertThat(handled).containsExactly(1L, 4L, 5L);
+        assertThat(dispatcher.getRejectedEvents()).isZero();
+    }
+
+    @Test
+    public void rejectRejectsNewEvents() throws InterruptedException {
+        create(new ExecutorEventDispatcher.Builder().overflowPolicy(OverflowPolicy.REJECT));
+        fillQueue();
+
+        message(4);
+        message(5);
+
+        assertThat(dispatcher.getRejectedEvents()).isEqualTo(2);
+
+        release.countDown();
+
+        awaitHandled(3);
+        assertThat(handled).containsExactly(1L, 2L, 3L);
+        assertThat(dispatcher.getDroppedEvents()).isZero();
+    }
+
+    @Test
+    public void stopCompletesAcceptedEvents() throws InterruptedException {
+        create(new ExecutorEventDispatcher.Builder().shutdownTimeout(Duration.ofSeconds(5)));
+        fillQueue();
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException ignored) {
+            }
+
+            release.countDown();
+        }).start();
+
+        dispatcher.stop();
+
+        assertThat(handled).containsExactly(1L, 2L, 3L);
+
+        message(4);
+        assertThat(dispatcher.getRejectedEvents()).isEqualTo(1);
+    }
+
+    @Test
+    public void stopInterruptsEventsAfterTimeout() throws InterruptedException {
+        create(new ExecutorEventDispatcher.Builder().shutdownTimeout(Duration.ofMillis(100)));
+        fillQueue();
+
+        val start = System.nanoTime();
+        dispatcher.stop();
+
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+
+        // blocked handler is interrupted and queued events are discarded
+        Thread.sleep(200);
+        assertThat(handled).isEmpty();
+    }
+
+    @Test
+    public void virtualThreadsHandleEventsOnAnyJava() throws InterruptedException {
+        create(new ExecutorEventDispatcher.Builder().virtualThreads(true));
+
+        message(1);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+
+        message(2);
+
+        awaitHandled(2);
+        assertThat(handled).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(DispatchExecutors.newVirtualThreadFactory("test-") != null)
+                .isEqualTo(Runtime.version().feature() >= 21);
+    }
+
+    @Test
+    public void threadPerTaskLimitsTasksInFlight() throws InterruptedException {
+        val rejected = new LongAdder();
+        val executor = new ThreadPerTaskExecutor(mock(Logger.class), Thread::new, 1, OverflowPolicy.REJECT,
+                rejected);
+
+        executor.execute(() -> {
+            started.countDown();
+
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        executor.execute(() -> handled.add(2L));
+
+        assertThat(rejected.sum()).isEqualTo(1);
+        assertThat(executor.getActiveTasks()).isEqualTo(1);
+
+        release.countDown();
+        executor.shutdown();
+
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(executor.isTerminated()).isTrue();
+        assertThat(handled).isEmpty();
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.event;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import wbot.model.InMessage;
+import wbot.platform.Platform;
+import wbot.platform.PlatformType;
+import wbot.platform.vk.model.Id;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author whilein
+ */
+public class OrderedEventDispatcherTests {
+
+    private static final int CHATS = 8;
+
+    private static final int MESSAGES_PER_CHAT = 200;
+
+    @Test
+    public void preservesOrderWithinChat() {
+        val platform = mock(Platform.class);
+        when(platform.getType()).thenReturn(PlatformType.VK);
+
+        val handled = new ConcurrentHashMap<Long, List<Long>>();
+        val inFlight = new AtomicInteger();
+        val maxInFlight = new AtomicInteger();
+
+        val handler = new EventHandler() {
+            @Override
+            public void onMessage(Platform platform, InMessage inMessage) throws Exception {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+
+                try {
+                    if (ThreadLocalRandom.current().nextInt(10) == 0) {
+                        Thread.sleep(1);
+                    }
+
+                    handled.computeIfAbsent(inMessage.getChat().getValue(), __ -> new ArrayList<>())
+                            .add(inMessage.getId());
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+        };
+
+        val dispatcher = new OrderedEventDispatcher.Builder()
+                .lanes(3)
+                .queueCapacity(16)
+                .overflowPolicy(OverflowPolicy.BLOCK)
+                .shutdownTimeout(Duration.ofSeconds(30))
+                .create(mock(Logger.class), Set.of(handler));
+
+        dispatcher.start();
+
+        // events of all chats are interleaved
+        for (int i = 0; i < MESSAGES_PER_CHAT; i++) {
+            for (int chat = 0; chat < CHATS; chat++) {
+                dispatcher.message(platform, new InMessage(i, null, null, new Id(Id.CHAT_OFFSET + chat),
+                        null, null, 0, false, null));
+            }
+        }
+
+        dispatcher.stop();
+
+        assertThat(handled).hasSize(CHATS);
+
+        for (val entry : handled.entrySet()) {
+            assertThat(entry.getValue())
+                    .as("messages of chat %d", entry.getKey())
+                    .hasSize(MESSAGES_PER_CHAT)
+                    .isSorted();
+        }
+
+        // lanes run in parallel, one event per lane at most
+        assertThat(maxInFlight.get()).isBetween(1, 3);
+    }
+
+}
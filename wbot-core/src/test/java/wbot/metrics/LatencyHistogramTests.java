@@ -0,0 +1,119 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.metrics;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * @author whilein
+ */
+public class LatencyHistogramTests {
+
+    @Test
+    public void bucketBounds() {
+        assertValueInBucket(0);
+        assertValueInBucket(Long.MAX_VALUE);
+
+        for (long value = 1; value < 1_000_000; value++) {
+            assertValueInBucket(value);
+
+            assertThat(LatencyHistogram.bucketIndex(value) - LatencyHistogram.bucketIndex(value - 1))
+                    .isBetween(0, 1);
+        }
+
+        val random = ThreadLocalRandom.current();
+
+        for (int i = 0; i < 100_000; i++) {
+            assertValueInBucket(random.nextLong(Long.MAX_VALUE));
+        }
+    }
+
+    private static void assertValueInBucket(long value) {
+        val index = LatencyHistogram.bucketIndex(value);
+
+        assertThat(LatencyHistogram.bucketUpperBound(index))
+                .isGreaterThanOrEqualTo(value);
+
+        if (index > 0) {
+            assertThat(LatencyHistogram.bucketUpperBound(index - 1))
+                    .isLessThan(value);
+        }
+    }
+
+    @Test
+    public void percentiles() {
+        val histogram = new LatencyHistogram();
+
+        for (int i = 1000; i >= 1; i--) {
+            histogram.record(i * 1000L);
+        }
+
+        val snapshot = histogram.snapshot();
+
+        assertThat(snapshot.getCount())
+                .isEqualTo(1000);
+
+        assertThat(snapshot.getMax())
+                .isEqualTo(1_000_000);
+
+        assertThat(snapshot.getMean())
+                .isEqualTo(500_500);
+
+        assertThat(snapshot.getValueAtPercentile(50))
+                .isCloseTo(500_000, within(500_000 / 32L));
+
+        assertThat(snapshot.getValueAtPercentile(99))
+                .isCloseTo(990_000, within(990_000 / 32L));
+
+        assertThat(snapshot.getValueAtPercentile(100))
+                .isEqualTo(1_000_000);
+
+        assertThat(snapshot.getValueAtPercentile(0))
+                .isCloseTo(1000, within(1000 / 32L));
+    }
+
+    @Test
+    public void empty() {
+        val snapshot = new LatencyHistogram().snapshot();
+
+        assertThat(snapshot.getCount())
+                .isZero();
+
+        assertThat(snapshot.getValueAtPercentile(99))
+                .isZero();
+
+        assertThatThrownBy(() -> snapshot.getValueAtPercentile(101))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void negativeValue() {
+        val histogram = new LatencyHistogram();
+        histogram.record(-1);
+
+        assertThat(histogram.snapshot().getValueAtPercentile(100))
+                .isZero();
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform;
+
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import wbot.metrics.MetricsRecorder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author whilein
+ */
+public class AbstractLongPollTests {
+
+    AtomicInteger polls = new AtomicInteger();
+
+    CountDownLatch firstUpdateReceived = new CountDownLatch(1);
+
+    CountDownLatch release = new CountDownLatch(1);
+
+    AtomicReference<Thread> handlerThread = new AtomicReference<>();
+
+    Thread pollThread;
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        release.countDown();
+
+        if (pollThread != null) {
+            pollThread.interrupt();
+            pollThread.join(5000);
+        }
+    }
+
+    private void start(int pipelineCapacity) {
+        val settings = LongPollSettings.builder()
+                .pipelineCapacity(pipelineCapacity)
+                .build();
+
+        val longPoll = new TestLongPoll(settings);
+
+        // the first update blocks the handler until released
+        Consumer<Integer> updateHandler = update -> {
+            handlerThread.set(Thread.currentThread());
+
+            if (update == 1) {
+                firstUpdateReceived.countDown();
+
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        pollThread = new Thread(() -> {
+            try {
+                longPoll.start(updateHandler);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }, "Test LongPoll");
+        pollThread.start();
+    }
+
+    private void awaitPolls(int count) throws InterruptedException {
+        val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (polls.get() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void withoutPipelinePollWaitsForHandler() throws InterruptedException {
+        start(0);
+
+        assertThat(firstUpdateReceived.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Thread.sleep(200);
+        assertThat(polls.get()).isEqualTo(1);
+        assertThat(handlerThread.get()).isSameAs(pollThread);
+    }
+
+    @Test
+    public void nextPollIsIssuedWhileBatchIsHandled() throws InterruptedException {
+        start(16);
+
+        assertThat(firstUpdateReceived.await(5, TimeUnit.SECONDS)).isTrue();
+
+        awaitPolls(3);
+        assertThat(polls.get()).isGreaterThanOrEqualTo(3);
+        assertThat(handlerThread.get()).isNotSameAs(pollThread);
+    }
+
+    @Test
+    public void fullPipelineBlocksPolling() throws InterruptedException {
+        start(2);
+
+        assertThat(firstUpdateReceived.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // one update is being handled, two are buffered and the fourth waits for free space
+        awaitPolls(4);
+        Thread.sleep(200);
+        assertThat(polls.get()).isEqualTo(4);
+
+        release.countDown();
+
+        awaitPolls(10);
+        assertThat(polls.get()).isGreaterThanOrEqualTo(10);
+    }
+
+    @Test
+    public void interruptStopsPollAndHandlerThreads() throws InterruptedException {
+        start(2);
+
+        assertThat(firstUpdateReceived.await(5, TimeUnit.SECONDS)).isTrue();
+        awaitPolls(4);
+
+        pollThread.interrupt();
+
+        pollThread.join(5000);
+        assertThat(pollThread.isAlive()).isFalse();
+
+        val handlerThread = this.handlerThread.get();
+        handlerThread.join(5000);
+        assertThat(handlerThread.isAlive()).isFalse();
+    }
+
+    private final class TestLongPoll extends AbstractLongPoll<Integer> {
+
+        TestLongPoll(LongPollSettings settings) {
+            super(mock(Logger.class), settings, PlatformType.VK, MetricsRecorder.noop());
+        }
+
+        @Override
+        protected void poll(Consumer<Integer> updateHandler) throws Exception {
+            Thread.sleep(1);
+
+            updateHandler.accept(polls.incrementAndGet());
+        }
+
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author whilein
+ */
+public class DecorrelatedJitterReconnectPolicyTests {
+
+    private static final Duration BASE = Duration.ofMillis(100);
+
+    private static final Duration CAP = Duration.ofSeconds(10);
+
+    @Test
+    void firstDelayIsBase() {
+        val policy = ReconnectPolicy.decorrelatedJitter(BASE, CAP, 0);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(policy.nextDelay(1, Duration.ZERO)).isEqualTo(BASE);
+        }
+    }
+
+    @Test
+    void delayIsBetweenBaseAndThreePreviousDelays() {
+        val policy = ReconnectPolicy.decorrelatedJitter(BASE, CAP, 0);
+        val previousDelay = Duration.ofMillis(500);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(policy.nextDelay(2, previousDelay))
+                    .isBetween(BASE, previousDelay.multipliedBy(3));
+        }
+    }
+
+    @Test
+    void delayIsCapped() {
+        val policy = ReconnectPolicy.decorrelatedJitter(BASE, CAP, 0);
+
+        Duration delay = Duration.ZERO;
+
+        for (int attempt = 1; attempt <= 1000; attempt++) {
+            delay = policy.nextDelay(attempt, delay);
+
+            assertThat(delay).isNotNull().isBetween(BASE, CAP);
+        }
+
+        assertThat(policy.nextDelay(1001, Duration.ofHours(1))).isBetween(BASE, CAP);
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        val policy = ReconnectPolicy.decorrelatedJitter(BASE, CAP, 3);
+
+        assertThat(policy.nextDelay(1, Duration.ZERO)).isNotNull();
+        assertThat(policy.nextDelay(3, BASE)).isNotNull();
+        assertThat(policy.nextDelay(4, BASE)).isNull();
+    }
+
+    @Test
+    void neverGivesUpWithoutMaxAttempts() {
+        val policy = ReconnectPolicy.decorrelatedJitter(BASE, CAP, 0);
+
+        assertThat(policy.nextDelay(Integer.MAX_VALUE, BASE)).isNotNull();
+    }
+
+}
@@ -0,0 +1,382 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import wbot.http.HttpClient;
+import wbot.platform.telegram.TelegramClient;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author whilein
+ */
+public class ResiliencePolicyTests {
+
+    private static final String HOST = "api.example.com";
+
+    private static final ApiMethod<String> IDEMPOTENT = new TestMethod(true);
+
+    private static final ApiMethod<String> NON_IDEMPOTENT = new TestMethod(false);
+
+    @Test
+    public void nonIdempotentIsNotRetried() {
+        val policy = retrying().build();
+        val attempts = new AtomicInteger();
+
+        val result = policy.execute(HOST, NON_IDEMPOTENT, () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.<String>failedFuture(new IOException("Read timed out"));
+        });
+
+        assertThat(failure(result))
+                .isInstanceOf(IOException.class);
+
+        assertThat(attempts)
+                .hasValue(1);
+    }
+
+    @Test
+    public void nonIdempotentIsRetriedOnConnectException() {
+        val policy = retrying().build();
+        val attempts = new AtomicInteger();
+
+        val result = policy.execute(HOST, NON_IDEMPOTENT, () -> attempts.incrementAndGet() < 3
+                ? CompletableFuture.failedFuture(new ConnectException("Connection refused"))
+                : CompletableFuture.completedFuture("ok"));
+
+        assertThat(result.join())
+                .isEqualTo("ok");
+
+        assertThat(attempts)
+                .hasValue(3);
+    }
+
+    @Test
+    public void idempotentIsRetriedUntilMaxRetries() {
+        val policy = retrying().build();
+        val attempts = new AtomicInteger();
+
+        val result = policy.execute(HOST, IDEMPOTENT, () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.<String>failedFuture(new IOException("Read timed out"));
+        });
+
+        assertThat(failure(result))
+                .isInstanceOf(IOException.class);
+
+        assertThat(attempts)
+                .hasValue(4);
+    }
+
+    @Test
+    public void retryAfterIsWaited() {
+        val policy = retrying().build();
+        val attempts = new AtomicInteger();
+
+        val result = policy.execute(HOST, NON_IDEMPOTENT, () -> attempts.incrementAndGet() == 1
+                ? CompletableFuture.failedFuture(new ApiException("Too Many Requests", 429, Duration.ofMillis(10)))
+                : CompletableFuture.completedFuture("ok"));
+
+        assertThat(result.join())
+                .isEqualTo("ok");
+
+        assertThat(attempts)
+                .hasValue(2);
+    }
+
+    @Test
+    public void retryAfterLongerThanMaxFailsImmediately() {
+        val policy = retrying()
+                .maxRetryAfter(Duration.ofSeconds(1))
+                .build();
+
+        val attempts = new AtomicInteger();
+        val error = new ApiException("Too Many Requests", 429, Duration.ofMinutes(5));
+
+        val result = policy.execute(HOST, IDEMPOTENT, () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.<String>failedFuture(error);
+        });
+
+        assertThat(failure(result))
+                .isSameAs(error);
+
+        assertThat(attempts)
+                .hasValue(1);
+    }
+
+    @Test
+    public void circuitBreakerOpensAtThreshold() throws InterruptedException {
+        val policy = new ResiliencePolicy.Builder()
+                .maxRetries(0)
+                .failureThreshold(3)
+                .openDuration(Duration.ofMillis(100))
+                .build();
+
+        val attempts = new AtomicInteger();
+
+        Supplier<CompletableFuture<String>> failing = () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(new IOException("Connection reset"));
+        };
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(failure(policy.execute(HOST, IDEMPOTENT, failing)))
+                    .isInstanceOf(IOException.class);
+        }
+
+        assertThat(failure(policy.execute(HOST, IDEMPOTENT, failing)))
+                .isInstanceOf(CircuitBreakerOpenException.class);
+
+        assertThat(attempts)
+                .hasValue(3);
+
+        // other hosts are not affected
+        assertThat(failure(policy.execute("other.example.com", IDEMPOTENT, failing)))
+                .isInstanceOf(IOException.class);
+
+        Thread.sleep(150);
+
+        val probe = new CompletableFuture<String>();
+        val probeResult = policy.execute(HOST, IDEMPOTENT, () -> probe);
+
+        assertThat(failure(policy.execute(HOST, IDEMPOTENT, failing)))
+                .isInstanceOf(CircuitBreakerOpenException.class);
+
+        probe.complete("ok");
+
+        assertThat(probeResult.join())
+                .isEqualTo("ok");
+
+        assertThat(policy.execute(HOST, IDEMPOTENT, () -> CompletableFuture.completedFuture("ok")).join())
+                .isEqualTo("ok");
+    }
+
+    @Test
+    public void longPollFailuresDoNotOpenApiHostCircuit() {
+        val urls = new ArrayList<String>();
+
+        val httpClient = mock(HttpClient.class);
+        when(httpClient.postBuffered(anyString(), any(), any())).thenAnswer(invocation -> {
+            urls.add(invocation.getArgument(0));
+            return CompletableFuture.failedFuture(new IOException("Read timed out"));
+        });
+
+        val telegramClient = new TelegramClient.Builder()
+                .token("token")
+                .httpClient(httpClient)
+                .jsonMapper(new JsonMapper())
+                .resiliencePolicy(new ResiliencePolicy.Builder()
+                        .maxRetries(0)
+                        .failureThreshold(3)
+                        .openDuration(Duration.ofMinutes(1))
+                        .build())
+                .build();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(failure(telegramClient.getUpdates().timeout(25).make()))
+                    .isInstanceOf(IOException.class);
+        }
+
+        // request is still sent, circuit of API host is closed
+        assertThat(failure(telegramClient.getMe().make()))
+                .isInstanceOf(IOException.class);
+
+        assertThat(urls)
+                .hasSize(6)
+                .last()
+                .asString()
+                .endsWith("/getMe");
+    }
+
+    @Test
+    public void hedgingCompletesWithFirstSuccess() throws InterruptedException {
+        val slow = new CompletableFuture<String>();
+        val fast = new CompletableFuture<String>();
+
+        val hedged = hedged(slow, fast);
+        val result = hedged.execute();
+
+        hedged.awaitAttempts();
+
+        fast.complete("fast");
+
+        assertThat(result.join())
+                .isEqualTo("fast");
+
+        slow.complete("slow");
+
+        assertThat(result.join())
+                .isEqualTo("fast");
+    }
+
+    @Test
+    public void hedgingFailsWhenBothAttemptsFail() throws InterruptedException {
+        val first = new CompletableFuture<String>();
+        val second = new CompletableFuture<String>();
+
+        val hedged = hedged(first, second);
+        val result = hedged.execute();
+
+        hedged.awaitAttempts();
+
+        second.completeExceptionally(new IOException("Connection reset"));
+
+        assertThat(result)
+                .isNotDone();
+
+        first.completeExceptionally(new IOException("Read timed out"));
+
+        assertThat(failure(result))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Read timed out");
+    }
+
+    @Test
+    public void nonIdempotentIsNotHedged() throws InterruptedException {
+        val policy = new ResiliencePolicy.Builder()
+                .maxRetries(0)
+                .failureThreshold(0)
+                .hedgeDelay(Duration.ofMillis(10))
+                .build();
+
+        val attempts = new AtomicInteger();
+        val response = new CompletableFuture<String>();
+
+        val result = policy.execute(HOST, NON_IDEMPOTENT, () -> {
+            attempts.incrementAndGet();
+            return response;
+        });
+
+        Thread.sleep(50);
+
+        assertThat(attempts)
+                .hasValue(1);
+
+        response.complete("ok");
+
+        assertThat(result.join())
+                .isEqualTo("ok");
+    }
+
+    private static ResiliencePolicy.Builder retrying() {
+        return new ResiliencePolicy.Builder()
+                .maxRetries(3)
+                .baseDelay(Duration.ofMillis(1))
+                .maxDelay(Duration.ofMillis(5))
+                .failureThreshold(0);
+    }
+
+    private static Hedged hedged(CompletableFuture<String> first, CompletableFuture<String> second) {
+        return new Hedged(new ArrayDeque<>(Arrays.asList(first, second)));
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) {
+        return catchThrowable(future::join).getCause();
+    }
+
+    private static final class Hedged {
+
+        final ResiliencePolicy policy = new ResiliencePolicy.Builder()
+                .maxRetries(0)
+                .failureThreshold(0)
+                .hedgeDelay(Duration.ofMillis(10))
+                .build();
+
+        final Queue<CompletableFuture<String>> responses;
+
+        final CountDownLatch attempts;
+
+        private Hedged(Queue<CompletableFuture<String>> responses) {
+            this.responses = responses;
+            this.attempts = new CountDownLatch(responses.size());
+        }
+
+        private CompletableFuture<String> execute() {
+            return policy.execute(HOST, IDEMPOTENT, () -> {
+                attempts.countDown();
+
+                synchronized (responses) {
+                    return responses.remove();
+                }
+            });
+        }
+
+        private void awaitAttempts() throws InterruptedException {
+            assertThat(attempts.await(1, TimeUnit.SECONDS))
+                    .isTrue();
+        }
+
+    }
+
+    private static final class TestMethod implements ApiMethod<String> {
+
+        final boolean idempotent;
+
+        private TestMethod(boolean idempotent) {
+            this.idempotent = idempotent;
+        }
+
+        @Override
+        public String name() {
+            return "test";
+        }
+
+        @Override
+        public Class<? extends String> type() {
+            return String.class;
+        }
+
+        @Override
+        public CompletableFuture<String> make() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ApiMethodParams params() {
+            return () -> null;
+        }
+
+        @Override
+        public boolean isIdempotent() {
+            return idempotent;
+        }
+
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform.telegram;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import wbot.http.BytesContent;
+import wbot.http.HttpResponse;
+import wbot.metrics.MetricsRecorder;
+import wbot.platform.LongPollSettings;
+import wbot.platform.telegram.method.TelegramGetUpdates;
+import wbot.platform.telegram.method.TelegramMethod;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author whilein
+ */
+public class TelegramLongPollTests {
+
+    TelegramLongPoll longPoll;
+
+    Queue<HttpResponse> responses;
+
+    List<TelegramMethod<?>> requests;
+
+    BlockingQueue<Integer> handled;
+
+    @BeforeEach
+    public void setup() {
+        val telegramClient = mock(TelegramClient.class);
+        when(telegramClient.getJsonMapper()).thenReturn(new JsonMapper());
+        when(telegramClient.getMetricsRecorder()).thenReturn(MetricsRecorder.noop());
+        when(telegramClient.getUpdates()).thenAnswer(__ -> new TelegramGetUpdates(telegramClient));
+
+        responses = new ArrayDeque<>();
+        requests = new ArrayList<>();
+        handled = new LinkedBlockingQueue<>();
+
+        when(telegramClient.sendUnparsed(any())).thenAnswer(invocation -> {
+            requests.add(invocation.getArgument(0));
+            return CompletableFuture.completedFuture(responses.remove());
+        });
+
+        val settings = LongPollSettings.builder()
+                .streaming(true)
+                .build();
+
+        longPoll = new TelegramLongPoll(mock(Logger.class), settings, telegramClient);
+    }
+
+    @Test
+    public void updatesAreHandedOverOneAtATime() throws Exception {
+        val body = new PipedOutputStream();
+        responses.add(new HttpResponse(new PipedInputStream(body)));
+
+        val result = CompletableFuture.runAsync(this::poll);
+
+        body.write(bytes("{\"ok\":true,\"result\":[{\"update_id\":1}"));
+        body.flush();
+
+        // the first update is handled, while the rest of response is not received yet
+        assertThat(handled.poll(5, TimeUnit.SECONDS))
+                .isEqualTo(1);
+
+        assertThat(result)
+                .isNotDone();
+
+        body.write(bytes(",{\"update_id\":2}]}"));
+        body.close();
+
+        result.get(5, TimeUnit.SECONDS);
+
+        assertThat(handled)
+                .containsExactly(2);
+    }
+
+    @Test
+    public void okAfterResult() throws Exception {
+        respond("{\"result\":[{\"update_id\":5},{\"update_id\":6}],\"ok\":true}");
+        respond("{\"ok\":true,\"result\":[]}");
+
+        poll();
+        poll();
+
+        assertThat(handled)
+                .containsExactly(5, 6);
+
+        assertThat(body(requests.get(1)))
+                .contains("\"offset\":7");
+    }
+
+    @Test
+    public void unknownFieldsAreSkipped() throws Exception {
+        respond("{\"ok\":true,\"extra\":{\"nested\":[1,{\"a\":[]}]},"
+                + "\"result\":[{\"update_id\":3,\"unknown\":{\"b\":[2]}}],\"more\":null}");
+
+        poll();
+
+        assertThat(handled)
+                .containsExactly(3);
+    }
+
+    @Test
+    public void notOkFails() {
+        respond("{\"ok\":false,\"error_code\":409,\"description\":\"Conflict\"}");
+
+        assertThat(catchThrowable(() -> longPoll.poll(update -> handled.add(update.getUpdateId()))))
+                .isInstanceOf(TelegramException.class)
+                .hasMessage("[409] Conflict");
+    }
+
+    private void poll() {
+        try {
+            longPoll.poll(update -> handled.add(update.getUpdateId()));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void respond(String body) {
+        responses.add(new HttpResponse(new ByteArrayInputStream(bytes(body))));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String body(TelegramMethod<?> method) throws IOException {
+        try (val in = Channels.newInputStream(((BytesContent) method.params().asContent()).open())) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
@@ -0,0 +1,218 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform.telegram;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.val;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import wbot.http.BytesContent;
+import wbot.http.EmbeddableContent;
+import wbot.model.Attachment;
+import wbot.model.AttachmentType;
+import wbot.model.BroadcastResult;
+import wbot.model.Identity;
+import wbot.model.OutMessage;
+import wbot.platform.IdentityCache;
+import wbot.platform.LongPollSettings;
+import wbot.platform.PlatformType;
+import wbot.platform.telegram.method.TelegramMethod;
+import wbot.platform.telegram.method.TelegramSendDocument;
+import wbot.platform.telegram.method.TelegramSendMessage;
+import wbot.platform.telegram.model.Document;
+import wbot.platform.telegram.model.Message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author whilein
+ */
+public class TelegramPlatformTests {
+
+    TelegramPlatform platform;
+
+    List<TelegramMethod<?>> requests;
+
+    Set<Long> failingChats;
+
+    AtomicInteger uploads;
+
+    @BeforeEach
+    public void setup() {
+        val telegramClient = mock(TelegramClient.class);
+        when(telegramClient.getJsonMapper()).thenReturn(new JsonMapper());
+        when(telegramClient.sendMessage()).thenAnswer(__ -> new TelegramSendMessage(telegramClient));
+        when(telegramClient.sendDocument()).thenAnswer(__ -> new TelegramSendDocument(telegramClient));
+
+        requests = Collections.synchronizedList(new ArrayList<>());
+        failingChats = new HashSet<>();
+        uploads = new AtomicInteger();
+
+        when(telegramClient.send(any())).thenAnswer(invocation -> {
+            TelegramMethod<?> method = invocation.getArgument(0);
+            requests.add(method);
+
+            val chatId = (long) method.chatId();
+
+            if (failingChats.contains(chatId)) {
+                return CompletableFuture.failedFuture(new TelegramException(
+                        "[403] Forbidden: bot was blocked by the user", 403, null));
+            }
+
+            return CompletableFuture.completedFuture(Message.builder()
+                    .messageId(chatId * 10)
+                    .document(method instanceof TelegramSendDocument
+                            ? Document.builder().fileId("uploaded").build()
+                            : null)
+                    .build());
+        });
+
+        platform = new TelegramPlatform(mock(), telegramClient, mock(), null, LongPollSettings.defaults(),
+                IdentityCache.disabled(), mock());
+    }
+
+    @Test
+    public void broadcastUploadsAttachmentOnce() {
+        failingChats.add(3L);
+
+        val results = broadcast(5, new TestDocument());
+
+        assertThat(uploads)
+                .hasValue(1);
+
+        assertThat(requests)
+                .extracting(TelegramMethod::chatId)
+                .containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L);
+
+        assertResults(results, 5);
+    }
+
+    @Test
+    public void broadcastUploadsAttachmentForEachRecipientIfFirstFails() {
+        failingChats.add(1L);
+
+        val results = broadcast(3, new TestDocument());
+
+        // there is no file id to reuse, so every recipient uploads attachment itself
+        assertThat(uploads)
+                .hasValue(3);
+
+        assertThat(results.get(0).getError())
+                .isInstanceOf(TelegramException.class);
+
+        assertThat(results.subList(1, 3))
+                .allMatch(BroadcastResult::isSuccess);
+    }
+
+    @Test
+    public void broadcastText() {
+        failingChats.add(3L);
+
+        val results = broadcast(5, null);
+
+        assertThat(uploads)
+                .hasValue(0);
+
+        assertThat(requests)
+                .allMatch(TelegramSendMessage.class::isInstance);
+
+        assertResults(results, 5);
+    }
+
+    private List<BroadcastResult> broadcast(int count, Attachment attachment) {
+        val recipients = new ArrayList<Identity>();
+
+        for (int i = 1; i <= count; i++) {
+            recipients.add(new Identity(i, PlatformType.TELEGRAM));
+        }
+
+        val message = new OutMessage.Builder()
+                .chat(recipients.get(0))
+                .text("Hello")
+                .attachment(attachment)
+                .build();
+
+        val results = platform.broadcast(recipients, message)
+                .map(CompletableFuture::join)
+                .collect(Collectors.toList());
+
+        assertThat(results)
+                .extracting(BroadcastResult::getRecipient)
+                .containsExactlyElementsOf(recipients);
+
+        return results;
+    }
+
+    private void assertResults(List<BroadcastResult> results, int count) {
+        assertThat(results)
+                .hasSize(count);
+
+        for (val result : results) {
+            val chatId = result.getRecipient().getValue();
+
+            if (failingChats.contains(chatId)) {
+                assertThat(result.getError())
+                        .isInstanceOfSatisfying(TelegramException.class, e -> assertThat(e.getErrorCode())
+                                .isEqualTo(403));
+            } else {
+                assertThat(result.isSuccess())
+                        .isTrue();
+
+                assertThat(result.getMessage().getMessageId())
+                        .isEqualTo(chatId * 10);
+
+                assertThat(result.getMessage().getOutMessage().getChat())
+                        .isEqualTo(result.getRecipient());
+            }
+        }
+    }
+
+    private final class TestDocument implements Attachment {
+
+        @Override
+        public @NotNull AttachmentType type() {
+            return AttachmentType.DOCUMENT;
+        }
+
+        @Override
+        public @NotNull String fileName() {
+            return "test.txt";
+        }
+
+        @Override
+        public @NotNull CompletableFuture<EmbeddableContent> createContent() {
+            uploads.incrementAndGet();
+
+            return CompletableFuture.completedFuture(new BytesContent("text/plain", new byte[]{1, 2, 3}));
+        }
+
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform.telegram;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import wbot.platform.telegram.model.Update;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author whilein
+ */
+public class TelegramWebhookTests {
+
+    TelegramWebhook webhook;
+
+    List<Update> updates;
+
+    @BeforeEach
+    public void setup() {
+        val telegramClient = mock(TelegramClient.class);
+        when(telegramClient.getJsonMapper()).thenReturn(new JsonMapper());
+
+        webhook = new TelegramWebhook(mock(), telegramClient, TelegramWebhook.Settings.builder()
+                .address(new InetSocketAddress(0))
+                .url("https://example.com/")
+                .secretToken("secret")
+                .build());
+
+        updates = new ArrayList<>();
+    }
+
+    @Test
+    public void validSecretToken() throws Exception {
+        val exchange = exchange("POST", "secret", "{\"update_id\":123}");
+
+        webhook.handle(exchange, updates::add);
+
+        verify(exchange).sendResponseHeaders(200, -1);
+
+        assertThat(updates)
+                .singleElement()
+                .extracting(Update::getUpdateId)
+                .isEqualTo(123);
+    }
+
+    @Test
+    public void invalidSecretToken() throws Exception {
+        val exchange = exchange("POST", "wrong", "{\"update_id\":123}");
+
+        webhook.handle(exchange, updates::add);
+
+        verify(exchange).sendResponseHeaders(401, -1);
+
+        assertThat(updates)
+                .isEmpty();
+    }
+
+    @Test
+    public void missingSecretToken() throws Exception {
+        val exchange = exchange("POST", null, "{\"update_id\":123}");
+
+        webhook.handle(exchange, updates::add);
+
+        verify(exchange).sendResponseHeaders(401, -1);
+
+        assertThat(updates)
+                .isEmpty();
+    }
+
+    @Test
+    public void notPost() throws Exception {
+        val exchange = exchange("GET", "secret", "");
+
+        webhook.handle(exchange, updates::add);
+
+        verify(exchange).sendResponseHeaders(405, -1);
+
+        assertThat(updates)
+                .isEmpty();
+    }
+
+    private static HttpExchange exchange(String method, String secretToken, String body) {
+        val headers = new Headers();
+
+        if (secretToken != null) {
+            headers.add("X-Telegram-Bot-Api-Secret-Token", secretToken);
+        }
+
+        val exchange = mock(HttpExchange.class);
+        when(exchange.getRequestMethod()).thenReturn(method);
+        when(exchange.getRequestHeaders()).thenReturn(headers);
+        when(exchange.getRequestBody()).thenReturn(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        when(exchange.getResponseBody()).thenReturn(new ByteArrayOutputStream());
+
+        return exchange;
+    }
+
+}
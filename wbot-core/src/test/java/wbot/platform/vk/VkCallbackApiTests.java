@@ -0,0 +1,153 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform.vk;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.sun.net.httpserver.HttpExchange;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import wbot.platform.vk.model.update.UpdateObject;
+import wbot.platform.vk.model.update.UpdateStub;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author whilein
+ */
+public class VkCallbackApiTests {
+
+    VkCallbackApi callbackApi;
+
+    List<UpdateObject> updates;
+
+    @BeforeEach
+    public void setup() {
+        val vkClient = mock(VkClient.class);
+        when(vkClient.getJsonMapper()).thenReturn(new JsonMapper());
+
+        callbackApi = new VkCallbackApi(mock(), vkClient, 1, VkCallbackApi.Settings.builder()
+                .address(new InetSocketAddress(0))
+                .confirmationCode("abcdef")
+                .secret("secret")
+                .build());
+
+        updates = new ArrayList<>();
+    }
+
+    @Test
+    public void confirmation() throws Exception {
+        val response = new ByteArrayOutputStream();
+        val exchange = exchange("POST", "{\"type\":\"confirmation\",\"group_id\":1}", response);
+
+        callbackApi.handle(exchange, updates::add);
+
+        verify(exchange).sendResponseHeaders(200, 6);
+
+        assertThat(response.toString(StandardCharsets.UTF_8))
+                .isEqualTo("abcdef");
+
+        assertThat(updates)
+                .isEmpty();
+    }
+
+    @Test
+    public void confirmationOfOtherGroup() throws Exception {
+        val response = new ByteArrayOutputStream();
+        val exchange = exchange("POST", "{\"type\":\"confirmation\",\"group_id\":2}", response);
+
+        callbackApi.handle(exchange, updates::add);
+
+        verify(exchange).sendResponseHeaders(403, -1);
+
+        assertThat(response.size())
+                .isZero();
+    }
+
+    @Test
+    public void invalidSecret() throws Exception {
+        val exchange = exchange("POST", "{\"type\":\"group_join\",\"group_id\":1,"
+                + "\"secret\":\"wrong\",\"object\":{}}", new ByteArrayOutputStream());
+
+        callbackApi.handle(exchange, updates::add);
+
+        verify(exchange).sendResponseHeaders(403, -1);
+
+        assertThat(updates)
+                .isEmpty();
+    }
+
+    @Test
+    public void missingSecret() throws Exception {
+        val exchange = exchange("POST", "{\"type\":\"group_join\",\"group_id\":1,\"object\":{}}",
+                new ByteArrayOutputStream());
+
+        callbackApi.handle(exchange, updates::add);
+
+        verify(exchange).sendResponseHeaders(403, -1);
+
+        assertThat(updates)
+                .isEmpty();
+    }
+
+    @Test
+    public void validSecret() throws Exception {
+        val response = new ByteArrayOutputStream();
+        val exchange = exchange("POST", "{\"type\":\"group_join\",\"group_id\":1,"
+                + "\"secret\":\"secret\",\"object\":{}}", response);
+
+        callbackApi.handle(exchange, updates::add);
+
+        verify(exchange).sendResponseHeaders(200, 2);
+
+        assertThat(response.toString(StandardCharsets.UTF_8))
+                .isEqualTo("ok");
+
+        assertThat(updates)
+                .singleElement()
+                .isInstanceOf(UpdateStub.class);
+    }
+
+    @Test
+    public void notPost() throws Exception {
+        val exchange = exchange("GET", "", new ByteArrayOutputStream());
+
+        callbackApi.handle(exchange, updates::add);
+
+        verify(exchange).sendResponseHeaders(405, -1);
+    }
+
+    private static HttpExchange exchange(String method, String body, ByteArrayOutputStream response) {
+        val exchange = mock(HttpExchange.class);
+        when(exchange.getRequestMethod()).thenReturn(method);
+        when(exchange.getRequestBody()).thenReturn(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        when(exchange.getResponseBody()).thenReturn(response);
+
+        return exchange;
+    }
+
+}
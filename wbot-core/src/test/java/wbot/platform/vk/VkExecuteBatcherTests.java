@@ -0,0 +1,201 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform.vk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import wbot.platform.vk.method.VkExecute;
+import wbot.platform.vk.method.VkMethod;
+import wbot.platform.vk.method.VkMethodParams;
+import wbot.platform.vk.method.VkUsersGet;
+import wbot.platform.vk.model.ResponseOrError;
+import wbot.platform.vk.model.User;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author whilein
+ */
+public class VkExecuteBatcherTests {
+
+    JsonMapper jsonMapper;
+
+    VkClient client;
+
+    VkExecuteBatcher batcher;
+
+    @BeforeEach
+    public void setup() {
+        jsonMapper = new JsonMapper();
+
+        client = mock(VkClient.class);
+        when(client.getJsonMapper()).thenReturn(jsonMapper);
+        when(client.newMethodParams()).thenAnswer(__ -> new VkMethodParams(client.getJsonMapper(), new byte[0]));
+
+        batcher = new VkExecuteBatcher(client, Duration.ofMillis(100));
+    }
+
+    @Test
+    public void code() {
+        when(client.executeBatch(any())).thenReturn(new CompletableFuture<>());
+
+        batcher.submit(new VkUsersGet(client).userIds(1));
+        batcher.submit(new VkUsersGet(client).userIds(2, 3));
+
+        val execute = ArgumentCaptor.forClass(VkExecute.class);
+        verify(client, timeout(1000)).executeBatch(execute.capture());
+
+        assertThat(execute.getValue().params().asMap())
+                .containsEntry("code", "return [API.users.get({\"user_ids\":\"1\"}),"
+                                       + "API.users.get({\"user_ids\":\"2,3\"})];");
+
+        assertThat(execute.getValue().isIdempotent())
+                .isTrue();
+    }
+
+    @Test
+    public void splitResponse() throws Exception {
+        when(client.executeBatch(any())).thenReturn(CompletableFuture.completedFuture(
+                ResponseOrError.<JsonNode>builder()
+                        .response(jsonMapper.readTree("[[{\"id\":1}],false,false]"))
+                        .executeErrors(Arrays.asList(error("test.fail", 15)))
+                        .build()));
+
+        val users = batcher.submit(new VkUsersGet(client).userIds(1));
+        val flag = batcher.submit(new TestMethod(client, "test.flag"));
+        val fail = batcher.submit(new TestMethod(client, "test.fail"));
+
+        assertThat(users.join())
+                .extracting(User::getId)
+                .containsExactly(1L);
+
+        // false is a valid result, there is no error of that method
+        assertThat(flag.join())
+                .isFalse();
+
+        assertThat(failure(fail).getErrorCode())
+                .isEqualTo(15);
+    }
+
+    @Test
+    public void errorsOfSameMethodInOrder() throws Exception {
+        when(client.executeBatch(any())).thenReturn(CompletableFuture.completedFuture(
+                ResponseOrError.<JsonNode>builder()
+                        .response(jsonMapper.readTree("[false,false]"))
+                        .executeErrors(Arrays.asList(error("test.fail", 15), error("test.fail", 100)))
+                        .build()));
+
+        val first = batcher.submit(new TestMethod(client, "test.fail"));
+        val second = batcher.submit(new TestMethod(client, "test.fail"));
+
+        assertThat(failure(first).getErrorCode())
+                .isEqualTo(15);
+
+        assertThat(failure(second).getErrorCode())
+                .isEqualTo(100);
+    }
+
+    @Test
+    public void resubmitTooManyRequests() throws Exception {
+        when(client.executeBatch(any())).thenReturn(CompletableFuture.completedFuture(
+                ResponseOrError.<JsonNode>builder()
+                        .response(jsonMapper.readTree("[false,[{\"id\":2}]]"))
+                        .executeErrors(Arrays.asList(error("users.get", VkClient.TOO_MANY_REQUESTS_PER_SECOND)))
+                        .build()));
+
+        doReturn(CompletableFuture.completedFuture(new User[]{User.builder().id(1).build()}))
+                .when(client).sendUnbatched(any());
+
+        val first = batcher.submit(new VkUsersGet(client).userIds(1));
+        val second = batcher.submit(new VkUsersGet(client).userIds(2));
+
+        assertThat(first.join())
+                .extracting(User::getId)
+                .containsExactly(1L);
+
+        assertThat(second.join())
+                .extracting(User::getId)
+                .containsExactly(2L);
+
+        verify(client).penalize();
+        verify(client).sendUnbatched(any());
+    }
+
+    @Test
+    public void fullBatchDoesNotShortenNextWindow() throws Exception {
+        when(client.executeBatch(any())).thenReturn(new CompletableFuture<>());
+
+        val longWindowBatcher = new VkExecuteBatcher(client, Duration.ofMillis(400));
+
+        for (int i = 0; i < VkExecuteBatcher.MAX_CALLS; i++) {
+            longWindowBatcher.submit(new VkUsersGet(client).userIds(i));
+        }
+
+        verify(client).executeBatch(any());
+
+        Thread.sleep(200);
+        longWindowBatcher.submit(new VkUsersGet(client).userIds(100));
+
+        // timer of the full batch fires meanwhile, but the next batch waits for its own window
+        Thread.sleep(300);
+        verify(client, times(1)).executeBatch(any());
+
+        verify(client, timeout(1000).times(2)).executeBatch(any());
+    }
+
+    private static ResponseOrError.Error error(String method, int errorCode) {
+        return ResponseOrError.Error.builder()
+                .method(method)
+                .errorCode(errorCode)
+                .errorMsg("Error")
+                .build();
+    }
+
+    private static VkException failure(CompletableFuture<?> future) {
+        val e = catchThrowable(future::join);
+
+        assertThat(e)
+                .hasCauseInstanceOf(VkException.class);
+
+        return (VkException) e.getCause();
+    }
+
+    private static final class TestMethod extends VkMethod<Boolean> {
+
+        private TestMethod(VkClient client, String name) {
+            super(client, name, Boolean.class);
+        }
+
+    }
+
+}
@@ -0,0 +1,198 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform.vk;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import wbot.http.HttpClient;
+import wbot.http.HttpResponse;
+import wbot.metrics.MetricsRecorder;
+import wbot.platform.LongPollSettings;
+import wbot.platform.vk.method.VkGroupsGetLongPollServer;
+import wbot.platform.vk.method.VkMethodParams;
+import wbot.platform.vk.model.GroupLongPollServer;
+import wbot.platform.vk.model.update.MessageAllow;
+
+import java.io.ByteArrayInputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author whilein
+ */
+public class VkLongPollTests {
+
+    VkLongPoll longPoll;
+
+    Queue<HttpResponse> responses;
+
+    List<String> urls;
+
+    AtomicInteger serverRequests;
+
+    BlockingQueue<String> handled;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        val vkClient = mock(VkClient.class);
+        when(vkClient.getJsonMapper()).thenReturn(new JsonMapper());
+        when(vkClient.getMetricsRecorder()).thenReturn(MetricsRecorder.noop());
+        when(vkClient.newMethodParams()).thenAnswer(__ -> new VkMethodParams(vkClient.getJsonMapper(), new byte[0]));
+        when(vkClient.groupsGetLongPollServer()).thenAnswer(__ -> new VkGroupsGetLongPollServer(vkClient));
+
+        serverRequests = new AtomicInteger();
+
+        when(vkClient.send(any())).thenAnswer(__ -> CompletableFuture.completedFuture(GroupLongPollServer.builder()
+                .server("https://lp.vk.com/wh1")
+                .key("key" + serverRequests.incrementAndGet())
+                .ts("1")
+                .build()));
+
+        responses = new ArrayDeque<>();
+        urls = new ArrayList<>();
+        handled = new LinkedBlockingQueue<>();
+
+        val httpClient = mock(HttpClient.class);
+        when(vkClient.getHttpClient()).thenReturn(httpClient);
+        when(httpClient.get(anyString(), any())).thenAnswer(invocation -> {
+            urls.add(invocation.getArgument(0));
+            return CompletableFuture.completedFuture(responses.remove());
+        });
+
+        val settings = LongPollSettings.builder()
+                .streaming(true)
+                .build();
+
+        longPoll = new VkLongPoll(mock(Logger.class), settings, vkClient, 1);
+        longPoll.onStart();
+    }
+
+    @Test
+    public void updatesAreHandedOverOneAtATime() throws Exception {
+        val body = new PipedOutputStream();
+        responses.add(new HttpResponse(new PipedInputStream(body)));
+
+        val result = CompletableFuture.runAsync(this::poll);
+
+        body.write(bytes("{\"ts\":\"2\",\"updates\":[" + update("a")));
+        body.flush();
+
+        // the first update is handled, while the rest of response is not received yet
+        assertThat(handled.poll(5, TimeUnit.SECONDS))
+                .isEqualTo("a");
+
+        assertThat(result)
+                .isNotDone();
+
+        body.write(bytes("," + update("b") + "]}"));
+        body.close();
+
+        result.get(5, TimeUnit.SECONDS);
+
+        assertThat(handled)
+                .containsExactly("b");
+    }
+
+    @Test
+    public void tsAfterUpdates() {
+        respond("{\"updates\":[" + update("a") + "," + update("b") + "],\"ts\":\"5\"}");
+        respond("{\"ts\":\"5\",\"updates\":[]}");
+
+        poll();
+        poll();
+
+        assertThat(handled)
+                .containsExactly("a", "b");
+
+        assertThat(urls.get(1))
+                .contains("ts=5");
+    }
+
+    @Test
+    public void failedAfterTs() {
+        respond("{\"ts\":\"9\",\"failed\":1}");
+        respond("{\"failed\":2}");
+        respond("{\"ts\":\"1\",\"updates\":[]}");
+
+        poll();
+        poll();
+        poll();
+
+        assertThat(urls.get(1))
+                .contains("key=key1")
+                .contains("ts=9");
+
+        // key is expired, so server is requested again
+        assertThat(serverRequests)
+                .hasValue(2);
+
+        assertThat(urls.get(2))
+                .contains("key=key2");
+    }
+
+    @Test
+    public void unknownFieldsAreSkipped() {
+        respond("{\"pts\":3,\"extra\":{\"nested\":[1,{\"a\":[]}]},\"ts\":\"4\","
+                + "\"updates\":[{\"type\":\"message_allow\",\"event_id\":\"x\",\"group_id\":1,"
+                + "\"object\":{\"user_id\":1,\"key\":\"a\",\"unknown\":[2]}}],\"more\":null}");
+
+        poll();
+
+        assertThat(handled)
+                .containsExactly("a");
+    }
+
+    private void poll() {
+        try {
+            longPoll.poll(update -> handled.add(((MessageAllow) update).getKey()));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void respond(String body) {
+        responses.add(new HttpResponse(new ByteArrayInputStream(bytes(body))));
+    }
+
+    private static String update(String key) {
+        return "{\"type\":\"message_allow\",\"object\":{\"user_id\":1,\"key\":\"" + key + "\"}}";
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
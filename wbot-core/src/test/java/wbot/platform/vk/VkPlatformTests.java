@@ -0,0 +1,347 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.platform.vk;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.val;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import wbot.http.BytesContent;
+import wbot.http.EmbeddableContent;
+import wbot.http.HttpClient;
+import wbot.http.HttpResponse;
+import wbot.model.Attachment;
+import wbot.model.AttachmentType;
+import wbot.model.BroadcastResult;
+import wbot.model.Identity;
+import wbot.model.IdentityName;
+import wbot.model.OutMessage;
+import wbot.platform.IdentityCache;
+import wbot.platform.LongPollSettings;
+import wbot.platform.PlatformType;
+import wbot.platform.vk.method.VkDocsGetMessagesUploadServer;
+import wbot.platform.vk.method.VkDocsSave;
+import wbot.platform.vk.method.VkGroupsGetById;
+import wbot.platform.vk.method.VkMessagesSend;
+import wbot.platform.vk.method.VkMethod;
+import wbot.platform.vk.method.VkMethodParams;
+import wbot.platform.vk.method.VkUsersGet;
+import wbot.platform.vk.model.Document;
+import wbot.platform.vk.model.Group;
+import wbot.platform.vk.model.Id;
+import wbot.platform.vk.model.User;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author whilein
+ */
+public class VkPlatformTests {
+
+    VkPlatform platform;
+
+    List<VkMethod<?>> requests;
+
+    @BeforeEach
+    public void setup() {
+        val vkClient = mock(VkClient.class);
+        when(vkClient.getJsonMapper()).thenReturn(new JsonMapper());
+        when(vkClient.newMethodParams()).thenAnswer(__ -> new VkMethodParams(vkClient.getJsonMapper(), new byte[0]));
+        when(vkClient.usersGet()).thenAnswer(__ -> new VkUsersGet(vkClient));
+        when(vkClient.groupsGetById()).thenAnswer(__ -> new VkGroupsGetById(vkClient));
+        when(vkClient.messagesSend()).thenAnswer(__ -> new VkMessagesSend(vkClient));
+        when(vkClient.docsGetMessagesUploadServer()).thenAnswer(__ -> new VkDocsGetMessagesUploadServer(vkClient));
+        when(vkClient.docsSave()).thenAnswer(__ -> new VkDocsSave(vkClient));
+
+        val httpClient = mock(HttpClient.class);
+        when(vkClient.getHttpClient()).thenReturn(httpClient);
+        when(httpClient.postBuffered(any(), any())).thenAnswer(__ -> CompletableFuture.completedFuture(
+                HttpResponse.buffered("{\"file\":\"uploaded\"}".getBytes(StandardCharsets.UTF_8))));
+
+        requests = Collections.synchronizedList(new ArrayList<>());
+
+        when(vkClient.send(any())).thenAnswer(invocation -> {
+            VkMethod<?> method = invocation.getArgument(0);
+            requests.add(method);
+
+            Object result;
+
+            if (method instanceof VkUsersGet) {
+                result = users(ids(method, "user_ids"));
+            } else if (method instanceof VkGroupsGetById) {
+                result = groups(ids(method, "group_ids"));
+            } else if (method instanceof VkMessagesSend) {
+                return sendResults(ids(method, "peer_ids"));
+            } else if (method instanceof VkDocsGetMessagesUploadServer) {
+                result = VkDocsGetMessagesUploadServer.Result.builder().uploadUrl("https://upload").build();
+            } else {
+                result = VkDocsSave.Result.builder()
+                        .doc(Document.builder().id(5).ownerId(new Id(-1)).build())
+                        .build();
+            }
+
+            return CompletableFuture.completedFuture(result);
+        });
+
+        platform = new VkPlatform(0, mock(), vkClient, mock(), null, LongPollSettings.defaults(),
+                IdentityCache.disabled(), mock());
+    }
+
+    @Test
+    public void usersAreLoadedByThousand() {
+        val names = new ArrayList<CompletableFuture<IdentityName>>();
+
+        for (int i = 1; i <= 2500; i++) {
+            names.add(platform.getName(new Id(i)));
+        }
+
+        for (int i = 0; i < names.size(); i++) {
+            assertThat(names.get(i).join().getFirstName())
+                    .isEqualTo("User" + (i + 1));
+        }
+
+        assertLoadedInBatches("user_ids", 2500, 1000);
+    }
+
+    @Test
+    public void groupsAreLoadedByFiveHundred() {
+        val names = new ArrayList<CompletableFuture<IdentityName>>();
+
+        for (int i = 1; i <= 1200; i++) {
+            names.add(platform.getName(new Id(-i)));
+        }
+
+        for (int i = 0; i < names.size(); i++) {
+            assertThat(names.get(i).join().getFirstName())
+                    .isEqualTo("Group" + (i + 1));
+        }
+
+        assertLoadedInBatches("group_ids", 1200, 500);
+    }
+
+    @Test
+    public void groupIsLoadedByAbsoluteId() {
+        assertThat(platform.getName(new Id(-42)).join().getFirstName())
+                .isEqualTo("Group42");
+
+        assertThat(requests)
+                .singleElement()
+                .extracting(method -> method.params().asMap().get("group_ids"))
+                .isEqualTo("42");
+    }
+
+    @Test
+    public void sameUserIsLoadedOnce() {
+        val first = platform.getName(new Id(7));
+        val second = platform.getName(new Id(7));
+
+        assertThat(first.join())
+                .isEqualTo(second.join());
+
+        assertThat(requests)
+                .singleElement()
+                .extracting(method -> method.params().asMap().get("user_ids"))
+                .isEqualTo("7");
+    }
+
+    @Test
+    public void broadcastIsSentByHundredPeers() {
+        val recipients = new ArrayList<Identity>();
+
+        for (int i = 1; i <= 250; i++) {
+            recipients.add(new Identity(i, PlatformType.VK));
+        }
+
+        val message = new OutMessage.Builder()
+                .chat(recipients.get(0))
+                .text("Hello")
+                .attachment(new TestDocument())
+                .build();
+
+        val results = platform.broadcast(recipients, message)
+                .map(CompletableFuture::join)
+                .collect(Collectors.toList());
+
+        val sends = requests.stream()
+                .filter(VkMessagesSend.class::isInstance)
+                .collect(Collectors.toList());
+
+        assertThat(sends)
+                .extracting(send -> ids(send, "peer_ids").length)
+                .containsExactly(100, 100, 50);
+
+        assertThat(sends)
+                .extracting(send -> send.params().asMap().get("attachment"))
+                .containsOnly("doc-1_5");
+
+        // attachment is uploaded once for all chunks
+        assertThat(requests)
+                .filteredOn(VkDocsGetMessagesUploadServer.class::isInstance)
+                .hasSize(1);
+
+        assertThat(requests)
+                .filteredOn(VkDocsSave.class::isInstance)
+                .hasSize(1);
+
+        assertThat(results)
+                .extracting(BroadcastResult::getRecipient)
+                .containsExactlyElementsOf(recipients);
+
+        for (val result : results) {
+            val peerId = result.getRecipient().getValue();
+
+            if (peerId == 250) {
+                assertThat(result.getError())
+                        .as("peer without result")
+                        .isInstanceOf(VkException.class);
+            } else if (peerId % 7 == 0) {
+                assertThat(result.getError())
+                        .isInstanceOfSatisfying(VkException.class, e -> assertThat(e.getErrorCode())
+                                .isEqualTo(901));
+            } else {
+                assertThat(result.isSuccess())
+                        .isTrue();
+
+                assertThat(result.getMessage().getMessageId())
+                        .isEqualTo(peerId * 10);
+
+                assertThat(result.getMessage().getOutMessage().getChat())
+                        .isEqualTo(result.getRecipient());
+            }
+        }
+    }
+
+    @Test
+    public void broadcastFailsAllRecipientsOfFailedChunk() {
+        val recipients = new ArrayList<Identity>();
+
+        for (int i = 1; i <= 150; i++) {
+            // peer 0 makes the whole request of the first chunk fail
+            recipients.add(new Identity(i == 1 ? 0 : i, PlatformType.VK));
+        }
+
+        val results = platform.broadcast(recipients, new OutMessage.Builder()
+                        .chat(recipients.get(0))
+                        .text("Hello")
+                        .build())
+                .map(CompletableFuture::join)
+                .collect(Collectors.toList());
+
+        assertThat(results.subList(0, 100))
+                .allSatisfy(result -> assertThat(result.getError())
+                        .isInstanceOf(VkException.class)
+                        .hasMessageContaining("peer_ids"));
+
+        assertThat(results.subList(100, 150))
+                .allMatch(BroadcastResult::isSuccess);
+    }
+
+    private static CompletableFuture<VkMessagesSend.Result[]> sendResults(long[] peerIds) {
+        val results = new ArrayList<VkMessagesSend.Result>();
+
+        for (val peerId : peerIds) {
+            if (peerId == 0) {
+                return CompletableFuture.failedFuture(new VkException("[100] Invalid peer_ids", 100, null));
+            }
+
+            if (peerId == 250) {
+                continue;
+            }
+
+            results.add(new VkMessagesSend.Result(new Id(peerId), (int) peerId * 10, peerId,
+                    peerId % 7 == 0 ? new VkMessagesSend.SendError(901, "Can't send messages") : null));
+        }
+
+        return CompletableFuture.completedFuture(results.toArray(new VkMessagesSend.Result[0]));
+    }
+
+    private void assertLoadedInBatches(String field, int count, int maxBatchSize) {
+        val loadedIds = new HashSet<Long>();
+
+        for (val request : requests) {
+            val ids = ids(request, field);
+
+            assertThat(ids.length)
+                    .isLessThanOrEqualTo(maxBatchSize);
+
+            for (val id : ids) {
+                assertThat(loadedIds.add(id))
+                        .as("id %s is loaded twice", id)
+                        .isTrue();
+            }
+        }
+
+        assertThat(loadedIds)
+                .hasSize(count);
+
+        assertThat(requests)
+                .hasSizeGreaterThanOrEqualTo((count + maxBatchSize - 1) / maxBatchSize);
+    }
+
+    private static long[] ids(VkMethod<?> method, String field) {
+        return Arrays.stream(method.params().asMap().get(field).split(","))
+                .mapToLong(Long::parseLong)
+                .toArray();
+    }
+
+    private static User[] users(long[] ids) {
+        return Arrays.stream(ids)
+                .mapToObj(id -> User.builder().id(id).firstName("User" + id).build())
+                .toArray(User[]::new);
+    }
+
+    private static VkGroupsGetById.Result groups(long[] ids) {
+        return VkGroupsGetById.Result.builder()
+                .groups(Arrays.stream(ids)
+                        .mapToObj(id -> Group.builder().id((int) id).name("Group" + id).build())
+                        .toArray(Group[]::new))
+                .build();
+    }
+
+    private static final class TestDocument implements Attachment {
+
+        @Override
+        public @NotNull AttachmentType type() {
+            return AttachmentType.DOCUMENT;
+        }
+
+        @Override
+        public @NotNull String fileName() {
+            return "test.txt";
+        }
+
+        @Override
+        public @NotNull CompletableFuture<EmbeddableContent> createContent() {
+            return CompletableFuture.completedFuture(new BytesContent("text/plain", new byte[]{1, 2, 3}));
+        }
+
+    }
+
+}
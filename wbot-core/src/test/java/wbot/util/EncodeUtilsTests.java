@@ -0,0 +1,102 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.util;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author whilein
+ */
+public class EncodeUtilsTests {
+
+    private static final List<String> VALUES = Arrays.asList(
+            "",
+            "hello",
+            "Hello, World! 100% = ok?",
+            "a.b-c*d_e~f+g/h&i=j",
+            "Привет, мир",
+            "€ ₽ ©",
+            "😀 emoji",
+            "{\"buttons\":[[{\"action\":{\"type\":\"text\",\"label\":\"Да\"}}]]}",
+            "lone \uD83D high",
+            "lone \uDE00 low",
+            "trailing \uD83D"
+    );
+
+    @Test
+    public void encodeURL() {
+        for (val value : VALUES) {
+            assertEncodedLikeURLEncoder(value);
+        }
+    }
+
+    @Test
+    public void encodeRandomURL() {
+        val random = ThreadLocalRandom.current();
+
+        for (int i = 0; i < 1000; i++) {
+            val chars = new char[random.nextInt(64)];
+
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = (char) random.nextInt(Character.MAX_VALUE + 1);
+            }
+
+            assertEncodedLikeURLEncoder(new String(chars));
+        }
+    }
+
+    private static void assertEncodedLikeURLEncoder(String value) {
+        val expected = URLEncoder.encode(value, StandardCharsets.UTF_8);
+
+        val length = EncodeUtils.encodedURLLength(value);
+
+        assertThat(length)
+                .as("length of %s", value)
+                .isEqualTo(expected.length());
+
+        val dst = new byte[length + 2];
+        val end = EncodeUtils.encodeURL(value, dst, 1);
+
+        assertThat(end)
+                .isEqualTo(length + 1);
+
+        assertThat(new String(dst, 1, length, StandardCharsets.US_ASCII))
+                .isEqualTo(expected);
+
+        val utf8 = value.getBytes(StandardCharsets.UTF_8);
+        val utf8Length = EncodeUtils.encodedURLLength(utf8, 0, utf8.length);
+
+        assertThat(utf8Length)
+                .isEqualTo(expected.length());
+
+        val utf8Dst = new byte[utf8Length];
+        EncodeUtils.encodeURL(utf8, 0, utf8.length, utf8Dst, 0);
+
+        assertThat(new String(utf8Dst, StandardCharsets.US_ASCII))
+                .isEqualTo(expected);
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.util;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author whilein
+ */
+public class KeyedRateLimiterTests {
+
+    @Test
+    public void keysAreIndependent() {
+        val limiter = KeyedRateLimiter.<Integer>create(1, 1);
+
+        assertThat(limiter.acquire(1)).isDone();
+        assertThat(limiter.acquire(1)).isNotDone();
+
+        assertThat(limiter.acquire(2)).isDone();
+    }
+
+    @Test
+    public void penalize() {
+        val limiter = KeyedRateLimiter.<Integer>create(1000, 10);
+
+        limiter.penalize(1, Duration.ofMinutes(1));
+
+        assertThat(limiter.acquire(1)).isNotDone();
+        assertThat(limiter.acquire(2)).isDone();
+    }
+
+    @Test
+    public void evictIdleKeys() throws InterruptedException {
+        val limiter = KeyedRateLimiter.<Integer>create(2, 1);
+
+        limiter.penalize(-1, Duration.ofMinutes(1));
+
+        for (int i = 0; i < 4100; i++) {
+            limiter.acquire(i);
+        }
+
+        Thread.sleep(600);
+
+        limiter.acquire(4100);
+
+        assertThat(limiter.size())
+                .isEqualTo(2);
+
+        // busy limiter is not evicted and keeps its penalty
+        assertThat(limiter.acquire(-1)).isNotDone();
+    }
+
+    @Test
+    public void evictIdleKeysOncePerInterval() throws InterruptedException {
+        // limiter becomes idle in 10ms after use, but refills whole burst only in 10s
+        val limiter = KeyedRateLimiter.<Integer>create(100, 1000);
+
+        for (int i = 0; i < 4100; i++) {
+            limiter.acquire(i);
+        }
+
+        Thread.sleep(50);
+
+        limiter.acquire(4100);
+
+        assertThat(limiter.size())
+                .isEqualTo(4101);
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.util;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author whilein
+ */
+public class RateLimiterTests {
+
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final long TOLERANCE = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @Test
+    public void burst() {
+        val limiter = RateLimiter.create(10, 3);
+
+        assertThat(limiter.reserve()).isZero();
+        assertThat(limiter.reserve()).isZero();
+        assertThat(limiter.reserve()).isZero();
+
+        assertThat(limiter.reserve())
+                .isBetween(INTERVAL - TOLERANCE, INTERVAL);
+
+        assertThat(limiter.reserve())
+                .isBetween(2 * INTERVAL - TOLERANCE, 2 * INTERVAL);
+    }
+
+    @Test
+    public void refill() throws InterruptedException {
+        val limiter = RateLimiter.create(10, 1);
+
+        assertThat(limiter.reserve()).isZero();
+
+        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(INTERVAL + TOLERANCE));
+
+        assertThat(limiter.reserve()).isZero();
+    }
+
+    @Test
+    public void penalize() {
+        val limiter = RateLimiter.create(10, 3);
+
+        limiter.penalize(Duration.ofSeconds(1));
+
+        val second = TimeUnit.SECONDS.toNanos(1);
+
+        assertThat(limiter.reserve())
+                .isBetween(second - TOLERANCE, second);
+
+        assertThat(limiter.isIdle())
+                .isFalse();
+    }
+
+    @Test
+    public void penalizeShorterThanReserved() {
+        val limiter = RateLimiter.create(10, 1);
+
+        limiter.penalize(Duration.ofSeconds(1));
+        limiter.penalize(Duration.ofMillis(100));
+
+        val second = TimeUnit.SECONDS.toNanos(1);
+
+        assertThat(limiter.reserve())
+                .isBetween(second - TOLERANCE, second);
+    }
+
+    @Test
+    public void acquire() {
+        val limiter = RateLimiter.create(10, 2);
+
+        val first = limiter.acquire();
+        val second = limiter.acquire();
+
+        assertThat(first).isDone();
+        assertThat(second).isDone();
+
+        assertThat(first)
+                .isNotSameAs(second);
+
+        val delayed = limiter.acquire();
+
+        assertThat(delayed)
+                .isNotDone()
+                .succeedsWithin(Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void unlimited() {
+        val limiter = RateLimiter.unlimited();
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(limiter.reserve()).isZero();
+        }
+    }
+
+}
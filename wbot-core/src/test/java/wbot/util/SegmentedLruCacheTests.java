@@ -0,0 +1,205 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.util;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * @author whilein
+ */
+public class SegmentedLruCacheTests {
+
+    private static final Duration TTL = Duration.ofMillis(50);
+
+    @Test
+    public void concurrentGetLoadsOnce() throws Exception {
+        val cache = new SegmentedLruCache<String, String>(4, 16, Duration.ofMinutes(1), Duration.ZERO);
+
+        val loads = new AtomicInteger();
+        val loading = new CompletableFuture<String>();
+
+        val threads = 8;
+        val start = new CountDownLatch(1);
+        val executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            val futures = new ArrayList<Future<CompletableFuture<String>>>();
+
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+
+                    return cache.get("key", __ -> {
+                        loads.incrementAndGet();
+                        return loading;
+                    });
+                }));
+            }
+
+            start.countDown();
+
+            val results = new ArrayList<CompletableFuture<String>>();
+
+            for (val future : futures) {
+                results.add(future.get(1, TimeUnit.SECONDS));
+            }
+
+            loading.complete("value");
+
+            for (val result : results) {
+                assertThat(result.join())
+                        .isEqualTo("value");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(loads)
+                .hasValue(1);
+    }
+
+    @Test
+    public void failedLoadIsNotCached() {
+        val cache = new SegmentedLruCache<String, String>(1, 16, Duration.ofMinutes(1), Duration.ZERO);
+        val loads = new AtomicInteger();
+
+        for (int i = 1; i <= 2; i++) {
+            val result = cache.get("key", __ -> {
+                loads.incrementAndGet();
+                return CompletableFuture.failedFuture(new IllegalStateException("failed"));
+            });
+
+            assertThat(catchThrowable(result::join))
+                    .hasCauseInstanceOf(IllegalStateException.class);
+
+            assertThat(loads)
+                    .hasValue(i);
+        }
+
+        assertThat(cache.size())
+                .isZero();
+    }
+
+    @Test
+    public void failedLoadIsCachedForNegativeTtl() throws InterruptedException {
+        val cache = new SegmentedLruCache<String, String>(1, 16, Duration.ofMinutes(1), TTL);
+        val loads = new AtomicInteger();
+
+        val loader = (Function<String, CompletableFuture<String>>) __ -> {
+            loads.incrementAndGet();
+            return CompletableFuture.failedFuture(new IllegalStateException("failed"));
+        };
+
+        cache.get("key", loader);
+        cache.get("key", loader);
+
+        assertThat(loads)
+                .hasValue(1);
+
+        Thread.sleep(TTL.toMillis() * 2);
+
+        cache.get("key", loader);
+
+        assertThat(loads)
+                .hasValue(2);
+    }
+
+    @Test
+    public void expiry() throws InterruptedException {
+        val cache = new SegmentedLruCache<String, Integer>(1, 16, TTL, Duration.ZERO);
+        val loads = new AtomicInteger();
+
+        assertThat(cache.get("key", __ -> CompletableFuture.completedFuture(loads.incrementAndGet())).join())
+                .isEqualTo(1);
+
+        assertThat(cache.get("key", __ -> CompletableFuture.completedFuture(loads.incrementAndGet())).join())
+                .isEqualTo(1);
+
+        Thread.sleep(TTL.toMillis() * 2);
+
+        assertThat(cache.getIfPresent("key"))
+                .isNull();
+
+        assertThat(cache.get("key", __ -> CompletableFuture.completedFuture(loads.incrementAndGet())).join())
+                .isEqualTo(2);
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        val cache = new SegmentedLruCache<String, String>(1, 2, Duration.ofMinutes(1), Duration.ZERO);
+
+        cache.put("a", "a");
+        cache.put("b", "b");
+
+        assertThat(cache.getIfPresent("a"))
+                .isNotNull();
+
+        cache.put("c", "c");
+
+        assertThat(cache.getIfPresent("b"))
+                .isNull();
+
+        assertThat(cache.getIfPresent("a"))
+                .isNotNull();
+
+        assertThat(cache.getIfPresent("c"))
+                .isNotNull();
+
+        assertThat(cache.stats().getEvictionCount())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void stats() {
+        val cache = new SegmentedLruCache<String, String>(1, 16, Duration.ofMinutes(1), Duration.ZERO);
+
+        cache.get("a", CompletableFuture::completedFuture);
+        cache.get("a", CompletableFuture::completedFuture);
+        cache.get("a", CompletableFuture::completedFuture);
+        cache.get("b", CompletableFuture::completedFuture);
+        cache.getIfPresent("c");
+
+        val stats = cache.stats();
+
+        assertThat(stats.getHitCount())
+                .isEqualTo(2);
+
+        assertThat(stats.getMissCount())
+                .isEqualTo(3);
+
+        assertThat(stats.getEvictionCount())
+                .isZero();
+
+        assertThat(stats.hitRate())
+                .isEqualTo(0.4);
+    }
+
+}
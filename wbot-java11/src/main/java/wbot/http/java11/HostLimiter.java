@@ -0,0 +1,155 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.http.java11;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.val;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Limits count of concurrent requests to one host, requests over the limit wait in queue
+ * without blocking any thread.
+ *
+ * @author whilein
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+final class HostLimiter {
+
+    int maxRequests;
+
+    Queue<Runnable> pendingRequests = new ArrayDeque<>();
+
+    @NonFinal
+    int activeRequests;
+
+    @NonFinal
+    boolean draining;
+
+    HostLimiter(int maxRequests) {
+        this.maxRequests = maxRequests;
+    }
+
+    public synchronized int getActiveRequests() {
+        return activeRequests;
+    }
+
+    public synchronized int getQueuedRequests() {
+        return pendingRequests.size();
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> request) {
+        return submit(__ -> request.get(), true);
+    }
+
+    /**
+     * Same as {@link #submit(Supplier)}, but successful request holds its slot until it runs the given
+     * release action, e.g. when response body is read or closed. Failed request releases its slot itself.
+     * Release action can be run several times, only the first run releases the slot.
+     */
+    public <T> CompletableFuture<T> submitUntilReleased(Function<Runnable, CompletableFuture<T>> request) {
+        return submit(request, false);
+    }
+
+    private <T> CompletableFuture<T> submit(
+            Function<Runnable, CompletableFuture<T>> request,
+            boolean releaseOnComplete
+    ) {
+        val result = new CompletableFuture<T>();
+
+        Runnable task = () -> {
+            val released = new AtomicBoolean();
+
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    release();
+                }
+            };
+
+            CompletableFuture<T> response;
+
+            try {
+                response = request.apply(release);
+            } catch (Throwable e) {
+                release.run();
+                result.completeExceptionally(e);
+                return;
+            }
+
+            response.whenComplete((value, e) -> {
+                if (e != null || releaseOnComplete) {
+                    release.run();
+                }
+
+                if (e != null) {
+                    result.completeExceptionally(e);
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+
+        synchronized (this) {
+            pendingRequests.add(task);
+        }
+
+        drain();
+
+        return result;
+    }
+
+    private void release() {
+        synchronized (this) {
+            activeRequests--;
+        }
+
+        drain();
+    }
+
+    private void drain() {
+        // request can complete synchronously and release its slot from inside next.run(),
+        // so pending requests are started in a loop by one thread instead of recursion
+        while (true) {
+            Runnable next;
+
+            synchronized (this) {
+                if (draining || activeRequests >= maxRequests || (next = pendingRequests.poll()) == null) {
+                    return;
+                }
+
+                activeRequests++;
+                draining = true;
+            }
+
+            try {
+                next.run();
+            } finally {
+                synchronized (this) {
+                    draining = false;
+                }
+            }
+        }
+    }
+
+}
@@ -17,33 +17,78 @@
 package wbot.http.java11;
 
 import lombok.AccessLevel;
-import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.Value;
+import lombok.experimental.Accessors;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
 import lombok.val;
+import org.jetbrains.annotations.Nullable;
 import wbot.http.Content;
 import wbot.http.ExceptionSneakyPropagatingContentVisitor;
 import wbot.http.HttpClient;
 import wbot.http.HttpResponse;
+import wbot.http.HttpTiming;
 import wbot.http.MultipartContent;
 
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandler;
 import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.ResponseInfo;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
+ * HTTP client based on {@link java.net.http.HttpClient}, which keeps connections alive
+ * and uses HTTP/2 if server supports it.
+ *
  * @author whilein
  */
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
-@RequiredArgsConstructor
 public final class Java11HttpClient implements HttpClient {
 
+    private static final Runnable NOTHING_TO_RELEASE = () -> {
+    };
+
     java.net.http.HttpClient httpClient;
 
+    @Nullable Duration requestTimeout;
+
+    int maxRequestsPerHost;
+
+    Map<String, HostLimiter> hostLimiters = new ConcurrentHashMap<>();
+
+    LongAdder totalRequests = new LongAdder();
+    LongAdder failedRequests = new LongAdder();
+
+    public Java11HttpClient(java.net.http.HttpClient httpClient) {
+        this(httpClient, null, 0);
+    }
+
+    private Java11HttpClient(
+            java.net.http.HttpClient httpClient,
+            @Nullable Duration requestTimeout,
+            int maxRequestsPerHost
+    ) {
+        this.httpClient = httpClient;
+        this.requestTimeout = requestTimeout;
+        this.maxRequestsPerHost = maxRequestsPerHost;
+    }
+
     @Override
     public void start() {
         // no-op
@@ -54,28 +99,184 @@ public final class Java11HttpClient implements HttpClient {
         // no-op
     }
 
+    public Stats getStats() {
+        int activeRequests = 0;
+        int queuedRequests = 0;
+
+        for (val hostLimiter : hostLimiters.values()) {
+            activeRequests += hostLimiter.getActiveRequests();
+            queuedRequests += hostLimiter.getQueuedRequests();
+        }
+
+        return new Stats(totalRequests.sum(), failedRequests.sum(), activeRequests, queuedRequests);
+    }
+
+    private HttpRequest.Builder newRequest(String url, @Nullable Duration timeout) {
+        val builder = HttpRequest.newBuilder(URI.create(url));
+
+        if (timeout != null || (timeout = this.requestTimeout) != null) {
+            builder.timeout(timeout);
+        }
+
+        return builder;
+    }
+
+    private CompletableFuture<HttpResponse> send(HttpRequest request, boolean buffered) {
+        totalRequests.increment();
+
+        CompletableFuture<HttpResponse> response;
+
+        if (buffered) {
+            Supplier<CompletableFuture<HttpResponse>> call = () -> {
+                val handler = new TimingBodyHandler<>(BodyHandlers.ofByteArray());
+
+                return httpClient.sendAsync(request, handler)
+                        .thenApply(r -> HttpResponse.buffered(r.statusCode(), r.headers().map(),
+                                handler.getTiming(true), r.body()));
+            };
+
+            response = maxRequestsPerHost > 0
+                    ? getHostLimiter(request).submit(call)
+                    : call.get();
+        } else {
+            // connection is busy until body is read, so slot of host is released only then
+            Function<Runnable, CompletableFuture<HttpResponse>> call = release -> {
+                val handler = new TimingBodyHandler<>(BodyHandlers.ofInputStream());
+
+                return httpClient.sendAsync(request, handler)
+                        .thenApply(r -> new HttpResponse(r.statusCode(), r.headers().map(),
+                                handler.getTiming(false), new ReleasingInputStream(r.body(), release)));
+            };
+
+            response = maxRequestsPerHost > 0
+                    ? getHostLimiter(request).submitUntilReleased(call)
+                    : call.apply(NOTHING_TO_RELEASE);
+        }
+
+        return response.whenComplete((__, e) -> {
+            if (e != null) failedRequests.increment();
+        });
+    }
+
+    private HostLimiter getHostLimiter(HttpRequest request) {
+        return hostLimiters.computeIfAbsent(request.uri().getHost(), __ -> new HostLimiter(maxRequestsPerHost));
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> post(String url, Content content, @Nullable Duration timeout) {
+        return send(content.accept(new RequestInitializingContentVisitor(newRequest(url, timeout))), false);
+    }
+
     @Override
-    public CompletableFuture<HttpResponse> post(String url, Content content) {
-        val request = content.accept(new RequestInitializingContentVisitor(url));
+    public CompletableFuture<HttpResponse> postBuffered(String url, Content content, @Nullable Duration timeout) {
+        return send(content.accept(new RequestInitializingContentVisitor(newRequest(url, timeout))), true);
+    }
 
-        return httpClient.sendAsync(request, BodyHandlers.ofInputStream())
-                .thenApply(response -> new HttpResponse(response.body()));
+    @Override
+    public CompletableFuture<HttpResponse> get(String url, @Nullable Duration timeout) {
+        return send(newRequest(url, timeout).build(), false);
     }
 
     @Override
-    public CompletableFuture<HttpResponse> get(String url) {
-        return httpClient.sendAsync(HttpRequest.newBuilder(URI.create(url)).build(), BodyHandlers.ofInputStream())
-                .thenApply(response -> new HttpResponse(response.body()));
+    public CompletableFuture<HttpResponse> getBuffered(String url, @Nullable Duration timeout) {
+        return send(newRequest(url, timeout).build(), true);
+    }
+
+    /**
+     * Request counters. {@link java.net.http.HttpClient} does not expose its connections, so there are
+     * no connection or keep-alive metrics; on HTTP/1.1 {@code activeRequests} is the count of busy connections.
+     */
+    @Value
+    public static class Stats {
+        long totalRequests;
+        long failedRequests;
+        int activeRequests;
+        int queuedRequests;
+    }
+
+    /**
+     * Body of unbuffered response, which runs {@code release} once it is read to the end or closed.
+     */
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    private static final class ReleasingInputStream extends FilterInputStream {
+
+        Runnable release;
+
+        private ReleasingInputStream(InputStream in, Runnable release) {
+            super(in);
+
+            this.release = release;
+        }
+
+        @Override
+        public int read() throws IOException {
+            val value = super.read();
+            if (value == -1) release.run();
+
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            val n = super.read(b, off, len);
+            if (n == -1) release.run();
+
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                release.run();
+            }
+        }
+
+    }
+
+    /**
+     * Measures time to response headers, {@link java.net.http.HttpClient} doesn't expose connect time.
+     */
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    private static final class TimingBodyHandler<T> implements BodyHandler<T> {
+
+        BodyHandler<T> delegate;
+
+        long start = System.nanoTime();
+
+        @NonFinal
+        volatile long firstByteAt;
+
+        private TimingBodyHandler(BodyHandler<T> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public BodySubscriber<T> apply(ResponseInfo responseInfo) {
+            firstByteAt = System.nanoTime();
+
+            return delegate.apply(responseInfo);
+        }
+
+        private HttpTiming getTiming(boolean complete) {
+            return new HttpTiming(HttpTiming.UNAVAILABLE, firstByteAt - start,
+                    complete ? System.nanoTime() - start : HttpTiming.UNAVAILABLE);
+        }
+
     }
 
     @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
-    @RequiredArgsConstructor
     private static final class RequestInitializingContentVisitor extends ExceptionSneakyPropagatingContentVisitor<HttpRequest> {
 
-        String url;
+        HttpRequest.Builder request;
+
+        private RequestInitializingContentVisitor(HttpRequest.Builder request) {
+            this.request = request;
+        }
 
         private HttpRequest.Builder sendRequest(HttpRequest.BodyPublisher content) {
-            return HttpRequest.newBuilder(URI.create(url)).POST(content);
+            return request.POST(content);
         }
 
         @Override
@@ -87,7 +288,7 @@ public final class Java11HttpClient implements HttpClient {
 
         @Override
         public HttpRequest visitMultipart0(String contentType, String boundary, List<MultipartContent.Part> parts) {
-            return sendRequest(HttpRequest.BodyPublishers.fromPublisher(new MultipartFormDataBodyPublisher(boundary, parts)))
+            return sendRequest(new MultipartFormDataBodyPublisher(boundary, parts))
                     .setHeader("Content-Type", contentType)
                     .build();
         }
@@ -106,4 +307,62 @@ public final class Java11HttpClient implements HttpClient {
                     .build();
         }
     }
+
+    /**
+     * Idle connections are kept alive by {@link java.net.http.HttpClient} itself, their lifetime
+     * is configured by {@code jdk.httpclient.keepalive.timeout} system property.
+     */
+    @Accessors(fluent = true)
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static final class Builder {
+
+        @Setter
+        java.net.http.HttpClient.Version version = java.net.http.HttpClient.Version.HTTP_2;
+
+        @Setter
+        Duration connectTimeout = Duration.ofSeconds(10);
+
+        /**
+         * Default timeout of the request, {@code null} means no timeout. Long poll requests
+         * use their own timeout, which is derived from the long poll wait time.
+         */
+        @Setter
+        Duration requestTimeout;
+
+        /**
+         * Maximum count of concurrent requests (and therefore HTTP/1.1 connections) to one host,
+         * zero means no limit. Long poll request holds its slot for the whole wait time, so the limit
+         * must be at least 2, otherwise no other request to the same host could be sent meanwhile.
+         * Unbuffered response holds its slot until its body is read to the end or closed.
+         */
+        @Setter
+        int maxRequestsPerHost;
+
+        @Setter
+        Executor executor;
+
+        public Java11HttpClient build() {
+            if (maxRequestsPerHost < 0 || maxRequestsPerHost == 1) {
+                throw new IllegalStateException("Max requests per host must be zero or at least 2");
+            }
+
+            val builder = java.net.http.HttpClient.newBuilder()
+                    .version(version)
+                    .followRedirects(java.net.http.HttpClient.Redirect.NORMAL);
+
+            Duration connectTimeout;
+            if ((connectTimeout = this.connectTimeout) != null) {
+                builder.connectTimeout(connectTimeout);
+            }
+
+            Executor executor;
+            if ((executor = this.executor) != null) {
+                builder.executor(executor);
+            }
+
+            return new Java11HttpClient(builder.build(), requestTimeout, maxRequestsPerHost);
+        }
+
+    }
+
 }
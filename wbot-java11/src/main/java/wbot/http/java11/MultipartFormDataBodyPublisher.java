@@ -17,153 +17,309 @@
 package wbot.http.java11;
 
 import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
 import lombok.val;
+import wbot.http.ExceptionSneakyPropagatingContentVisitor;
 import wbot.http.MultipartContent;
+import wbot.http.MultipartEncoding;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.http.HttpRequest.BodyPublisher;
-import java.net.http.HttpRequest.BodyPublishers;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
-import java.nio.charset.StandardCharsets;
-import java.util.Iterator;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * multipart/form-data BodyPublisher.
+ * <p>
+ * Publishes part headers and byte contents as is, file and stream contents are read by chunks on demand.
+ * Content length is known, when all parts report their size.
  */
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class MultipartFormDataBodyPublisher implements BodyPublisher {
 
-    BodyPublisher delegate;
+    private static final int CHUNK_SIZE = 16384;
+
+    List<MultipartContent.Part> parts;
+
+    byte[][] headers;
+
+    byte[] closeDelimiter;
+
+    long contentLength;
 
     public MultipartFormDataBodyPublisher(String boundary, List<MultipartContent.Part> parts) {
-        this.delegate = BodyPublishers.ofInputStream(() -> Channels.newInputStream(
-                new MultipartFormDataChannel(boundary, parts)));
+        this.parts = parts;
+        this.headers = MultipartEncoding.partHeaders(boundary, parts);
+        this.closeDelimiter = MultipartEncoding.closeDelimiter(boundary);
+        this.contentLength = MultipartEncoding.contentLength(boundary, parts, headers);
     }
 
     @Override
     public void subscribe(Subscriber<? super ByteBuffer> s) {
-        delegate.subscribe(s);
+        s.onSubscribe(new MultipartSubscription(s));
     }
 
     @Override
     public long contentLength() {
-        return delegate.contentLength();
+        return contentLength;
     }
 
-}
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    @RequiredArgsConstructor
+    private final class MultipartSubscription implements Subscription {
 
+        private static final int HEADER = 0;
+        private static final int BODY = 1;
+        private static final int TRAILER = 2;
+        private static final int DONE = 3;
 
-class MultipartFormDataChannel implements ReadableByteChannel {
-    private static final int BOUNDARY = 0;
-    private static final int HEADERS = 1;
-    private static final int BODY = 2;
-    private static final int DONE = 3;
-    private static final ByteBuffer CRLF = ByteBuffer.wrap("\r\n".getBytes());
+        Subscriber<? super ByteBuffer> subscriber;
 
-    private final Iterator<MultipartContent.Part> parts;
+        AtomicLong demand = new AtomicLong();
+        AtomicInteger wip = new AtomicInteger();
 
-    private int state;
-    private ByteBuffer buf;
-    private MultipartContent.Part current;
-    private ReadableByteChannel channel;
+        @NonFinal
+        volatile boolean cancelled;
 
-    private final ByteBuffer boundaryNext, boundaryLast;
+        /**
+         * Error of invalid request, which is delivered from drain loop.
+         */
+        @NonFinal
+        volatile Throwable requestError;
 
-    MultipartFormDataChannel(String boundary, Iterable<MultipartContent.Part> parts) {
-        this.parts = parts.iterator();
-        this.boundaryNext = ByteBuffer.wrap(("--" + boundary + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
-        this.boundaryLast = ByteBuffer.wrap(("--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1));
-    }
+        // fields below are accessed only in drain loop
 
-    @Override
-    public void close() throws IOException {
-        ReadableByteChannel channel;
-        if ((channel = this.channel) != null) {
-            channel.close();
-            this.channel = null;
+        @NonFinal
+        int index;
+
+        @NonFinal
+        int state;
+
+        @NonFinal
+        Body body;
+
+        @Override
+        public void request(long n) {
+            if (n <= 0L) {
+                // onError must not be called concurrently with onNext
+                requestError = new IllegalArgumentException("non-positive subscription request: " + n);
+                drain();
+                return;
+            }
+
+            long current, next;
+            do {
+                current = demand.get();
+                next = current + n;
+                if (next < 0L) {
+                    next = Long.MAX_VALUE;
+                }
+            } while (!demand.compareAndSet(current, next));
+
+            drain();
         }
-        state = DONE;
-    }
 
-    @Override
-    public boolean isOpen() {
-        return state != DONE;
-    }
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
 
-    @Override
-    public int read(ByteBuffer output) throws IOException {
-        while (true) {
-            ByteBuffer buf;
-            if ((buf = this.buf) != null && buf.hasRemaining()) {
-                val n = Math.min(buf.remaining(), output.remaining());
-                val slice = buf.slice();
-                slice.limit(n);
-                output.put(slice);
-                buf.position(buf.position() + n);
-                return n;
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
             }
 
-            switch (this.state) {
-                case BOUNDARY:
-                    if (this.parts.hasNext()) {
-                        this.current = this.parts.next();
-                        this.buf = boundaryNext.rewind();
-                        this.state = HEADERS;
-                    } else {
-                        this.buf = boundaryLast.rewind();
-                        this.state = DONE;
+            do {
+                if (state == DONE) {
+                    continue;
+                }
+
+                Throwable requestError;
+                if ((requestError = this.requestError) != null) {
+                    terminate();
+                    subscriber.onError(requestError);
+                    continue;
+                }
+
+                if (cancelled) {
+                    terminate();
+                    continue;
+                }
+
+                try {
+                    while (true) {
+                        if (state == TRAILER) {
+                            // completion is not an item, so it doesn't wait for demand
+                            state = DONE;
+                            subscriber.onComplete();
+                            break;
+                        }
+
+                        if (demand.get() == 0L || cancelled || this.requestError != null) {
+                            break;
+                        }
+
+                        demand.decrementAndGet();
+                        subscriber.onNext(next());
                     }
-                    break;
-                case HEADERS:
-                    this.buf = ByteBuffer.wrap(this.currentHeaders().getBytes(StandardCharsets.UTF_8));
-                    this.state = BODY;
-                    break;
-                case BODY:
-                    if (this.channel == null) {
-                        this.channel = this.current.content().open();
+                } catch (Exception e) {
+                    terminate();
+                    subscriber.onError(e);
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+
+        private void terminate() {
+            state = DONE;
+            closeBody();
+        }
+
+        private void closeBody() {
+            Body body;
+            if ((body = this.body) != null) {
+                this.body = null;
+
+                try {
+                    body.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        /**
+         * @return next buffer to publish, the last one is close delimiter
+         */
+        private ByteBuffer next() throws IOException {
+            switch (state) {
+                case HEADER:
+                    if (index == parts.size()) {
+                        state = TRAILER;
+                        return ByteBuffer.wrap(closeDelimiter);
                     }
 
-                    val n = this.channel.read(output);
-                    if (n == -1) {
-                        this.channel.close();
-                        this.channel = null;
-                        this.buf = CRLF.rewind();
-                        this.state = BOUNDARY;
-                    } else {
-                        return n;
+                    body = parts.get(index).content().accept(BodyOpeningContentVisitor.INSTANCE);
+                    state = BODY;
+                    return ByteBuffer.wrap(headers[index]);
+                case BODY:
+                    ByteBuffer buffer;
+                    if ((buffer = body.next()) != null) {
+                        return buffer;
                     }
-                    break;
-                case DONE:
-                    return -1;
+
+                    closeBody();
+                    index++;
+                    state = HEADER;
+                    return ByteBuffer.wrap(MultipartEncoding.partTrailer());
+                default:
+                    throw new IllegalStateException();
             }
         }
+
     }
 
-    String currentHeaders() {
-        val current = this.current;
-        if (current == null) {
-            throw new IllegalStateException();
+    private interface Body {
+
+        /**
+         * @return next chunk of part content or {@code null}, if there is no more data
+         */
+        ByteBuffer next() throws IOException;
+
+        void close() throws IOException;
+
+    }
+
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    @RequiredArgsConstructor
+    private static final class SliceBody implements Body {
+
+        byte[] bytes;
+        int off;
+        int len;
+
+        @NonFinal
+        boolean published;
+
+        @Override
+        public ByteBuffer next() {
+            if (published) {
+                return null;
+            }
+
+            published = true;
+            return ByteBuffer.wrap(bytes, off, len).slice();
+        }
+
+        @Override
+        public void close() {
         }
 
-        val contentType = current.content();
-        val fileName = current.fileName();
+    }
+
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    @RequiredArgsConstructor
+    private static final class ChannelBody implements Body {
+
+        ReadableByteChannel channel;
 
-        val sb = new StringBuilder();
-        sb.append("Content-Disposition: form-data; name=\"").append(current.name()).append("\"");
-        if (fileName != null) {
-            sb.append("; filename=\"").append(fileName).append("\"");
+        @Override
+        public ByteBuffer next() throws IOException {
+            // buffer can't be reused, because subscriber is allowed to keep it
+            val buffer = ByteBuffer.allocate(CHUNK_SIZE);
+
+            int n;
+            do {
+                if ((n = channel.read(buffer)) == -1) {
+                    return null;
+                }
+            } while (n == 0);
+
+            return buffer.flip();
         }
-        sb.append("\r\n");
-        if (contentType != null) {
-            sb.append("Content-Type: ").append(contentType).append("\r\n");
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
         }
-        sb.append("\r\n");
 
-        return sb.toString();
     }
+
+    private static final class BodyOpeningContentVisitor extends ExceptionSneakyPropagatingContentVisitor<Body> {
+
+        private static final BodyOpeningContentVisitor INSTANCE = new BodyOpeningContentVisitor();
+
+        @Override
+        protected Body visitInputStream0(String contentType, long size, InputStream is) {
+            return new ChannelBody(Channels.newChannel(is));
+        }
+
+        @Override
+        protected Body visitMultipart0(String contentType, String boundary, List<MultipartContent.Part> parts) {
+            throw new UnsupportedOperationException("Nested multipart content is not supported");
+        }
+
+        @Override
+        protected Body visitFile0(String contentType, long size, Path path) throws IOException {
+            return new ChannelBody(FileChannel.open(path, StandardOpenOption.READ));
+        }
+
+        @Override
+        protected Body visitBytes0(String contentType, byte[] bytes, int off, int len) {
+            return new SliceBody(bytes, off, len);
+        }
+
+    }
+
 }
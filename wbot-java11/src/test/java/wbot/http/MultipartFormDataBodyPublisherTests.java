@@ -0,0 +1,166 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.http;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import wbot.http.java11.MultipartFormDataBodyPublisher;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares body of {@link MultipartFormDataBodyPublisher} with body written by {@link DefaultHttpClient},
+ * so it lives in the package of the latter.
+ *
+ * @author whilein
+ */
+public class MultipartFormDataBodyPublisherTests {
+
+    private static final String BOUNDARY = "WBOTtest0123456789";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void publishOnDemand() throws IOException {
+        val file = tempDir.resolve("document.bin");
+        val fileBytes = randomBytes(40000);
+        Files.write(file, fileBytes);
+
+        val streamBytes = randomBytes(20000);
+
+        val publisher = new MultipartFormDataBodyPublisher(BOUNDARY, parts(file, fileBytes.length, streamBytes));
+        val subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        while (!subscriber.completed) {
+            val items = subscriber.items;
+
+            subscriber.subscription.request(1);
+
+            // close delimiter is the last item, completion must not wait for more demand
+            assertThat(subscriber.items)
+                    .isEqualTo(items + 1);
+
+            assertThat(subscriber.error)
+                    .isNull();
+        }
+
+        val expected = new ByteArrayOutputStream();
+        val parts = parts(file, fileBytes.length, streamBytes);
+
+        new DefaultHttpClient.RequestSenderContentVisitor(expected)
+                .writeMultipart(BOUNDARY, parts, MultipartEncoding.partHeaders(BOUNDARY, parts));
+
+        assertThat(subscriber.body.toByteArray())
+                .hasSize((int) publisher.contentLength())
+                .isEqualTo(expected.toByteArray());
+    }
+
+    @Test
+    public void nonPositiveRequest() {
+        val publisher = new MultipartFormDataBodyPublisher(BOUNDARY, Arrays.asList(
+                new MultipartContent.Part("type", null, new BytesContent(null, "doc", StandardCharsets.UTF_8))));
+
+        val subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.request(1);
+        subscriber.subscription.request(0);
+        subscriber.subscription.request(1);
+
+        assertThat(subscriber.error)
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(subscriber.items)
+                .isEqualTo(1);
+
+        assertThat(subscriber.completed)
+                .isFalse();
+    }
+
+    private static List<MultipartContent.Part> parts(Path file, long fileSize, byte[] streamBytes) {
+        return Arrays.asList(
+                new MultipartContent.Part("type", null,
+                        new BytesContent(null, "doc", StandardCharsets.UTF_8)),
+                new MultipartContent.Part("file", "document.bin",
+                        new FileContent("application/octet-stream", fileSize, file)),
+                new MultipartContent.Part("stream", "stream.bin",
+                        new InputStreamContent("application/octet-stream", streamBytes.length,
+                                new ByteArrayInputStream(streamBytes)))
+        );
+    }
+
+    private static byte[] randomBytes(int size) {
+        val bytes = new byte[size];
+        ThreadLocalRandom.current().nextBytes(bytes);
+
+        return bytes;
+    }
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<ByteBuffer> {
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        Flow.Subscription subscription;
+
+        int items;
+
+        boolean completed;
+
+        Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            items++;
+
+            while (item.hasRemaining()) {
+                body.write(item.get());
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+ *    Copyright 2024 Whilein
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package wbot.http.java11;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author whilein
+ */
+public class HostLimiterTests {
+
+    @Test
+    public void queuesRequestsOverLimit() {
+        val limiter = new HostLimiter(2);
+
+        val responses = new ArrayList<CompletableFuture<String>>();
+        val started = new AtomicInteger();
+
+        val results = new ArrayList<CompletableFuture<String>>();
+
+        for (int i = 0; i < 3; i++) {
+            results.add(limiter.submit(() -> {
+                started.incrementAndGet();
+
+                val response = new CompletableFuture<String>();
+                responses.add(response);
+
+                return response;
+            }));
+        }
+
+        assertThat(started).hasValue(2);
+        assertThat(limiter.getActiveRequests()).isEqualTo(2);
+        assertThat(limiter.getQueuedRequests()).isEqualTo(1);
+
+        responses.get(0).complete("first");
+
+        assertThat(results.get(0)).isCompletedWithValue("first");
+        assertThat(started).hasValue(3);
+        assertThat(limiter.getActiveRequests()).isEqualTo(2);
+        assertThat(limiter.getQueuedRequests()).isZero();
+
+        responses.get(1).complete("second");
+        responses.get(2).complete("third");
+
+        assertThat(results).allMatch(CompletableFuture::isDone);
+        assertThat(limiter.getActiveRequests()).isZero();
+    }
+
+    @Test
+    public void releasesSlotOnFailure() {
+        val limiter = new HostLimiter(2);
+
+        val failed = limiter.<String>submit(() -> CompletableFuture.failedFuture(new IOException("failed")));
+        val thrown = limiter.<String>submit(() -> {
+            throw new IllegalStateException("thrown");
+        });
+
+        assertThat(failed).isCompletedExceptionally();
+        assertThat(thrown).isCompletedExceptionally();
+        assertThat(limiter.getActiveRequests()).isZero();
+
+        assertThat(limiter.submit(() -> CompletableFuture.completedFuture("ok"))).isCompletedWithValue("ok");
+        assertThat(limiter.getActiveRequests()).isZero();
+    }
+
+    @Test
+    public void synchronousResponsesDoNotRecurse() {
+        val limiter = new HostLimiter(2);
+
+        val blocker = new CompletableFuture<String>();
+        limiter.submit(() -> blocker);
+        limiter.submit(() -> blocker);
+
+        val results = new ArrayList<CompletableFuture<Integer>>();
+
+        for (int i = 0; i < 100_000; i++) {
+            val value = i;
+            results.add(limiter.submit(() -> CompletableFuture.completedFuture(value)));
+        }
+
+        assertThat(limiter.getQueuedRequests()).isEqualTo(100_000);
+
+        blocker.complete("done");
+
+        assertThat(results).allMatch(CompletableFuture::isDone);
+        assertThat(limiter.getActiveRequests()).isZero();
+        assertThat(limiter.getQueuedRequests()).isZero();
+    }
+
+    @Test
+    public void holdsSlotUntilReleased() {
+        val limiter = new HostLimiter(2);
+
+        val releases = new ArrayList<Runnable>();
+        val started = new AtomicInteger();
+
+        val results = new ArrayList<CompletableFuture<String>>();
+
+        for (int i = 0; i < 3; i++) {
+            results.add(limiter.submitUntilReleased(release -> {
+                started.incrementAndGet();
+                releases.add(release);
+
+                return CompletableFuture.completedFuture("body");
+            }));
+        }
+
+        // responses are completed, but their bodies are not read yet
+        assertThat(results.subList(0, 2)).allMatch(CompletableFuture::isDone);
+        assertThat(started).hasValue(2);
+        assertThat(limiter.getActiveRequests()).isEqualTo(2);
+        assertThat(limiter.getQueuedRequests()).isEqualTo(1);
+
+        releases.get(0).run();
+        releases.get(0).run();
+
+        assertThat(started).hasValue(3);
+        assertThat(limiter.getActiveRequests()).isEqualTo(2);
+
+        releases.get(1).run();
+        releases.get(2).run();
+
+        assertThat(limiter.getActiveRequests()).isZero();
+    }
+
+    @Test
+    public void failedRequestReleasesHeldSlot() {
+        val limiter = new HostLimiter(2);
+
+        List<Runnable> releases = new ArrayList<>();
+
+        val result = limiter.<String>submitUntilReleased(release -> {
+            releases.add(release);
+
+            return CompletableFuture.failedFuture(new IOException("failed"));
+        });
+
+        assertThat(result).isCompletedExceptionally();
+        assertThat(limiter.getActiveRequests()).isZero();
+
+        // late release of failed request must not free a slot of another request
+        limiter.submit(CompletableFuture::new);
+        releases.get(0).run();
+
+        assertThat(limiter.getActiveRequests()).isEqualTo(1);
+    }
+
+}